@@ -0,0 +1,79 @@
+import java.text.DecimalFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jeva.ga.AsyncEvaluator;
+import jeva.ga.Breeder;
+import jeva.ga.Evaluator;
+import jeva.ga.Genome;
+import jeva.ga.Parameters;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkAsync
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int POPULATION_SIZE = 512;
+	private static final int GENERATIONS = 10;
+	private static final int IN_FLIGHT = 128;
+	private static final long LATENCY_MILLIS = 5;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		// A backend that answers every request after a fixed latency, as a simulation daemon would
+		ScheduledExecutorService backend = Executors.newSingleThreadScheduledExecutor();
+		EvaluatorRastrigin rastrigin = new EvaluatorRastrigin(20, 16);
+		AsyncEvaluator asyncEvaluator = new AsyncEvaluator()
+		{
+			public CompletionStage<Double> evaluateGenomeAsync(Genome genome)
+			{
+				Genome copy = (Genome)genome.clone();
+				CompletableFuture<Double> fitness = new CompletableFuture<Double>();
+				backend.schedule(() ->
+				{
+					rastrigin.evaluateGenome(copy);
+					fitness.complete(copy.getFitness());
+				}, LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+				return fitness;
+			}
+		};
+		Evaluator blockingEvaluator = genome -> asyncEvaluator.evaluateGenomeAsync(genome).thenAccept(genome::setFitness).toCompletableFuture().join();
+		
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, 20 * 16);
+		parameters.put(Parameters.POPULATION_SIZE, POPULATION_SIZE);
+		parameters.put(Parameters.SEED, 1L);
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println(GENERATIONS + " generations of " + POPULATION_SIZE + " requests with " + LATENCY_MILLIS + " ms latency");
+		
+		try (Breeder breeder = new Breeder(blockingEvaluator, new ObjectiveMinimize(), parameters, processors, 1))
+		{
+			run("blocking, " + processors + " threads", breeder);
+		}
+		try (Breeder breeder = new Breeder(asyncEvaluator, new ObjectiveMinimize(), parameters, processors, 1))
+		{
+			breeder.setAsyncLimits(IN_FLIGHT, 1, TimeUnit.SECONDS);
+			run("asynchronous, " + IN_FLIGHT + " in flight", breeder);
+		}
+		backend.shutdown();
+	}
+	
+
+
+	private static void run(String label, Breeder breeder) throws Exception
+	{
+		breeder.setSkipUnchanged(false);
+		long start = System.nanoTime();
+		for (int g = 0; g < GENERATIONS; g++)
+			breeder.step();
+		double ms = (System.nanoTime() - start) / 1e6 / GENERATIONS;
+		System.out.println("  " + label + "\t" + D_FORMATTER.format(ms) + " ms/generation\tbest = " + D_FORMATTER.format(breeder.getBestPopulation().getFitnessBest()));
+	}
+}
@@ -0,0 +1,112 @@
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+
+import jeva.ga.Breeder;
+import jeva.ga.Checkpoint;
+import jeva.ga.Parameters;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.genomestore.GenomeStoreDirect;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkCheckpoint
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int DIMENSIONS = 16;
+	private static final int BITS = 16;
+	private static final int TRIALS = 5;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		int populationSize = (args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20);
+		benchmark(populationSize, false);
+		benchmark(populationSize, true);
+	}
+	
+
+
+	private static void benchmark(int populationSize, boolean stores) throws Exception
+	{
+		int genomeLength = DIMENSIONS * BITS;
+		Path file = Files.createTempFile("jeva", ".checkpoint");
+		
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, genomeLength);
+		parameters.put(Parameters.POPULATION_SIZE, populationSize);
+		parameters.put(Parameters.SEED, 1L);
+		GenomeStoreDirect[] arenas = new GenomeStoreDirect[4];
+		try (Breeder breeder = new Breeder(new EvaluatorRastrigin(DIMENSIONS, BITS), new ObjectiveMinimize(), parameters, Runtime.getRuntime().availableProcessors(), 100);
+			Breeder restored = new Breeder(new EvaluatorRastrigin(DIMENSIONS, BITS), new ObjectiveMinimize(), parameters, 1, 100))
+		{
+			if (stores)
+			{
+				for (int i = 0; i < arenas.length; i++)
+					arenas[i] = new GenomeStoreDirect(populationSize, genomeLength);
+				breeder.setArenas(arenas[0], arenas[1]);
+				restored.setArenas(arenas[2], arenas[3]);
+			}
+			breeder.step();
+			breeder.step();
+			System.out.println("Checkpointing " + populationSize + " genomes of " + genomeLength + " bits" + (stores ? " (in stores)" : ""));
+			
+			Checkpoint checkpoint = null;
+			long encode = 0, write = 0, read = 0, restore = 0;
+			for (int t = 0; t <= TRIALS; t++)
+			{
+				long start = System.nanoTime();
+				checkpoint = breeder.checkpoint();
+				long encoded = System.nanoTime();
+				checkpoint.write(file);
+				long written = System.nanoTime();
+				Checkpoint loaded = Checkpoint.read(file);
+				long loadedTime = System.nanoTime();
+				restored.restore(loaded);
+				long restoredTime = System.nanoTime();
+				
+				// The first trial is a warm-up
+				if (t > 0)
+				{
+					encode += encoded - start;
+					write += written - encoded;
+					read += loadedTime - written;
+					restore += restoredTime - loadedTime;
+				}
+			}
+			
+			double megabytes = checkpoint.getSize() / 1e6;
+			System.out.println("  size = " + D_FORMATTER.format(megabytes) + " MB");
+			report("encode", encode, megabytes);
+			report("write", write, megabytes);
+			report("read", read, megabytes);
+			report("restore", restore, megabytes);
+			
+			// Writing in the background only costs the step thread the encoding
+			long start = System.nanoTime();
+			breeder.checkpointAsync(file).join();
+			System.out.println("  async round trip\t" + D_FORMATTER.format((System.nanoTime() - start) / 1e6) + " ms");
+			
+			if (restored.getLastPopulation().getFitnessBest() != breeder.getLastPopulation().getFitnessBest())
+				throw new IllegalStateException("The restored population differs");
+		}
+		finally
+		{
+			for (GenomeStoreDirect arena : arenas)
+				if (arena != null)
+					arena.close();
+			Files.deleteIfExists(file);
+		}
+	}
+	
+
+
+	private static void report(String phase, long nanos, double megabytes)
+	{
+		double ms = nanos / 1e6 / TRIALS;
+		System.out.println("  " + phase + "\t" + D_FORMATTER.format(ms) + " ms\t" + D_FORMATTER.format(megabytes / (ms / 1000)) + " MB/s");
+	}
+}
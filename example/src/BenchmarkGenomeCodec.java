@@ -0,0 +1,84 @@
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.SplittableRandom;
+
+import jeva.ga.Genome;
+import jeva.ga.GenomeCodec;
+import jeva.ga.Population;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkGenomeCodec
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int GENOME_LENGTH = 256;
+	private static final int GENOMES = 1 << 18;
+	private static final int TRIALS = 10;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		SplittableRandom random = new SplittableRandom(1);
+		Population population = new Population(new ObjectiveMinimize());
+		for (int i = 0; i < GENOMES; i++)
+		{
+			Genome genome = new Genome(GENOME_LENGTH);
+			for (int w = 0; w < genome.getWordCount(); w++)
+				genome.setWord(w, random.nextLong());
+			genome.setFitness(random.nextDouble());
+			population.addGenome(genome);
+		}
+		System.out.println(GENOMES + " genomes of " + GENOME_LENGTH + " bits (" + (GENOME_LENGTH / 8) + " bytes of bits each)");
+		
+		// Straight into (and out of) a direct buffer
+		ByteBuffer buffer = ByteBuffer.allocateDirect(GENOMES * GenomeCodec.encodedSize(GENOME_LENGTH, true));
+		Genome scratch = new Genome(GENOME_LENGTH);
+		long encode = 0, decode = 0;
+		for (int t = 0; t <= TRIALS; t++)
+		{
+			buffer.clear();
+			long start = System.nanoTime();
+			for (Genome genome : population.getGenomes())
+				GenomeCodec.encode(genome, buffer, true);
+			long encoded = System.nanoTime();
+			buffer.flip();
+			while (buffer.hasRemaining())
+				GenomeCodec.decode(buffer, scratch);
+			long decoded = System.nanoTime();
+			
+			// The first trial is a warm-up
+			if (t > 0)
+			{
+				encode += encoded - start;
+				decode += decoded - encoded;
+			}
+		}
+		double megabytes = buffer.limit() / 1e6;
+		System.out.println("  codec\t" + D_FORMATTER.format((double)buffer.limit() / GENOMES) + " bytes/genome");
+		report("encode", encode, megabytes);
+		report("decode", decode, megabytes);
+		
+		// Through Java serialisation (Externalizable)
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		long start = System.nanoTime();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(population);
+		}
+		double ms = (System.nanoTime() - start) / 1e6;
+		System.out.println("  Population.writeExternal\t" + D_FORMATTER.format((double)bytes.size() / GENOMES) + " bytes/genome\t" + D_FORMATTER.format(ms) + " ms");
+	}
+	
+
+
+	private static void report(String phase, long nanos, double megabytes)
+	{
+		double ms = nanos / 1e6 / TRIALS;
+		System.out.println("  " + phase + "\t" + D_FORMATTER.format(ms) + " ms\t" + D_FORMATTER.format(megabytes / (ms / 1000)) + " MB/s");
+	}
+}
@@ -0,0 +1,69 @@
+import java.text.DecimalFormat;
+
+import jeva.ga.Breeder;
+import jeva.ga.IslandModel;
+import jeva.ga.Parameters;
+import jeva.ga.dispatcher.DispatcherForkJoin;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.objective.ObjectiveMinimize;
+import jeva.ga.topology.TopologyRing;
+
+
+
+public class BenchmarkIslands
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.000");
+	private static final int ISLANDS = 8;
+	private static final int ISLAND_SIZE = 500;
+	private static final int GENERATIONS = 300;
+	private static final int VARIABLES = 40;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		// The same number of evaluations, as one population or as islands exchanging their best every 10 generations
+		EvaluatorRastrigin evaluator = new EvaluatorRastrigin(VARIABLES, 16);
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println(ISLANDS * ISLAND_SIZE * GENERATIONS + " evaluations of Rastrigin in " + VARIABLES + " variables on " + processors + " threads");
+		
+		Parameters parameters = newParameters(ISLANDS * ISLAND_SIZE, 0.002, 1);
+		try (Breeder breeder = new Breeder(evaluator, new ObjectiveMinimize(), parameters, new DispatcherForkJoin(processors), 0))
+		{
+			long start = System.nanoTime();
+			for (int g = 0; g < GENERATIONS; g++)
+				breeder.step();
+			report("one population of " + ISLANDS * ISLAND_SIZE, System.nanoTime() - start, breeder.getBestPopulation().getFitnessBest());
+		}
+		
+		try (IslandModel model = new IslandModel(new ObjectiveMinimize(), new TopologyRing(), processors))
+		{
+			// Heterogeneous islands: the mutation rate varies from island to island
+			for (int i = 0; i < ISLANDS; i++)
+				model.addIsland(evaluator, newParameters(ISLAND_SIZE, 0.001 * (i + 1), i + 1), 0);
+			model.setMigration(10, 2);
+			long start = System.nanoTime();
+			model.run(GENERATIONS);
+			report(ISLANDS + " islands of " + ISLAND_SIZE + " (best on island " + model.getBestIsland() + ")", System.nanoTime() - start, model.getBestGenome().getFitness());
+		}
+	}
+	
+
+
+	private static Parameters newParameters(int populationSize, double mutationRate, long seed)
+	{
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, VARIABLES * 16);
+		parameters.put(Parameters.POPULATION_SIZE, populationSize);
+		parameters.put(Parameters.MUTATION_RATE, mutationRate);
+		parameters.put(Parameters.SEED, seed);
+		return parameters;
+	}
+	
+
+
+	private static void report(String label, long nanos, double fitness)
+	{
+		System.out.println("  " + label + "\t" + D_FORMATTER.format(nanos / 1e6) + " ms\tbest = " + D_FORMATTER.format(fitness));
+	}
+}
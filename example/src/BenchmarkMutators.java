@@ -0,0 +1,86 @@
+
+import java.text.DecimalFormat;
+import java.util.SplittableRandom;
+
+import jeva.ga.Genome;
+import jeva.ga.Mutator;
+import jeva.ga.mutator.MutatorFlip;
+import jeva.ga.mutator.MutatorGeometric;
+import jeva.ga.mutator.MutatorMask;
+
+
+
+public class BenchmarkMutators
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.0000");
+	private static final double[] RATES = { 0.001, 0.01, 0.1, 0.3 };
+	private static final int CHECK_LENGTH = 1000;
+	private static final int CHECK_TRIALS = 20000;
+	private static final int TIMING_LENGTH = 1 << 20;
+	private static final int TIMING_TRIALS = 20;
+	
+
+
+	public static void main(String[] args)
+	{
+		Mutator[] mutators = { new MutatorFlip(), new MutatorGeometric(), new MutatorMask() };
+		
+		// Distribution: per-genome flip count moments, and a (binomial) chi-square statistic of per-bit flip counts
+		System.out.println("Distribution (" + CHECK_TRIALS + " genomes of " + CHECK_LENGTH + " bits)");
+		for (double rate : RATES)
+		{
+			System.out.println("  rate = " + rate + "\texpected mean = " + D_FORMATTER.format(CHECK_LENGTH * rate) + "\texpected variance = " + D_FORMATTER.format(CHECK_LENGTH * rate * (1 - rate)) + "\tchi-square dof = " + (CHECK_LENGTH - 1));
+			for (Mutator mutator : mutators)
+				check(mutator, rate);
+		}
+		
+		// Timing
+		System.out.println("Timing (" + TIMING_TRIALS + " mutations of " + TIMING_LENGTH + " bits)");
+		for (double rate : RATES)
+			for (Mutator mutator : mutators)
+				time(mutator, rate);
+	}
+	
+
+
+	private static void check(Mutator mutator, double rate)
+	{
+		SplittableRandom random = new SplittableRandom(1);
+		long[] perBit = new long[CHECK_LENGTH];
+		double sum = 0;
+		double sumSquares = 0;
+		for (int t = 0; t < CHECK_TRIALS; t++)
+		{
+			Genome genome = new Genome(CHECK_LENGTH);
+			mutator.mutate(genome, rate, random);
+			int flips = genome.cardinality();
+			sum += flips;
+			sumSquares += (double)flips * flips;
+			for (int i = 0; i < CHECK_LENGTH; i++)
+				if (genome.getValue(i))
+					perBit[i]++;
+		}
+		double mean = sum / CHECK_TRIALS;
+		double variance = sumSquares / CHECK_TRIALS - mean * mean;
+		double expected = (double)CHECK_TRIALS * rate;
+		double chiSquare = 0;
+		for (long count : perBit)
+			chiSquare += (count - expected) * (count - expected) / (expected * (1 - rate));
+		System.out.println("    " + mutator.getClass().getSimpleName() + "\tmean = " + D_FORMATTER.format(mean) + "\tvariance = " + D_FORMATTER.format(variance) + "\tchi-square = " + D_FORMATTER.format(chiSquare));
+	}
+	
+
+
+	private static void time(Mutator mutator, double rate)
+	{
+		SplittableRandom random = new SplittableRandom(1);
+		Genome genome = new Genome(TIMING_LENGTH);
+		for (int t = 0; t < TIMING_TRIALS; t++)
+			mutator.mutate(genome, rate, random);
+		long start = System.nanoTime();
+		for (int t = 0; t < TIMING_TRIALS; t++)
+			mutator.mutate(genome, rate, random);
+		double ms = (System.nanoTime() - start) / 1e6 / TIMING_TRIALS;
+		System.out.println("  rate = " + rate + "\t" + mutator.getClass().getSimpleName() + "\t" + D_FORMATTER.format(ms) + " ms/mutation");
+	}
+}
@@ -0,0 +1,78 @@
+import java.text.DecimalFormat;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Breeder;
+import jeva.ga.Evaluator;
+import jeva.ga.Genome;
+import jeva.ga.Mutator;
+import jeva.ga.Parameters;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.mutator.MutatorFlip;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkPipelined
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int THREADS = 8;
+	private static final int POPULATION_SIZE = 512;
+	private static final int GENERATIONS = 10;
+	private static final long BREED_NANOS = 20000;
+	private static final long EVALUATE_NANOS = 200000;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		// Serial breeding with a costly operator, and evaluation spread over the threads, about equally long per generation
+		EvaluatorRastrigin rastrigin = new EvaluatorRastrigin(20, 16);
+		Evaluator evaluator = new Evaluator()
+		{
+			public void evaluateGenome(Genome genome)
+			{
+				LockSupport.parkNanos(EVALUATE_NANOS);
+				rastrigin.evaluateGenome(genome);
+			}
+		};
+		MutatorFlip flip = new MutatorFlip();
+		Mutator mutator = new Mutator()
+		{
+			public void mutate(Genome genome, double mr)
+			{
+				mutate(genome, mr, RandomGenerator.getDefault());
+			}
+			
+			public void mutate(Genome genome, double mr, RandomGenerator random)
+			{
+				long end = System.nanoTime() + BREED_NANOS;
+				while (System.nanoTime() < end)
+					Thread.onSpinWait();
+				flip.mutate(genome, mr, random);
+			}
+		};
+		
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, 20 * 16);
+		parameters.put(Parameters.POPULATION_SIZE, POPULATION_SIZE);
+		parameters.put(Parameters.MUTATOR, mutator);
+		parameters.put(Parameters.SEED, 1L);
+		System.out.println(GENERATIONS + " generations of " + POPULATION_SIZE + " on " + THREADS + " threads (breed " + BREED_NANOS / 1000 + " us serially, evaluate " + EVALUATE_NANOS / 1000 + " us)");
+		
+		for (boolean pipelined : new boolean[] {false, true})
+		{
+			try (Breeder breeder = new Breeder(evaluator, new ObjectiveMinimize(), parameters, THREADS, 1))
+			{
+				breeder.setSkipUnchanged(false);
+				breeder.setPipelined(pipelined);
+				breeder.step();
+				long start = System.nanoTime();
+				for (int g = 1; g < GENERATIONS; g++)
+					breeder.step();
+				double ms = (System.nanoTime() - start) / 1e6 / (GENERATIONS - 1);
+				System.out.println("  " + (pipelined ? "pipelined" : "phased") + "\t" + D_FORMATTER.format(ms) + " ms/generation\tbest = " + D_FORMATTER.format(breeder.getBestPopulation().getFitnessBest()));
+			}
+		}
+	}
+}
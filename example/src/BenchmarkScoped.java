@@ -0,0 +1,70 @@
+import java.text.DecimalFormat;
+
+import jeva.ga.Breeder;
+import jeva.ga.Evaluator;
+import jeva.ga.Genome;
+import jeva.ga.Parameters;
+import jeva.ga.dispatcher.DispatcherForkJoin;
+import jeva.ga.dispatcher.DispatcherScoped;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkScoped
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int POPULATION_SIZE = 512;
+	private static final int GENERATIONS = 10;
+	private static final int MAX_CONCURRENCY = 256;
+	private static final long WAIT_MILLIS = 5;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		// Evaluations that mostly wait, as with evaluators backed by files or subprocesses
+		EvaluatorRastrigin rastrigin = new EvaluatorRastrigin(20, 16);
+		Evaluator evaluator = new Evaluator()
+		{
+			public void evaluateGenome(Genome genome)
+			{
+				try
+				{
+					Thread.sleep(WAIT_MILLIS);
+				}
+				catch (InterruptedException e)
+				{
+					throw new IllegalStateException("Evaluation cancelled", e);
+				}
+				rastrigin.evaluateGenome(genome);
+			}
+		};
+		
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, 20 * 16);
+		parameters.put(Parameters.POPULATION_SIZE, POPULATION_SIZE);
+		parameters.put(Parameters.SEED, 1L);
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println(GENERATIONS + " generations of " + POPULATION_SIZE + " evaluations waiting " + WAIT_MILLIS + " ms each");
+		
+		DispatcherScoped scoped = new DispatcherScoped(MAX_CONCURRENCY);
+		run("fork-join, " + processors + " threads", new Breeder(evaluator, new ObjectiveMinimize(), parameters, new DispatcherForkJoin(processors), 1));
+		run("scoped, " + MAX_CONCURRENCY + " in flight" + (scoped.isVirtual() ? " (virtual)" : " (platform)"), new Breeder(evaluator, new ObjectiveMinimize(), parameters, scoped, 1));
+	}
+	
+
+
+	private static void run(String label, Breeder breeder) throws Exception
+	{
+		try (breeder)
+		{
+			breeder.setSkipUnchanged(false);
+			long start = System.nanoTime();
+			for (int g = 0; g < GENERATIONS; g++)
+				breeder.step();
+			double ms = (System.nanoTime() - start) / 1e6 / GENERATIONS;
+			System.out.println("  " + label + "\t" + D_FORMATTER.format(ms) + " ms/generation\tbest = " + D_FORMATTER.format(breeder.getBestPopulation().getFitnessBest()));
+		}
+	}
+}
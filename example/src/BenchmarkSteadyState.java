@@ -0,0 +1,72 @@
+
+import java.text.DecimalFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import jeva.ga.Breeder;
+import jeva.ga.Evaluator;
+import jeva.ga.Genome;
+import jeva.ga.Parameters;
+import jeva.ga.SteadyStateBreeder;
+import jeva.ga.evaluator.EvaluatorRastrigin;
+import jeva.ga.objective.ObjectiveMinimize;
+
+
+
+public class BenchmarkSteadyState
+{
+	private static final DecimalFormat D_FORMATTER = new DecimalFormat("0.00");
+	private static final int THREADS = 8;
+	private static final int POPULATION_SIZE = 64;
+	private static final int GENERATIONS = 20;
+	private static final long MIN_NANOS = 1000000;
+	private static final long MAX_NANOS = 10000000;
+	
+
+
+	public static void main(String[] args) throws Exception
+	{
+		// Evaluation times vary 10x, as with simulator-backed evaluators
+		EvaluatorRastrigin rastrigin = new EvaluatorRastrigin(20, 16);
+		Evaluator evaluator = new Evaluator()
+		{
+			public void evaluateGenome(Genome genome)
+			{
+				LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(MIN_NANOS, MAX_NANOS + 1));
+				rastrigin.evaluateGenome(genome);
+			}
+		};
+		
+		Parameters parameters = new Parameters();
+		parameters.put(Parameters.GENOME_LENGTH, 20 * 16);
+		parameters.put(Parameters.POPULATION_SIZE, POPULATION_SIZE);
+		parameters.put(Parameters.SEED, 1L);
+		long evaluations = (long)POPULATION_SIZE * GENERATIONS;
+		double ideal = evaluations * (MIN_NANOS + MAX_NANOS) / 2.0 / THREADS / 1e6;
+		System.out.println(evaluations + " evaluations of 1-10 ms on " + THREADS + " threads (ideal " + D_FORMATTER.format(ideal) + " ms)");
+		
+		try (Breeder breeder = new Breeder(evaluator, new ObjectiveMinimize(), parameters, THREADS, 1))
+		{
+			breeder.setSkipUnchanged(false);
+			long start = System.nanoTime();
+			for (int g = 0; g < GENERATIONS; g++)
+				breeder.step();
+			report("generational", System.nanoTime() - start, ideal, breeder.getLastPopulation().getFitnessBest());
+		}
+		
+		try (SteadyStateBreeder breeder = new SteadyStateBreeder(evaluator, new ObjectiveMinimize(), parameters, THREADS, 1))
+		{
+			long start = System.nanoTime();
+			breeder.run(evaluations - POPULATION_SIZE);
+			report("steady-state", System.nanoTime() - start, ideal, breeder.getBestGenome().getFitness());
+		}
+	}
+	
+
+
+	private static void report(String engine, long nanos, double ideal, double fitness)
+	{
+		double ms = nanos / 1e6;
+		System.out.println("  " + engine + "\t" + D_FORMATTER.format(ms) + " ms\tutilisation = " + D_FORMATTER.format(100 * ideal / ms) + "%\tbest = " + D_FORMATTER.format(fitness));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+
+
+/**
+ * Identifies an evaluator function that returns its results asynchronously
+ * <p>
+ * Evaluators that hand work to a backend (a simulation daemon, a remote service, etc.) can implement this interface, so that no thread waits for each result. The Breeder keeps a bounded number of requests in flight, and sets the fitness of each genome when its stage completes. The genomes must not be modified, nor kept, by the evaluator after their stage completes.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface AsyncEvaluator extends Evaluator
+{
+	/**
+	 * Starts an evaluation of the specified genome
+	 * @param genome The genome to evaluate
+	 * @return A stage that completes with the fitness of the genome
+	 */
+	public CompletionStage<Double> evaluateGenomeAsync(Genome genome);
+	
+
+
+	/**
+	 * Starts an evaluation of the specified genomes, as one request
+	 * <p>
+	 * The default implementation starts one evaluation per genome, and combines their stages.
+	 * @param genomes The genomes to evaluate
+	 * @return A stage that completes with the fitnesses of the genomes, in order
+	 */
+	public default CompletionStage<double[]> evaluateGenomesAsync(List<Genome> genomes)
+	{
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		CompletableFuture<Double>[] futures = new CompletableFuture[genomes.size()];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = evaluateGenomeAsync(genomes.get(i)).toCompletableFuture();
+		
+		return CompletableFuture.allOf(futures).thenApply(ignored ->
+		{
+			double[] fitnesses = new double[futures.length];
+			for (int i = 0; i < futures.length; i++)
+				fitnesses[i] = futures[i].join();
+			return fitnesses;
+		});
+	}
+	
+
+
+	/**
+	 * Returns the number of genomes per request
+	 * @return The number of genomes to pass to {@link #evaluateGenomesAsync(List)}, or 1 to call {@link #evaluateGenomeAsync(Genome)} for each genome
+	 */
+	public default int getBatchSize()
+	{
+		return 1;
+	}
+	
+
+
+	/**
+	 * Performs an evaluation of the specified genome, waiting for its stage to complete
+	 * @param genome The genome to evaluate
+	 */
+	public default void evaluateGenome(Genome genome)
+	{
+		try
+		{
+			genome.setFitness(evaluateGenomeAsync(genome).toCompletableFuture().join());
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+import java.util.Collections;
+import java.util.List;
+
+
+
+/**
+ * Identifies an evaluator function that evaluates many genomes per call
+ * <p>
+ * Evaluators with a fixed per-call cost (process or native bindings, table setup, etc.) can implement this interface to amortise that cost over a batch. The Breeder detects such evaluators and hands each worker thread whole batches.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface BatchEvaluator extends Evaluator
+{
+	/**
+	 * Performs an evaluation of the specified genomes
+	 * @param genomes The genomes to evaluate
+	 */
+	public void evaluateGenomes(List<Genome> genomes);
+	
+
+
+	/**
+	 * Returns the preferred number of genomes per batch
+	 * @return The preferred batch size, or 0 to let the Breeder split the population evenly over its worker threads
+	 */
+	public default int getBatchSize()
+	{
+		return 0;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Evaluator#evaluateGenome(jeva.ga.Genome)
+	 */
+	public default void evaluateGenome(Genome genome)
+	{
+		evaluateGenomes(Collections.singletonList(genome));
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+import java.util.List;
+
+
+
+/**
+ * Adapts a plain Evaluator to the BatchEvaluator interface, by evaluating each genome of a batch in turn
+ * <p>
+ * If the evaluator is an IncrementalEvaluator, dirty genomes that carry the state of a previous evaluation are re-evaluated incrementally.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class BatchEvaluatorAdapter implements BatchEvaluator
+{
+	private Evaluator evaluator;
+	
+
+
+	/**
+	 * Constructs a new BatchEvaluatorAdapter
+	 * @param _evaluator The evaluator to adapt
+	 */
+	public BatchEvaluatorAdapter(Evaluator _evaluator)
+	{
+		evaluator = _evaluator;
+	}
+	
+
+
+	/**
+	 * Returns a BatchEvaluator for the specified evaluator: the evaluator itself if it already is one, an adapter otherwise
+	 * @param evaluator The evaluator
+	 * @return The BatchEvaluator
+	 */
+	public static BatchEvaluator adapt(Evaluator evaluator)
+	{
+		if (evaluator instanceof BatchEvaluator)
+			return (BatchEvaluator)evaluator;
+		return new BatchEvaluatorAdapter(evaluator);
+	}
+	
+
+
+	/**
+	 * Returns the adapted evaluator
+	 * @return The adapted evaluator
+	 */
+	public Evaluator getEvaluator()
+	{
+		return evaluator;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.BatchEvaluator#evaluateGenomes(java.util.List)
+	 */
+	public void evaluateGenomes(List<Genome> genomes)
+	{
+		for (int i = 0; i < genomes.size(); i++)
+			evaluateGenome(genomes.get(i));
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.BatchEvaluator#getBatchSize()
+	 */
+	public int getBatchSize()
+	{
+		return 1;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Evaluator#evaluateGenome(jeva.ga.Genome)
+	 */
+	public void evaluateGenome(Genome genome)
+	{
+		if (evaluator instanceof IncrementalEvaluator && genome.isDirty() && genome.getEvaluationState() != null)
+			((IncrementalEvaluator)evaluator).evaluateChanges(genome);
+		else
+			evaluator.evaluateGenome(genome);
+	}
+}
@@ -14,21 +14,83 @@ package jeva.ga;
 
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+
+import jeva.ga.dispatcher.DispatcherForkJoin;
+import jeva.ga.dispatcher.DispatcherSerial;
+import jeva.util.RandomSource;
 
 
 
 /**
- * This class implements the GA
+ * This class implements the GA.
+ * <p>
+ * Evaluation work is spread over the threads of a long-lived Dispatcher, which is released when the Breeder is closed.
+ * <p>
+ * Every random decision is drawn from a {@link RandomSource} stream keyed by generation and population slot. If {@link Parameters#SEED} is set, a run is therefore reproducible regardless of the number of threads, and of whether breeding is parallel.
+ * <p>
+ * At the end of every step, the state of the run is published as an immutable {@link GenerationSnapshot}. The counters and histories are read from it, so monitoring threads never wait for a step to finish; the populations themselves can only be read between steps.
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class Breeder
+public class Breeder implements AutoCloseable
 {
+	/**
+	 * Failure policy of asynchronous evaluation: a failed request aborts the step.
+	 */
+	public static final int FAILURE_ABORT = 0;
+	
+	/**
+	 * Failure policy of asynchronous evaluation: the genomes of a failed request are given the penalty fitness.
+	 */
+	public static final int FAILURE_PENALISE = 1;
+	
+	private static final int BREEDING_GRAIN = 64;
+	private static final int STORE_BATCH = 256;
+	private static final int PIPELINE_DEPTH = 4;
+	private static final long PIPELINE_WAIT = 100;
+	
 	private Evaluator evaluator;
+	private BatchEvaluator batchEvaluator;
+	private AsyncEvaluator asyncEvaluator;
 	private Objective objective;
 	private Parameters parameters;
-	private int nEvaluationThreads = 1;
+	private Dispatcher dispatcher;
+	private RandomSource randomSource;
+	private Cache cache = null;
+	private boolean skipUnchanged = true;
+	private boolean parallelBreeding = false;
+	private boolean pipelined = false;
+	private int asyncInFlight = 64;
+	private long asyncTimeoutNanos = 0;
+	private int asyncFailurePolicy = FAILURE_ABORT;
+	private int asyncRetries = 0;
+	private double asyncPenaltyFitness = 0;
+	private volatile AsyncEvaluation asyncEvaluation = null;
+	private boolean arenas = false;
+	private Population spareArena = null;
+	private Population bestArena = null;
+	private Population[] storedArenas = null;
+	private Population lastSnapshot = null;
+	private int skippedEvaluations = 0;
 	private int generation = 0;
 	private int stableGenerations = 0;
 	private Population lastPopulation = null;
@@ -37,6 +99,11 @@ public class Breeder
 	private ArrayList<Double> fitnessHistoryMean = new ArrayList<Double>();
 	private ArrayList<Double> fitnessHistoryWorst = new ArrayList<Double>();
 	private int historyLength = 1;
+	private ThreadLocal<Genome[]> cursors = new ThreadLocal<Genome[]>();
+	private ExecutorService checkpointWriter = null;
+	private TraceSink traceSink = null;
+	private volatile GenerationSnapshot snapshot;
+	private volatile boolean aborting = false;
 	
 
 
@@ -49,12 +116,31 @@ public class Breeder
 	 * @param _historyLength The maximum size of history to retain.
 	 */
 	public Breeder(Evaluator _evaluator, Objective _objective, Parameters _parameters, int _nEvaluationThreads, int _historyLength)
+	{
+		this(_evaluator, _objective, _parameters, (_nEvaluationThreads > 1 ? new DispatcherForkJoin(_nEvaluationThreads) : new DispatcherSerial()), _historyLength);
+	}
+	
+
+
+	/**
+	 * Constructs a new Breeder instance with the specified parameters.
+	 * @param _evaluator The evaluation function to use.
+	 * @param _objective The optimisation objective.
+	 * @param _parameters The set of GA parameters to use.
+	 * @param _dispatcher The Dispatcher to run evaluations on (closed along with this Breeder).
+	 * @param _historyLength The maximum size of history to retain.
+	 */
+	public Breeder(Evaluator _evaluator, Objective _objective, Parameters _parameters, Dispatcher _dispatcher, int _historyLength)
 	{
 		evaluator = _evaluator;
+		batchEvaluator = BatchEvaluatorAdapter.adapt(_evaluator);
+		asyncEvaluator = (_evaluator instanceof AsyncEvaluator ? (AsyncEvaluator)_evaluator : null);
 		objective = _objective;
 		parameters = _parameters;
-		nEvaluationThreads = _nEvaluationThreads;
+		dispatcher = _dispatcher;
+		randomSource = (_parameters.contains(Parameters.SEED) ? new RandomSource(_parameters.getLong(Parameters.SEED)) : new RandomSource());
 		historyLength = _historyLength;
+		publish();
 	}
 	
 
@@ -83,13 +169,193 @@ public class Breeder
 	
 
 
+	/**
+	 * Returns the Dispatcher used to run evaluations.
+	 * @return The Dispatcher used to run evaluations.
+	 */
+	public Dispatcher getDispatcher()
+	{
+		return dispatcher;
+	}
+	
+
+
+	/**
+	 * Returns the source of the random number streams used for initialisation and breeding.
+	 * @return The source of the random number streams.
+	 */
+	public RandomSource getRandomSource()
+	{
+		return randomSource;
+	}
+	
+
+
+	/**
+	 * Sets the fitness cache consulted before invoking the evaluator.
+	 * @param _cache The fitness cache, or null to always invoke the evaluator.
+	 */
+	public synchronized void setCache(Cache _cache)
+	{
+		cache = _cache;
+	}
+	
+
+
+	/**
+	 * Returns the fitness cache.
+	 * @return The fitness cache, or null if none is set.
+	 */
+	public synchronized Cache getCache()
+	{
+		return cache;
+	}
+	
+
+
+	/**
+	 * Sets whether Genomes that are unchanged since their last evaluation (e.g. elite copies, or children identical to a parent) are evaluated again. Evaluators with noisy fitness should disable skipping.
+	 * @param _skipUnchanged True, to evaluate only dirty or unevaluated Genomes; false, to evaluate every Genome every generation.
+	 */
+	public synchronized void setSkipUnchanged(boolean _skipUnchanged)
+	{
+		skipUnchanged = _skipUnchanged;
+	}
+	
+
+
+	/**
+	 * Sets whether offspring are bred concurrently on the Dispatcher's threads. Each thread fills its own range of population slots, and each slot draws from its own random number stream, so the result does not depend on the split. The selector, crossoverer and mutator must be safe for concurrent use (the bundled operators are).
+	 * @param _parallelBreeding True, to breed in parallel; false, to breed on the stepping thread.
+	 */
+	public synchronized void setParallelBreeding(boolean _parallelBreeding)
+	{
+		parallelBreeding = _parallelBreeding;
+	}
+	
+
+
+	/**
+	 * Sets whether offspring are evaluated while the rest of the generation is still being bred. Bred batches are passed to the evaluating threads through a bounded queue, so a generation takes roughly as long as the slower of breeding and evaluation, rather than their sum. This pays off when breeding is serial (or otherwise costly) and evaluation is spread over several threads.
+	 * <p>
+	 * Every slot still draws from its own random number stream, so seeded runs give the same result either way.
+	 * <p>
+	 * Pipelining does not apply to an {@link AsyncEvaluator}, whose requests are issued and bounded by {@link #setAsyncLimits(int, long, TimeUnit)} instead.
+	 * @param _pipelined True, to overlap breeding and evaluation; false, to breed the whole generation before evaluating it.
+	 * @throws IllegalStateException If pipelining is requested and the evaluator is an AsyncEvaluator
+	 */
+	public synchronized void setPipelined(boolean _pipelined)
+	{
+		if (_pipelined && asyncEvaluator != null)
+			throw new IllegalStateException("Pipelining is not supported with an AsyncEvaluator");
+		pipelined = _pipelined;
+	}
+	
+
+
+	/**
+	 * Sets how the requests of an {@link AsyncEvaluator} are issued. The requests are issued from the stepping thread, once the whole generation has been bred, and the generation completes when every request has resolved. An AsyncEvaluator therefore cannot be combined with {@link #setPipelined(boolean)}.
+	 * @param _maxInFlight The maximum number of requests in flight (64 by default).
+	 * @param timeout The time after which an unresolved request counts as failed, or 0 to wait indefinitely (the default).
+	 * @param unit The unit of the timeout.
+	 */
+	public synchronized void setAsyncLimits(int _maxInFlight, long timeout, TimeUnit unit)
+	{
+		asyncInFlight = Math.max(1, _maxInFlight);
+		asyncTimeoutNanos = unit.toNanos(Math.max(0, timeout));
+	}
+	
+
+
+	/**
+	 * Sets what happens when a request of an {@link AsyncEvaluator} fails or times out.
+	 * @param _failurePolicy {@link #FAILURE_ABORT} (the default), to abort the step with a BreederException; {@link #FAILURE_PENALISE}, to give the genomes of the request the penalty fitness (which is not cached).
+	 * @param _retries The number of times a failed request is issued again before the policy applies.
+	 * @param _penaltyFitness The fitness given under {@link #FAILURE_PENALISE}.
+	 */
+	public synchronized void setAsyncFailurePolicy(int _failurePolicy, int _retries, double _penaltyFitness)
+	{
+		if (_failurePolicy != FAILURE_ABORT && _failurePolicy != FAILURE_PENALISE)
+			throw new IllegalArgumentException("Unknown failure policy " + _failurePolicy);
+		asyncFailurePolicy = _failurePolicy;
+		asyncRetries = Math.max(0, _retries);
+		asyncPenaltyFitness = _penaltyFitness;
+	}
+	
+
+
+	/**
+	 * Sets whether offspring are bred into two preallocated populations (arenas) that are swapped every generation, so that breeding recycles Genomes instead of allocating them. The crossoverer should then override {@link Crossoverer#crossover(Genome, Genome, Genome, RandomGenerator)}.
+	 * <p>
+	 * The arenas are overwritten as the run goes on, so {@link #getLastPopulation()} then returns a copy, and {@link #getBestPopulation()} a third, recycled population, which is overwritten whenever the best population improves.
+	 * @param _arenas True, to breed into recycled arenas; false, to allocate a new Population every generation.
+	 */
+	public synchronized void setArenas(boolean _arenas)
+	{
+		arenas = _arenas;
+		spareArena = null;
+		bestArena = null;
+		storedArenas = null;
+	}
+	
+
+
+	/**
+	 * Sets offspring to be bred into two arenas kept in the specified stores, which are swapped every generation. No Genome objects are kept: operators and evaluators work on per-thread Genomes that are copied in and out of the store rows.
+	 * <p>
+	 * Each store must hold exactly {@link Parameters#POPULATION_SIZE} genomes of {@link Parameters#GENOME_LENGTH} bits, and should be set before the first step. {@link #getLastPopulation()} then returns the live population (valid until the Breeder is stepped twice more), and {@link #getBestPopulation()} a copy of the best population's elite only. The stores are not closed by the Breeder.
+	 * @param store1 The store of the first arena.
+	 * @param store2 The store of the second arena.
+	 */
+	public synchronized void setArenas(GenomeStore store1, GenomeStore store2)
+	{
+		arenas = true;
+		spareArena = null;
+		storedArenas = new Population[] { new Population(objective, store1), new Population(objective, store2) };
+	}
+	
+
+
+	/**
+	 * Sets a sink to record every generation to, once it has been evaluated and sorted. The sink is not closed by the Breeder.
+	 * @param _traceSink The trace sink, or null to record nothing.
+	 */
+	public synchronized void setTraceSink(TraceSink _traceSink)
+	{
+		traceSink = _traceSink;
+	}
+	
+
+
+	/**
+	 * Returns the state of the run after the last generation, as published at the end of the last step. It never blocks, even while the Breeder is being stepped.
+	 * @return The last snapshot.
+	 */
+	public GenerationSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+	
+
+
+	/**
+	 * Returns the number of evaluations skipped in the last generation, because the Genomes were unchanged since their last evaluation.
+	 * @return The number of evaluations skipped in the last generation.
+	 */
+	public int getSkippedEvaluations()
+	{
+		return snapshot.getSkippedEvaluations();
+	}
+	
+
+
 	/**
 	 * Returns the current generation.
 	 * @return The current generation.
 	 */
-	public synchronized int getGeneration()
+	public int getGeneration()
 	{
-		return generation;
+		return snapshot.getGeneration();
 	}
 	
 
@@ -98,26 +364,31 @@ public class Breeder
 	 * Returns the number of stable generations.
 	 * @return The number of stable generations.
 	 */
-	public synchronized int getStableGenerations()
+	public int getStableGenerations()
 	{
-		return stableGenerations;
+		return snapshot.getStableGenerations();
 	}
 	
 
 
 	/**
-	 * Returns the last (current) population.
+	 * Returns the last (current) population. This waits for a step in progress to finish.
 	 * @return The last (current) population.
 	 */
 	public synchronized Population getLastPopulation()
 	{
-		return lastPopulation;
+		// An arena will be overwritten, so hand out a copy (once per generation), unless it is too large to copy
+		if (!arenas || lastPopulation == null || lastPopulation.getStore() != null)
+			return lastPopulation;
+		if (lastSnapshot == null)
+			lastSnapshot = (Population)lastPopulation.clone();
+		return lastSnapshot;
 	}
 	
 
 
 	/**
-	 * Returns the best (stored) population.
+	 * Returns the best (stored) population. This waits for a step in progress to finish.
 	 * @return The best (stored) population.
 	 */
 	public synchronized Population getBestPopulation()
@@ -129,33 +400,33 @@ public class Breeder
 
 	/**
 	 * Returns the history of best fitnesses as an ArrayList.
-	 * @return The history of best fitnesses.
+	 * @return The history of best fitnesses (a copy).
 	 */
-	public synchronized ArrayList<Double> getFitnessHistoryBest()
+	public ArrayList<Double> getFitnessHistoryBest()
 	{
-		return fitnessHistoryBest;
+		return new ArrayList<Double>(snapshot.getFitnessHistoryBest());
 	}
 	
 
 
 	/**
 	 * Returns the history of mean fitnesses as an ArrayList.
-	 * @return The history of mean fitnesses.
+	 * @return The history of mean fitnesses (a copy).
 	 */
-	public synchronized ArrayList<Double> getFitnessHistoryMean()
+	public ArrayList<Double> getFitnessHistoryMean()
 	{
-		return fitnessHistoryMean;
+		return new ArrayList<Double>(snapshot.getFitnessHistoryMean());
 	}
 	
 
 
 	/**
 	 * Returns the history of worst fitnesses as an ArrayList.
-	 * @return The history of worst fitnesses.
+	 * @return The history of worst fitnesses (a copy).
 	 */
-	public synchronized ArrayList<Double> getFitnessHistoryWorst()
+	public ArrayList<Double> getFitnessHistoryWorst()
 	{
-		return fitnessHistoryWorst;
+		return new ArrayList<Double>(snapshot.getFitnessHistoryWorst());
 	}
 	
 
@@ -166,19 +437,47 @@ public class Breeder
 	 */
 	public synchronized void step() throws BreederException
 	{
-		// Create baby population
-		Population babyPopulation = (generation == 0 ? createNewPopulation() : breedNewPopulation());
+		aborting = false;
+		Population babyPopulation;
+		if (generation > 0 && pipelined)
+		{
+			// Breed and evaluate baby population together
+			babyPopulation = breedAndEvaluatePopulation();
+		}
+		else
+		{
+			// Create baby population
+			babyPopulation = (generation == 0 ? createNewPopulation() : breedNewPopulation());
+			checkAborting();
+			
+			// Evaluate baby population
+			evaluatePopulation(babyPopulation);
+		}
+		checkAborting();
 		
-		// Evaluate baby population
-		evaluatePopulation(babyPopulation);
+		// Record baby population
+		if (traceSink != null)
+		{
+			try
+			{
+				traceSink.record(generation, babyPopulation);
+			}
+			catch (UncheckedIOException e)
+			{
+				throw new BreederException("Cannot record generation " + generation + ": " + e.getCause().getMessage(), e.getCause());
+			}
+		}
 		
-		// Update populations
+		// Update populations (the previous one becomes the spare arena, unless it is still held as the best)
+		if (arenas && lastPopulation != null && lastPopulation != bestPopulation)
+			spareArena = lastPopulation;
 		lastPopulation = babyPopulation;
+		lastSnapshot = null;
 		if (bestPopulation == null)
-			bestPopulation = babyPopulation;
+			bestPopulation = keepBest(babyPopulation);
 		else if (objective.compare(babyPopulation.getBestGenome(), bestPopulation.getBestGenome()) == -1)
 		{
-			bestPopulation = babyPopulation;
+			bestPopulation = keepBest(babyPopulation);
 			stableGenerations = 0;
 		}
 		else
@@ -189,6 +488,7 @@ public class Breeder
 		
 		// Update generation
 		generation++;
+		publish();
 	}
 	
 
@@ -206,6 +506,7 @@ public class Breeder
 		
 		// Update generation
 		generation++;
+		publish();
 		
 		// Yield
 		try
@@ -221,183 +522,1217 @@ public class Breeder
 
 
 	/**
-	 * Adds a new history entry (set), deletes an old one if necessary.
+	 * Captures the state of the run (counters, fitness history, and last and best populations) into a Checkpoint.
+	 * @return The checkpoint.
 	 */
-	private void pushHistory()
+	public synchronized Checkpoint checkpoint()
 	{
-		fitnessHistoryBest.add(lastPopulation.getFitnessBest());
-		fitnessHistoryMean.add(lastPopulation.getFitnessMean());
-		fitnessHistoryWorst.add(lastPopulation.getFitnessWorst());
-		if (fitnessHistoryBest.size() > historyLength)
-		{
-			fitnessHistoryBest.remove(0);
-			fitnessHistoryMean.remove(0);
-			fitnessHistoryWorst.remove(0);
-		}
+		return Checkpoint.capture(randomSource.getSeed(), generation, stableGenerations, skippedEvaluations, fitnessHistoryBest, fitnessHistoryMean, fitnessHistoryWorst, lastPopulation, bestPopulation);
 	}
 	
 
 
 	/**
-	 * Creates a new Population.
-	 * @return The new Population.
-	 * @throws BreederException If something goes wrong
+	 * Captures the state of the run into a Checkpoint, and writes it to the specified file on a background thread, so that the run can be stepped on while it is written.
+	 * @param file The file.
+	 * @return A future that completes with the checkpoint once it has been written (or exceptionally, with an UncheckedIOException, if it could not be).
 	 */
-	private Population createNewPopulation() throws BreederException
+	public synchronized CompletableFuture<Checkpoint> checkpointAsync(Path file)
 	{
-		Population babyPopulation = new Population(objective);
-		
-		if (!parameters.contains(Parameters.GENOME_LENGTH))
-			throw new BreederException("The genome length has not been set");
-		int populationSize = parameters.getInt(Parameters.POPULATION_SIZE);
-		int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
-		Initializer initializer = (Initializer)parameters.getOperator(Parameters.INITIALIZER);
-		babyPopulation.initialise(populationSize, genomeLength, initializer);
+		Checkpoint checkpoint = checkpoint();
+		if (checkpointWriter == null)
+		{
+			checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "jeva-checkpoint");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 		
-		return babyPopulation;
+		return CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				checkpoint.write(file);
+				return checkpoint;
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}, checkpointWriter);
 	}
 	
 
 
 	/**
-	 * Breeds the next generation Population.
-	 * @return The next generation Population.
+	 * Restores the state of a run from a Checkpoint. The Breeder must have been constructed with the same evaluator, objective and parameters (but for {@link Parameters#SEED}, which is taken from the checkpoint) as the one that was checkpointed, and arena stores, if any, must be set beforehand. Seeded runs then continue exactly as if they had never been interrupted.
+	 * @param checkpoint The checkpoint.
+	 * @throws BreederException If the checkpoint does not match the parameters.
 	 */
-	private Population breedNewPopulation()
+	public synchronized void restore(Checkpoint checkpoint) throws BreederException
 	{
-		// Create next population
-		Population babyPopulation = new Population(objective);
+		if (checkpoint.hasLastPopulation())
+		{
+			if (!parameters.contains(Parameters.GENOME_LENGTH))
+				throw new BreederException("The genome length has not been set");
+			int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+			if (checkpoint.getGenomeLength() != genomeLength)
+				throw new BreederException("The checkpoint holds genomes of " + checkpoint.getGenomeLength() + " bits, not " + genomeLength);
+		}
+		else if (checkpoint.getGeneration() > 0)
+			throw new BreederException("The checkpoint holds no population");
 		
-		// Copy elite population
-		int populationSize = parameters.getInt(Parameters.POPULATION_SIZE);
-		int eliteSize = parameters.getInt(Parameters.ELITE_SIZE);
-		int babyIndex = 0;
-		for (; babyIndex < eliteSize && babyIndex < populationSize; babyIndex++)
-			babyPopulation.addGenome((Genome)lastPopulation.getGenome(babyIndex).clone());
+		randomSource = new RandomSource(checkpoint.getSeed());
+		generation = checkpoint.getGeneration();
+		stableGenerations = checkpoint.getStableGenerations();
+		skippedEvaluations = checkpoint.getSkippedEvaluations();
 		
-		// Breed non-elite population
-		Selectable[] selectables = lastPopulation.getGenomes().toArray(new Selectable[] {});
-		Selector selector = (Selector)parameters.getOperator(Parameters.SELECTOR);
-		Crossoverer crossoverer = (Crossoverer)parameters.getOperator(Parameters.CROSSOVERER);
-		Mutator mutator = (Mutator)parameters.getOperator(Parameters.MUTATOR);
-		for (; babyIndex < populationSize; babyIndex++)
-		{
-			// Select parents
-			Selectable[] parents = selector.select(objective, selectables, 2);
-			Genome parent1 = (Genome)parents[0];
-			Genome parent2 = (Genome)parents[1];
-			
-			// Perform crossover
-			Genome child;
-			if (Math.random() < parameters.getDouble(Parameters.CROSSOVER_RATE))
-				child = crossoverer.crossover(parent1, parent2);
-			else
-				child = (Genome)parent1.clone();
-			
-			// Perform mutation
-			mutator.mutate(child, parameters.getDouble(Parameters.MUTATION_RATE));
-			
-			babyPopulation.addGenome(child);
+		// Restore history (as much of it as is retained)
+		fitnessHistoryBest.clear();
+		fitnessHistoryMean.clear();
+		fitnessHistoryWorst.clear();
+		double[] best = checkpoint.getHistory(0);
+		double[] mean = checkpoint.getHistory(1);
+		double[] worst = checkpoint.getHistory(2);
+		for (int i = Math.max(0, best.length - historyLength); i < best.length; i++)
+		{
+			fitnessHistoryBest.add(best[i]);
+			fitnessHistoryMean.add(mean[i]);
+			fitnessHistoryWorst.add(worst[i]);
 		}
 		
-		return babyPopulation;
+		// Restore populations (into the first arena store, if there are stores)
+		if (!checkpoint.hasLastPopulation())
+			lastPopulation = null;
+		else if (storedArenas != null)
+		{
+			try
+			{
+				storedArenas[0].recycle();
+				checkpoint.readLastPopulation(storedArenas[0]);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new BreederException(e.getMessage(), e);
+			}
+			lastPopulation = storedArenas[0];
+		}
+		else
+			lastPopulation = checkpoint.getLastPopulation(objective);
+		if (checkpoint.isBestLast())
+			bestPopulation = keepBest(lastPopulation);
+		else
+			bestPopulation = checkpoint.getBestPopulation(objective);
+		spareArena = null;
+		lastSnapshot = null;
+		publish();
 	}
 	
 
 
 	/**
-	 * Evaluates the specified Population.
-	 * @param population The Population to evaluate.
+	 * Aborts the step in progress, from another thread. Outstanding evaluations are cancelled if the Dispatcher supports it (see {@link Dispatcher#cancel()}), as are outstanding asynchronous requests, and the step throws a BreederException, leaving the Breeder at the generation it started from. Has no effect if no step is in progress.
+	 */
+	public void abort()
+	{
+		aborting = true;
+		dispatcher.cancel();
+		AsyncEvaluation evaluation = asyncEvaluation;
+		if (evaluation != null)
+			evaluation.cancel();
+	}
+	
+
+
+	/**
+	 * Releases the evaluation threads (checkpoints already requested are still written). The Breeder must not be stepped afterwards.
 	 */
-	private void evaluatePopulation(Population population)
+	public synchronized void close()
 	{
-		if (nEvaluationThreads > 1)
-			evaluatePopulationMany(population);
+		dispatcher.close();
+		if (checkpointWriter != null)
+			checkpointWriter.shutdown();
+	}
+	
+
+
+	/**
+	 * Returns the Population to keep as the best so far: the Population itself, or a copy of it if it is an arena (into the recycled best arena, or just of its elite, if it is kept in a store).
+	 * @param population The new best Population.
+	 * @return The Population to keep.
+	 */
+	private Population keepBest(Population population)
+	{
+		if (!arenas)
+			return population;
+		if (population.getStore() != null)
+			return population.copyBest(Math.max(1, parameters.getInt(Parameters.ELITE_SIZE)));
+		if (bestArena == null || bestArena.getSize() != population.getSize())
+			bestArena = (Population)population.clone();
 		else
-			evaluatePopulationSingle(population);
-		
-		// Sort the newly evaluated population (selector needs this, also sorting makes it easier to access best & worst individuals).
-		population.sort();
+			bestArena.copyFrom(population);
+		return bestArena;
 	}
 	
 
 
 	/**
-	 * Evaluates the specified Population (using a single thread).
-	 * @param population The Population to evaluate.
+	 * Publishes a snapshot of the state of the run.
 	 */
-	private void evaluatePopulationSingle(Population population)
+	private void publish()
 	{
-		for (int i = 0; i < population.getSize(); i++)
-			evaluator.evaluateGenome(population.getGenome(i));
+		Genome bestGenome = (bestPopulation != null && bestPopulation.getSize() > 0 ? (Genome)bestPopulation.getBestGenome().clone() : null);
+		if (lastPopulation == null || lastPopulation.getSize() == 0)
+			snapshot = new GenerationSnapshot(generation, stableGenerations, skippedEvaluations, bestGenome, Double.NaN, Double.NaN, Double.NaN, fitnessHistoryBest, fitnessHistoryMean, fitnessHistoryWorst);
+		else
+			snapshot = new GenerationSnapshot(generation, stableGenerations, skippedEvaluations, bestGenome, lastPopulation.getFitnessBest(), lastPopulation.getFitnessMean(), lastPopulation.getFitnessWorst(), fitnessHistoryBest, fitnessHistoryMean, fitnessHistoryWorst);
 	}
 	
 
 
 	/**
-	 * Evaluates the specified Population (using multiple concurent threads).
-	 * @param population The Population to evaluate.
+	 * Adds a new history entry (set), deletes an old one if necessary.
+	 */
+	private void pushHistory()
+	{
+		fitnessHistoryBest.add(lastPopulation.getFitnessBest());
+		fitnessHistoryMean.add(lastPopulation.getFitnessMean());
+		fitnessHistoryWorst.add(lastPopulation.getFitnessWorst());
+		if (fitnessHistoryBest.size() > historyLength)
+		{
+			fitnessHistoryBest.remove(0);
+			fitnessHistoryMean.remove(0);
+			fitnessHistoryWorst.remove(0);
+		}
+	}
+	
+
+
+	/**
+	 * Returns copies of Genomes of the last population, to migrate to other islands.
+	 * @param n The number of emigrants.
+	 * @param selector The Selector that picks the emigrants, or null to take the best.
+	 * @param random The random number stream.
+	 * @return The emigrants (fewer than n if the population is smaller, and none before the first step).
 	 */
-	private void evaluatePopulationMany(Population population)
+	synchronized Genome[] emigrants(int n, Selector selector, RandomGenerator random)
 	{
-		// Create the evaluation threads 
-		EvaluationThread[] evaluationThreads = new EvaluationThread[nEvaluationThreads];
-		for (int i = 0; i < nEvaluationThreads; i++)
-			evaluationThreads[i] = new EvaluationThread();
+		if (lastPopulation == null)
+			return new Genome[0];
 		
-		// Fill the evaluation threads
-		for (int i = 0; i < population.getSize(); i++)
-			evaluationThreads[i % nEvaluationThreads].addGenome(population.getGenome(i));
+		// The best are only known once sorted, and some selectors need a sorted population too
+		if (selector == null || selector.requiresSortedSelectables())
+			lastPopulation.sort();
+		lastSnapshot = null;
+		
+		Genome[] emigrants = new Genome[Math.min(n, lastPopulation.getSize())];
+		boolean stored = (lastPopulation.getStore() != null);
+		int[] selected = (selector != null ? selector.prepare(objective, lastPopulation.getFitnesses()).selectIndices(emigrants.length, random) : null);
+		for (int i = 0; i < emigrants.length; i++)
+		{
+			// Stored Genomes are read out as copies already
+			Genome emigrant = lastPopulation.getGenome(selector != null ? selected[i] : i);
+			emigrants[i] = (stored ? emigrant : (Genome)emigrant.clone());
+		}
+		
+		return emigrants;
+	}
+	
+
+
+	/**
+	 * Lets Genomes from other islands replace individuals of the last population, and publishes the result.
+	 * @param immigrants The immigrants (which are copied, and must be evaluated).
+	 * @param replacer The Replacer that picks the individual each immigrant replaces (the elite is kept).
+	 * @param random The random number stream.
+	 * @return The number of immigrants that replaced an individual (none before the first step, so callers should hold immigrants back until then).
+	 */
+	synchronized int immigrate(Genome[] immigrants, Replacer replacer, RandomGenerator random)
+	{
+		if (lastPopulation == null)
+			return 0;
 		
-		// Run the evaluation threads
-		for (int i = 0; i < nEvaluationThreads; i++)
-			evaluationThreads[i].start();
+		int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+		int eliteSize = Math.min(parameters.getInt(Parameters.ELITE_SIZE), lastPopulation.getSize());
+		int accepted = 0;
+		lastPopulation.sort();
 		
-		// Wait for evaluation threads to finish
-		for (int i = 0; i < nEvaluationThreads; i++)
+		// Read the fitness column once, and keep it sorted as immigrants arrive, along with the population index of each entry
+		double[] fitnesses = lastPopulation.getFitnesses();
+		int[] indices = new int[fitnesses.length];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = i;
+		for (Genome immigrant : immigrants)
 		{
-			try
+			if (immigrant.length() != genomeLength || !immigrant.isEvaluated())
+				continue;
+			
+			double fitness = immigrant.getFitness();
+			int replaced = replacer.replace(objective, fitnesses, eliteSize, fitness, random);
+			if (replaced < 0)
+				continue;
+			
+			// Without arenas, the last population may be held as the best too, which must not change
+			if (lastPopulation == bestPopulation)
 			{
-				evaluationThreads[i].join();
+				Population copy = new Population(objective);
+				for (int i = 0; i < lastPopulation.getSize(); i++)
+					copy.addGenome(lastPopulation.getGenome(i));
+				lastPopulation = copy;
 			}
-			catch (InterruptedException e)
+			
+			int index = indices[replaced];
+			lastPopulation.setGenome(index, (Genome)immigrant.clone());
+			
+			// Find the place of the immigrant (after any equally fit individuals), and shift the entries in between
+			int place = upperBound(fitnesses, fitness);
+			if (place <= replaced)
+			{
+				System.arraycopy(indices, place, indices, place + 1, replaced - place);
+				System.arraycopy(fitnesses, place, fitnesses, place + 1, replaced - place);
+			}
+			else
 			{
-				e.printStackTrace();
+				place--;
+				System.arraycopy(indices, replaced + 1, indices, replaced, place - replaced);
+				System.arraycopy(fitnesses, replaced + 1, fitnesses, replaced, place - replaced);
 			}
+			indices[place] = index;
+			fitnesses[place] = fitness;
+			accepted++;
+		}
+		if (accepted > 0)
+			lastPopulation.sort();
+		lastSnapshot = null;
+		
+		if (accepted > 0 && bestPopulation != null && objective.compare(lastPopulation.getBestGenome(), bestPopulation.getBestGenome()) == -1)
+		{
+			bestPopulation = keepBest(lastPopulation);
+			stableGenerations = 0;
 		}
+		publish();
+		
+		return accepted;
 	}
 	
 
 
 	/**
-	 * This Thread subclass performs evaluations.
+	 * Returns the index of the first entry of a sorted fitness column that is worse than the specified fitness.
+	 * @param fitnesses The fitness column, sorted best first.
+	 * @param fitness The fitness.
+	 * @return The index (the column length, if there is none).
 	 */
-	private class EvaluationThread extends Thread
+	private int upperBound(double[] fitnesses, double fitness)
 	{
-		private ArrayList<Genome> genomes = new ArrayList<Genome>();
-		
-
-
-		/**
-		 * Add a Genome in the list for evaluation.
-		 * @param genome The Genome to evaluate.
-		 */
-		public void addGenome(Genome genome)
+		int low = 0;
+		int high = fitnesses.length;
+		while (low < high)
 		{
-			genomes.add(genome);
+			int middle = (low + high) >>> 1;
+			if (objective.compareFitness(fitnesses[middle], fitness) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
 		}
-		
+		return low;
+	}
+	
+
+
+	/**
+	 * Throws a BreederException if the step in progress has been aborted.
+	 * @throws BreederException If the step has been aborted.
+	 */
+	private void checkAborting() throws BreederException
+	{
+		if (aborting)
+			throw new BreederException("Generation " + generation + " was aborted");
+	}
+	
+
+
+	/**
+	 * Creates a new Population.
+	 * @return The new Population.
+	 * @throws BreederException If something goes wrong
+	 */
+	private Population createNewPopulation() throws BreederException
+	{
+		Population babyPopulation = (storedArenas != null ? storedArenas[0] : new Population(objective));
+		
+		if (!parameters.contains(Parameters.GENOME_LENGTH))
+			throw new BreederException("The genome length has not been set");
+		int populationSize = parameters.getInt(Parameters.POPULATION_SIZE);
+		int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+		Initializer initializer = (Initializer)parameters.getOperator(Parameters.INITIALIZER);
+		try
+		{
+			babyPopulation.initialise(populationSize, genomeLength, initializer, randomSource);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new BreederException(e.getMessage(), e);
+		}
+		
+		return babyPopulation;
+	}
+	
+
+
+	/**
+	 * Breeds the next generation Population.
+	 * @return The next generation Population.
+	 * @throws BreederException If something goes wrong
+	 */
+	private Population breedNewPopulation() throws BreederException
+	{
+		Population babyPopulation = newBabyPopulation();
+		
+		// Breed non-elite population
+		int populationSize = babyPopulation.getSize();
+		int eliteSize = Math.min(parameters.getInt(Parameters.ELITE_SIZE), populationSize);
+		BreedingTask breedingTask = new BreedingTask(babyPopulation, eliteSize);
+		int nChildren = populationSize - eliteSize;
+		if (parallelBreeding)
+			dispatcher.dispatch(nChildren, Math.max(BREEDING_GRAIN, nChildren / (dispatcher.getParallelism() * 4)), breedingTask);
+		else
+			breedingTask.run(0, nChildren);
+		
+		return babyPopulation;
+	}
+	
+
+
+	/**
+	 * Breeds the next generation Population, evaluating its batches as they are bred, and sorts it.
+	 * @return The next generation Population.
+	 * @throws BreederException If something goes wrong
+	 */
+	private Population breedAndEvaluatePopulation() throws BreederException
+	{
+		Population babyPopulation = newBabyPopulation();
+		
+		// Run one pipeline lane per thread; each lane breeds and evaluates batches until the generation is done
+		int populationSize = babyPopulation.getSize();
+		int eliteSize = Math.min(parameters.getInt(Parameters.ELITE_SIZE), populationSize);
+		int batchSize = (batchEvaluator.getBatchSize() > 0 ? batchEvaluator.getBatchSize() : Math.min(BREEDING_GRAIN, getBatchSize(populationSize)));
+		PipelineTask pipelineTask = new PipelineTask(babyPopulation, eliteSize, batchSize);
+		dispatcher.dispatch(dispatcher.getParallelism(), 1, pipelineTask);
+		skippedEvaluations = pipelineTask.getSkipped();
+		
+		sortPopulation(babyPopulation);
+		
+		return babyPopulation;
+	}
+	
+
+
+	/**
+	 * Creates the next generation Population (or recycles the spare arena), and copies the elite into it.
+	 * @return The next generation Population, with only its elite slots filled in.
+	 * @throws BreederException If something goes wrong
+	 */
+	private Population newBabyPopulation() throws BreederException
+	{
+		// Create next population (or recycle the spare arena)
+		int populationSize = parameters.getInt(Parameters.POPULATION_SIZE);
+		Population babyPopulation = (arenas ? recycleArena(populationSize) : new Population(objective, populationSize));
+		
+		// Copy elite population
+		int eliteSize = Math.min(parameters.getInt(Parameters.ELITE_SIZE), populationSize);
+		for (int babyIndex = 0; babyIndex < eliteSize; babyIndex++)
+		{
+			if (babyPopulation.getStore() != null)
+				babyPopulation.setGenome(babyIndex, lastPopulation.getGenome(babyIndex));
+			else if (arenas)
+				babyPopulation.getGenome(babyIndex).copyFrom(lastPopulation.getGenome(babyIndex));
+			else
+				babyPopulation.setGenome(babyIndex, (Genome)lastPopulation.getGenome(babyIndex).clone());
+		}
+		
+		return babyPopulation;
+	}
+	
+
+
+	/**
+	 * Returns the spare arena, ready to be overwritten, allocating a new one if there is none of the right shape.
+	 * @param populationSize The population size.
+	 * @return The arena.
+	 */
+	private Population recycleArena(int populationSize) throws BreederException
+	{
+		int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+		if (storedArenas != null)
+		{
+			Population arena = (storedArenas[0] != lastPopulation ? storedArenas[0] : storedArenas[1]);
+			GenomeStore store = arena.getStore();
+			if (store.getSize() != populationSize || store.getGenomeLength() != genomeLength)
+				throw new BreederException("The arena store holds " + store.getSize() + " genomes of " + store.getGenomeLength() + " bits, not " + populationSize + " of " + genomeLength);
+			arena.recycle();
+			return arena;
+		}
+		
+		Population arena = spareArena;
+		spareArena = null;
+		if (arena == null || arena.getSize() != populationSize || arena.getGenome(0).length() != genomeLength)
+		{
+			arena = new Population(objective);
+			for (int i = 0; i < populationSize; i++)
+				arena.addGenome(new Genome(genomeLength));
+		}
+		arena.recycle();
+		
+		return arena;
+	}
+	
+
+
+	/**
+	 * This Task breeds the children for a range of (non-elite) slots in a Population.
+	 * The parents are drawn from a selection plan that is prepared once per generation, and shared by all threads.
+	 * Parents kept in stores are drawn by index, from a plan over the fitness column; they and stored children are copied through per-thread Genomes.
+	 */
+	private class BreedingTask implements Dispatcher.Task
+	{
+		private Population parentPopulation;
+		private Population babyPopulation;
+		private GenomeStore parentStore;
+		private GenomeStore babyStore;
+		private int genomeLength;
+		private int firstSlot;
+		private int babyGeneration;
+		private SelectionPlan selectionPlan;
+		private Crossoverer crossoverer;
+		private Mutator mutator;
+		private double crossoverRate;
+		private double mutationRate;
+		
+
+
+		/**
+		 * Constructs a new BreedingTask.
+		 * @param _babyPopulation The Population to fill (overwriting its Genomes, if it is an arena).
+		 * @param _firstSlot The slot of the first child.
+		 */
+		public BreedingTask(Population _babyPopulation, int _firstSlot)
+		{
+			parentPopulation = lastPopulation;
+			babyPopulation = _babyPopulation;
+			parentStore = parentPopulation.getStore();
+			babyStore = babyPopulation.getStore();
+			genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+			firstSlot = _firstSlot;
+			babyGeneration = generation;
+			Selector selector = (Selector)parameters.getOperator(Parameters.SELECTOR);
+			selectionPlan = (parentStore != null ? selector.prepare(objective, parentPopulation.getFitnesses()) : selector.prepare(objective, parentPopulation.getSelectables()));
+			crossoverer = (Crossoverer)parameters.getOperator(Parameters.CROSSOVERER);
+			mutator = (Mutator)parameters.getOperator(Parameters.MUTATOR);
+			crossoverRate = parameters.getDouble(Parameters.CROSSOVER_RATE);
+			mutationRate = parameters.getDouble(Parameters.MUTATION_RATE);
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Dispatcher.Task#run(int, int)
+		 */
+		public void run(int from, int to)
+		{
+			Genome[] cursor = (parentStore != null || babyStore != null ? getCursors(3, genomeLength) : null);
+			for (int i = from; i < to; i++)
+			{
+				RandomGenerator random = randomSource.stream(RandomSource.BREEDING, babyGeneration, firstSlot + i);
+				
+				// Select parents (as a pair, so that a Selector picking several at once does not pick the same one twice)
+				Genome parent1, parent2;
+				if (parentStore != null)
+				{
+					int[] parents = selectionPlan.selectIndices(2, random);
+					parent1 = parent(parents[0], cursor, 0);
+					parent2 = parent(parents[1], cursor, 1);
+				}
+				else
+				{
+					Selectable[] parents = selectionPlan.select(2, random);
+					parent1 = (Genome)parents[0];
+					parent2 = (Genome)parents[1];
+				}
+				
+				// Perform crossover
+				Genome child;
+				if (babyStore != null || arenas)
+				{
+					child = (babyStore != null ? cursor[2] : babyPopulation.getGenome(firstSlot + i));
+					if (random.nextDouble() < crossoverRate)
+						crossoverer.crossover(parent1, parent2, child, random);
+					else
+						child.copyFrom(parent1);
+				}
+				else if (random.nextDouble() < crossoverRate)
+					child = crossoverer.crossover(parent1, parent2, random);
+				else
+					child = (Genome)parent1.clone();
+				
+				// Perform mutation
+				mutator.mutate(child, mutationRate, random);
+				
+				if (babyStore != null)
+					babyStore.write(babyPopulation.getRow(firstSlot + i), child);
+				else if (!arenas)
+					babyPopulation.setGenome(firstSlot + i, child);
+			}
+		}
+		
+
+
+		/**
+		 * Copies a stored parent into a per-thread Genome.
+		 * @param index The index of the selected parent.
+		 * @param cursor The per-thread Genomes to copy stored parents into.
+		 * @param k The index of the per-thread Genome to use.
+		 * @return The Genome of the parent.
+		 */
+		private Genome parent(int index, Genome[] cursor, int k)
+		{
+			parentStore.read(parentPopulation.getRow(index), cursor[k]);
+			return cursor[k];
+		}
+	}
+	
+
+
+	/**
+	 * This Task runs the lanes of a pipelined generation.
+	 * The slots of the Population are split into batches. A lane breeds the next batch if it may (breeding is kept to one lane at a time, unless breeding is parallel), and passes it on through a bounded queue; otherwise it evaluates the batches that others have bred.
+	 * If the queue is full, the lane evaluates its own batch, so no lane ever waits on another to make room.
+	 */
+	private class PipelineTask implements Dispatcher.Task
+	{
+		private Population babyPopulation;
+		private GenomeStore babyStore;
+		private BreedingTask breedingTask;
+		private int eliteSize;
+		private int batchSize;
+		private int nBatches;
+		private ArrayBlockingQueue<Integer> bred;
+		private AtomicInteger nextBatch = new AtomicInteger(0);
+		private AtomicInteger remainingBatches;
+		private AtomicInteger skipped = new AtomicInteger(0);
+		private AtomicBoolean breeding = new AtomicBoolean(false);
+		private volatile boolean failed = false;
+		
+
+
+		/**
+		 * Constructs a new PipelineTask.
+		 * @param _babyPopulation The Population to fill, with its elite already copied in.
+		 * @param _eliteSize The number of elite slots (which are evaluated, but not bred).
+		 * @param _batchSize The number of slots per batch.
+		 */
+		public PipelineTask(Population _babyPopulation, int _eliteSize, int _batchSize)
+		{
+			babyPopulation = _babyPopulation;
+			babyStore = babyPopulation.getStore();
+			breedingTask = new BreedingTask(babyPopulation, _eliteSize);
+			eliteSize = _eliteSize;
+			batchSize = _batchSize;
+			nBatches = (babyPopulation.getSize() + batchSize - 1) / batchSize;
+			bred = new ArrayBlockingQueue<Integer>(Math.max(1, dispatcher.getParallelism() * PIPELINE_DEPTH));
+			remainingBatches = new AtomicInteger(nBatches);
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Dispatcher.Task#run(int, int)
+		 */
+		public void run(int from, int to)
+		{
+			// A lane only returns once every batch is evaluated, so any further lanes in this range have nothing left to do
+			try
+			{
+				while (remainingBatches.get() > 0 && !failed && !aborting)
+				{
+					// Breed the next batch, if no other lane is breeding
+					if (nextBatch.get() < nBatches && (parallelBreeding || breeding.compareAndSet(false, true)))
+					{
+						int batch = nextBatch.getAndIncrement();
+						try
+						{
+							if (batch < nBatches)
+								breed(batch);
+						}
+						finally
+						{
+							if (!parallelBreeding)
+								breeding.set(false);
+						}
+						if (batch < nBatches && !bred.offer(batch))
+							evaluate(batch);
+						continue;
+					}
+					
+					// Otherwise, evaluate a batch that has been bred
+					Integer batch = bred.poll(PIPELINE_WAIT, TimeUnit.MICROSECONDS);
+					if (batch != null)
+						evaluate(batch);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				failed = true;
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for offspring", e);
+			}
+			catch (RuntimeException | Error e)
+			{
+				failed = true;
+				throw e;
+			}
+		}
+		
+
+
+		/**
+		 * Returns the number of Genomes that were not evaluated, because they were unchanged.
+		 * @return The number of skipped evaluations.
+		 */
+		public int getSkipped()
+		{
+			return skipped.get();
+		}
+		
+
+
+		/**
+		 * Breeds the non-elite slots of a batch.
+		 * @param batch The batch.
+		 */
+		private void breed(int batch)
+		{
+			int from = Math.max(eliteSize, batch * batchSize);
+			int to = Math.min(babyPopulation.getSize(), (batch + 1) * batchSize);
+			if (from < to)
+				breedingTask.run(from - eliteSize, to - eliteSize);
+		}
+		
+
+
+		/**
+		 * Evaluates the slots of a batch that need evaluating.
+		 * @param batch The batch.
+		 */
+		private void evaluate(int batch)
+		{
+			int from = batch * batchSize;
+			int to = Math.min(babyPopulation.getSize(), from + batchSize);
+			if (babyStore != null)
+			{
+				Genome[] cursor = getCursors(to - from, babyStore.getGenomeLength());
+				int[] rows = new int[to - from];
+				int n = 0;
+				for (int i = from; i < to; i++)
+				{
+					int row = babyPopulation.getRow(i);
+					if (!skipUnchanged || !babyStore.isEvaluated(row))
+					{
+						babyStore.read(row, cursor[n]);
+						rows[n++] = row;
+					}
+				}
+				skipped.addAndGet(to - from - n);
+				
+				if (n > 0)
+					evaluateBatch(Arrays.asList(cursor).subList(0, n));
+				
+				for (int j = 0; j < n; j++)
+					if (cursor[j].isEvaluated())
+						babyStore.setFitness(rows[j], cursor[j].getFitness());
+			}
+			else
+			{
+				ArrayList<Genome> pending = new ArrayList<Genome>(to - from);
+				for (int i = from; i < to; i++)
+				{
+					Genome genome = babyPopulation.getGenome(i);
+					if (!skipUnchanged || !genome.isEvaluated())
+						pending.add(genome);
+				}
+				skipped.addAndGet(to - from - pending.size());
+				
+				if (!pending.isEmpty())
+					evaluateBatch(pending);
+			}
+			remainingBatches.decrementAndGet();
+		}
+	}
+	
+
+
+	/**
+	 * Evaluates the specified Population.
+	 * @param population The Population to evaluate.
+	 * @throws BreederException If the evaluation fails.
+	 */
+	private void evaluatePopulation(Population population) throws BreederException
+	{
+		if (asyncEvaluator != null)
+			evaluateAsync(population);
+		else if (population.getStore() != null)
+			evaluateStore(population.getStore());
+		else
+		{
+			// Collect the Genomes that actually need evaluating
+			List<Genome> pending = population.getGenomes();
+			if (skipUnchanged)
+			{
+				pending = new ArrayList<Genome>(population.getSize());
+				for (Genome genome : population.getGenomes())
+					if (!genome.isEvaluated())
+						pending.add(genome);
+			}
+			skippedEvaluations = population.getSize() - pending.size();
+			
+			dispatcher.dispatch(pending.size(), getBatchSize(pending.size()), new EvaluationTask(pending));
+		}
+		
+		sortPopulation(population);
+	}
+	
+
+
+	/**
+	 * Sorts the specified, evaluated Population.
+	 * @param population The Population to sort.
+	 */
+	private void sortPopulation(Population population)
+	{
+		// Sort the newly evaluated population (selector may need this, also sorting makes it easier to access best & worst individuals).
+		// If the selector does not need a sorted population, order just the elite and the worst individual.
+		Selector selector = (Selector)parameters.getOperator(Parameters.SELECTOR);
+		if (selector.requiresSortedSelectables())
+			population.sort();
+		else
+			population.sortPartial(parameters.getInt(Parameters.ELITE_SIZE));
+	}
+	
+
+
+	/**
+	 * Evaluates the genomes kept in the specified store, in row order.
+	 * @param store The store.
+	 * @throws BreederException If the evaluation fails.
+	 */
+	private void evaluateStore(GenomeStore store) throws BreederException
+	{
+		// Collect the rows that actually need evaluating
+		int[] pending = new int[store.getSize()];
+		int nPending = 0;
+		for (int row = 0; row < store.getSize(); row++)
+			if (!skipUnchanged || !store.isEvaluated(row))
+				pending[nPending++] = row;
+		skippedEvaluations = store.getSize() - nPending;
+		
+		dispatcher.dispatch(nPending, getBatchSize(nPending), new StoreEvaluationTask(store, pending, nPending));
+	}
+	
+
+
+	/**
+	 * Evaluates the specified Population through the asynchronous evaluator, keeping a bounded number of requests in flight.
+	 * @param population The Population to evaluate.
+	 * @throws BreederException If a request fails under {@link #FAILURE_ABORT}, or the stepping thread is interrupted.
+	 */
+	private void evaluateAsync(Population population) throws BreederException
+	{
+		// Collect the slots that actually need evaluating
+		GenomeStore store = population.getStore();
+		int[] pending = new int[population.getSize()];
+		int nPending = 0;
+		for (int i = 0; i < population.getSize(); i++)
+		{
+			boolean evaluated = (store != null ? store.isEvaluated(population.getRow(i)) : population.getGenome(i).isEvaluated());
+			if (!skipUnchanged || !evaluated)
+				pending[nPending++] = i;
+		}
+		skippedEvaluations = population.getSize() - nPending;
+		
+		AsyncEvaluation evaluation = new AsyncEvaluation(population, pending, nPending);
+		asyncEvaluation = evaluation;
+		try
+		{
+			evaluation.run();
+		}
+		finally
+		{
+			asyncEvaluation = null;
+		}
+	}
+	
+
+
+	/**
+	 * This class issues the requests of one generation to the asynchronous evaluator, and applies their results as they resolve.
+	 * A semaphore bounds the requests in flight; a failed request is issued again while it has retries left, and then falls to the failure policy.
+	 */
+	private class AsyncEvaluation
+	{
+		private Population population;
+		private GenomeStore store;
+		private int[] slots;
+		private int nSlots;
+		private Semaphore permits;
+		private AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private Set<CompletableFuture<?>> outstanding = ConcurrentHashMap.newKeySet();
+		private volatile boolean cancelled = false;
+		
+
+
+		/**
+		 * Constructs a new AsyncEvaluation.
+		 * @param _population The Population to evaluate.
+		 * @param _slots The slots to evaluate.
+		 * @param _nSlots The number of slots to evaluate.
+		 */
+		public AsyncEvaluation(Population _population, int[] _slots, int _nSlots)
+		{
+			population = _population;
+			store = population.getStore();
+			slots = _slots;
+			nSlots = _nSlots;
+			permits = new Semaphore(asyncInFlight);
+		}
+		
+
+
+		/**
+		 * Issues every request, and waits until all of them have resolved.
+		 * @throws BreederException If a request fails under {@link #FAILURE_ABORT}, or the stepping thread is interrupted.
+		 */
+		public void run() throws BreederException
+		{
+			int batchSize = Math.max(1, asyncEvaluator.getBatchSize());
+			try
+			{
+				for (int from = 0; from < nSlots && !cancelled; from += batchSize)
+				{
+					permits.acquire();
+					issue(from, Math.min(nSlots, from + batchSize), batchSize);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				failure.compareAndSet(null, e);
+				cancel();
+				Thread.currentThread().interrupt();
+			}
+			
+			// Wait until every request has resolved (cancelling resolves them at once)
+			permits.acquireUninterruptibly(asyncInFlight);
+			
+			Throwable cause = failure.get();
+			if (cause != null)
+				throw new BreederException("Asynchronous evaluation failed: " + cause, cause);
+			if (cancelled)
+				throw new BreederException("Asynchronous evaluation cancelled");
+		}
+		
 
 
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see java.lang.Thread#run()
+		/**
+		 * Cancels the outstanding requests, and issues no more.
 		 */
-		public void run()
+		public void cancel()
 		{
-			for (int i = 0; i < genomes.size(); i++)
-				evaluator.evaluateGenome(genomes.get(i));
+			cancelled = true;
+			for (CompletableFuture<?> future : outstanding)
+				future.cancel(true);
 		}
+		
+
+
+		/**
+		 * Issues the request for a range of slots, after consulting the cache. Holds one permit until the request resolves.
+		 * @param from The index of the first slot in the pending slots.
+		 * @param to The index after the last.
+		 * @param batchSize The evaluator's batch size.
+		 */
+		private void issue(int from, int to, int batchSize)
+		{
+			ArrayList<Genome> genomes = new ArrayList<Genome>(to - from);
+			int[] requestSlots = new int[to - from];
+			for (int i = from; i < to; i++)
+			{
+				Genome genome = population.getGenome(slots[i]);
+				Double fitness = (cache != null ? cache.get(genome) : null);
+				if (fitness != null)
+					apply(genome, slots[i], fitness, false);
+				else
+				{
+					requestSlots[genomes.size()] = slots[i];
+					genomes.add(genome);
+				}
+			}
+			
+			if (genomes.isEmpty())
+				permits.release();
+			else
+				submit(genomes, requestSlots, batchSize, 0);
+		}
+		
+
+
+		/**
+		 * Submits a request to the evaluator.
+		 * @param genomes The Genomes of the request.
+		 * @param requestSlots The slots of the Genomes.
+		 * @param batchSize The evaluator's batch size.
+		 * @param attempt The number of earlier attempts.
+		 */
+		private void submit(List<Genome> genomes, int[] requestSlots, int batchSize, int attempt)
+		{
+			CompletableFuture<double[]> request;
+			try
+			{
+				if (batchSize == 1)
+					request = asyncEvaluator.evaluateGenomeAsync(genomes.get(0)).toCompletableFuture().thenApply(fitness -> new double[] {fitness});
+				else
+					request = asyncEvaluator.evaluateGenomesAsync(genomes).toCompletableFuture();
+			}
+			catch (RuntimeException e)
+			{
+				request = CompletableFuture.failedFuture(e);
+			}
+			
+			// Watch a copy, so that timing out or cancelling does not complete the evaluator's own stage
+			CompletableFuture<double[]> watched = request.copy();
+			if (asyncTimeoutNanos > 0)
+				watched.orTimeout(asyncTimeoutNanos, TimeUnit.NANOSECONDS);
+			outstanding.add(watched);
+			if (cancelled)
+				watched.cancel(true);
+			watched.whenComplete((fitnesses, e) ->
+			{
+				outstanding.remove(watched);
+				resolve(genomes, requestSlots, batchSize, attempt, fitnesses, e);
+			});
+		}
+		
+
+
+		/**
+		 * Applies the outcome of a request, issuing it again or applying the failure policy if it failed. Releases the request's permit, unless it is issued again.
+		 * @param genomes The Genomes of the request.
+		 * @param requestSlots The slots of the Genomes.
+		 * @param batchSize The evaluator's batch size.
+		 * @param attempt The number of earlier attempts.
+		 * @param fitnesses The fitnesses, if the request succeeded.
+		 * @param e The failure, if the request failed.
+		 */
+		private void resolve(List<Genome> genomes, int[] requestSlots, int batchSize, int attempt, double[] fitnesses, Throwable e)
+		{
+			if (e == null && (fitnesses == null || fitnesses.length != genomes.size()))
+				e = new IllegalStateException("The evaluator returned " + (fitnesses == null ? 0 : fitnesses.length) + " fitnesses for " + genomes.size() + " genomes");
+			if (e instanceof CompletionException && e.getCause() != null)
+				e = e.getCause();
+			
+			if (e == null)
+			{
+				for (int i = 0; i < genomes.size(); i++)
+					apply(genomes.get(i), requestSlots[i], fitnesses[i], true);
+			}
+			else if (!cancelled && attempt < asyncRetries)
+			{
+				submit(genomes, requestSlots, batchSize, attempt + 1);
+				return;
+			}
+			else if (!cancelled && asyncFailurePolicy == FAILURE_PENALISE)
+			{
+				for (int i = 0; i < genomes.size(); i++)
+					apply(genomes.get(i), requestSlots[i], asyncPenaltyFitness, false);
+			}
+			else if (!cancelled)
+			{
+				failure.compareAndSet(null, e);
+				cancel();
+			}
+			permits.release();
+		}
+		
+
+
+		/**
+		 * Sets the fitness of a Genome, and of its store row.
+		 * @param genome The Genome.
+		 * @param slot The slot of the Genome.
+		 * @param fitness The fitness.
+		 * @param cached True, to put the fitness in the cache.
+		 */
+		private void apply(Genome genome, int slot, double fitness, boolean cached)
+		{
+			genome.setFitness(fitness);
+			if (store != null)
+				store.setFitness(population.getRow(slot), fitness);
+			if (cached && cache != null)
+				cache.put(genome, fitness);
+		}
+	}
+	
+
+
+	/**
+	 * Returns this thread's Genomes for copying store rows into, at least n of them, of the specified length.
+	 * @param n The number of Genomes.
+	 * @param genomeLength The genome length in bits.
+	 * @return The Genomes.
+	 */
+	private Genome[] getCursors(int n, int genomeLength)
+	{
+		Genome[] genomes = cursors.get();
+		if (genomes == null || genomes.length < n || genomes[0].length() != genomeLength)
+		{
+			genomes = new Genome[Math.max(n, (genomes == null ? 0 : genomes.length))];
+			for (int i = 0; i < genomes.length; i++)
+				genomes[i] = new Genome(genomeLength);
+			cursors.set(genomes);
+		}
+		return genomes;
+	}
+	
+
+
+	/**
+	 * Returns the number of Genomes to pass to the evaluator per call.
+	 * @param size The number of Genomes to evaluate.
+	 * @return The batch size.
+	 */
+	private int getBatchSize(int size)
+	{
+		int batchSize = batchEvaluator.getBatchSize();
+		if (batchSize > 0)
+			return batchSize;
+		
+		// No preference: a few batches per worker, so that stragglers can still be balanced
+		return Math.max(1, size / (dispatcher.getParallelism() * 4));
+	}
+	
+
+
+	/**
+	 * This Task evaluates a range of Genomes in a list, in batches.
+	 */
+	private class EvaluationTask implements Dispatcher.Task
+	{
+		private List<Genome> genomes;
+		
+
+
+		/**
+		 * Constructs a new EvaluationTask.
+		 * @param _genomes The Genomes to evaluate.
+		 */
+		public EvaluationTask(List<Genome> _genomes)
+		{
+			genomes = _genomes;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Dispatcher.Task#run(int, int)
+		 */
+		public void run(int from, int to)
+		{
+			int batchSize = getBatchSize(genomes.size());
+			for (int i = from; i < to; i += batchSize)
+				evaluateBatch(genomes.subList(i, Math.min(to, i + batchSize)));
+		}
+	}
+	
+
+
+	/**
+	 * This Task evaluates a range of rows in a store, copying each batch through per-thread Genomes.
+	 */
+	private class StoreEvaluationTask implements Dispatcher.Task
+	{
+		private GenomeStore store;
+		private int[] rows;
+		private int nRows;
+		
+
+
+		/**
+		 * Constructs a new StoreEvaluationTask.
+		 * @param _store The store.
+		 * @param _rows The rows to evaluate.
+		 * @param _nRows The number of rows to evaluate.
+		 */
+		public StoreEvaluationTask(GenomeStore _store, int[] _rows, int _nRows)
+		{
+			store = _store;
+			rows = _rows;
+			nRows = _nRows;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Dispatcher.Task#run(int, int)
+		 */
+		public void run(int from, int to)
+		{
+			// Honour the evaluator's batch size, but otherwise keep the per-thread Genomes few
+			int batchSize = (batchEvaluator.getBatchSize() > 0 ? batchEvaluator.getBatchSize() : Math.min(STORE_BATCH, getBatchSize(nRows)));
+			Genome[] cursor = getCursors(batchSize, store.getGenomeLength());
+			List<Genome> cursorList = Arrays.asList(cursor);
+			for (int i = from; i < to; i += batchSize)
+			{
+				int n = Math.min(to - i, batchSize);
+				for (int j = 0; j < n; j++)
+					store.read(rows[i + j], cursor[j]);
+				
+				evaluateBatch(cursorList.subList(0, n));
+				
+				for (int j = 0; j < n; j++)
+					if (cursor[j].isEvaluated())
+						store.setFitness(rows[i + j], cursor[j].getFitness());
+			}
+		}
+	}
+	
+
+
+	/**
+	 * Evaluates a batch of Genomes, consulting the cache first if there is one.
+	 * @param batch The Genomes to evaluate.
+	 */
+	private void evaluateBatch(List<Genome> batch)
+	{
+		if (cache == null)
+		{
+			batchEvaluator.evaluateGenomes(batch);
+			return;
+		}
+		
+		// Only evaluate the cache misses, then cache their fitness
+		ArrayList<Genome> misses = new ArrayList<Genome>(batch.size());
+		for (Genome genome : batch)
+		{
+			Double fitness = cache.get(genome);
+			if (fitness != null)
+				genome.setFitness(fitness);
+			else
+				misses.add(genome);
+		}
+		
+		if (misses.isEmpty())
+			return;
+		batchEvaluator.evaluateGenomes(misses);
+		for (Genome genome : misses)
+			if (genome.isEvaluated())
+				cache.put(genome, genome.getFitness());
 	}
 }
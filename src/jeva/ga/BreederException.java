@@ -9,4 +9,9 @@ public class BreederException extends Exception
 	{
 		super(string);
 	}
+	
+	public BreederException(String string, Throwable cause)
+	{
+		super(string, cause);
+	}
 }
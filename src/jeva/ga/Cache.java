@@ -0,0 +1,88 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+/**
+ * Identifies a fitness cache, keyed by genome content
+ * <p>
+ * Implementations must be safe for concurrent use by the evaluation threads. The Breeder consults the cache before invoking the evaluator, so fitness values are assumed to depend only on the genome bits.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface Cache
+{
+	/**
+	 * Looks up the fitness of a genome with the same bits as the specified genome
+	 * @param genome The genome to look up
+	 * @return The cached fitness, or null if not cached
+	 */
+	public Double get(Genome genome);
+	
+
+
+	/**
+	 * Caches the fitness of the specified genome (the bits are copied)
+	 * @param genome The genome
+	 * @param fitness The fitness of the genome
+	 */
+	public void put(Genome genome, double fitness);
+	
+
+
+	/**
+	 * Returns the number of entries in the cache
+	 * @return The number of entries in the cache
+	 */
+	public int size();
+	
+
+
+	/**
+	 * Returns the number of lookups that found an entry
+	 * @return The number of hits
+	 */
+	public long getHits();
+	
+
+
+	/**
+	 * Returns the number of lookups that found no entry
+	 * @return The number of misses
+	 */
+	public long getMisses();
+	
+
+
+	/**
+	 * Returns the number of entries evicted (or refused admission) to stay within capacity
+	 * @return The number of evictions
+	 */
+	public long getEvictions();
+	
+
+
+	/**
+	 * Removes all entries (the counters are kept)
+	 */
+	public void clear();
+}
@@ -0,0 +1,512 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+
+
+/**
+ * A snapshot of the state of a Breeder run, in a compact, versioned binary form that can be written to and read from a file
+ * <p>
+ * The image holds the seed of the random number streams (which, being keyed by generation and slot, is all the random state there is), the counters, the fitness history, and the last and best populations. Populations are stored as a struct of arrays: the packed genome words, then the fitness column, then the evaluated flags. The operators and evaluator are not stored: a run is resumed by a Breeder constructed with the same ones (see {@link Breeder#restore(Checkpoint)}).
+ * <p>
+ * All values are little-endian. The layout (version 1) is: magic, version, seed, generation, stable generations, skipped evaluations, history length and entries (best, mean and worst fitness), the last population, and a flag telling whether the best population is the last one, absent, or follows.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class Checkpoint
+{
+	public static final int VERSION = 1;
+	
+	private static final long MAGIC = 0x504B484341764A45L; // "JEvACHKP"
+	private static final byte BEST_NONE = 0;
+	private static final byte BEST_LAST = 1;
+	private static final byte BEST_FOLLOWS = 2;
+	
+	private final ByteBuffer image;
+	private final long seed;
+	private final int generation;
+	private final int stableGenerations;
+	private final int skippedEvaluations;
+	private final double[][] history;
+	private final int lastOffset;
+	private final byte bestKind;
+	private final int bestOffset;
+	
+
+
+	/**
+	 * Constructs a new Checkpoint object from an image, after checking it.
+	 * @param _image The image (from its position to its limit).
+	 * @throws IllegalArgumentException If the image is not a valid checkpoint.
+	 */
+	private Checkpoint(ByteBuffer _image)
+	{
+		image = _image.slice().order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer in = image.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		try
+		{
+			if (in.getLong() != MAGIC)
+				throw new IllegalArgumentException("Not a checkpoint");
+			int version = in.getInt();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported checkpoint version " + version);
+			seed = in.getLong();
+			generation = in.getInt();
+			stableGenerations = in.getInt();
+			skippedEvaluations = in.getInt();
+			int historySize = in.getInt();
+			history = new double[3][historySize];
+			for (int i = 0; i < historySize; i++)
+				for (int h = 0; h < 3; h++)
+					history[h][i] = in.getDouble();
+			
+			lastOffset = in.position();
+			skipPopulation(in);
+			bestKind = in.get();
+			bestOffset = in.position();
+			if (bestKind == BEST_FOLLOWS)
+				skipPopulation(in);
+			else if (bestKind != BEST_NONE && bestKind != BEST_LAST)
+				throw new IllegalArgumentException("Invalid best population flag " + bestKind);
+		}
+		catch (RuntimeException e)
+		{
+			if (e instanceof IllegalArgumentException)
+				throw e;
+			throw new IllegalArgumentException("Truncated or corrupt checkpoint", e);
+		}
+	}
+	
+
+
+	/**
+	 * Captures the state of a run into a new Checkpoint.
+	 * @param seed The seed of the random number streams.
+	 * @param generation The current generation.
+	 * @param stableGenerations The number of stable generations.
+	 * @param skippedEvaluations The number of evaluations skipped in the last generation.
+	 * @param historyBest The history of best fitnesses.
+	 * @param historyMean The history of mean fitnesses.
+	 * @param historyWorst The history of worst fitnesses.
+	 * @param last The last population, or null.
+	 * @param best The best population, or null.
+	 * @return The checkpoint.
+	 */
+	static Checkpoint capture(long seed, int generation, int stableGenerations, int skippedEvaluations, List<Double> historyBest, List<Double> historyMean, List<Double> historyWorst, Population last, Population best)
+	{
+		long bytes = 8 + 4 + 8 + 4 + 4 + 4 + 4 + historyBest.size() * 3L * Double.BYTES + populationBytes(last) + 1 + (best != null && best != last ? populationBytes(best) : 0);
+		if (bytes > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The run is too large to checkpoint (" + bytes + " bytes)");
+		
+		ByteBuffer out = ByteBuffer.allocateDirect((int)bytes).order(ByteOrder.LITTLE_ENDIAN);
+		out.putLong(MAGIC);
+		out.putInt(VERSION);
+		out.putLong(seed);
+		out.putInt(generation);
+		out.putInt(stableGenerations);
+		out.putInt(skippedEvaluations);
+		out.putInt(historyBest.size());
+		for (int i = 0; i < historyBest.size(); i++)
+		{
+			out.putDouble(historyBest.get(i));
+			out.putDouble(historyMean.get(i));
+			out.putDouble(historyWorst.get(i));
+		}
+		putPopulation(out, last);
+		if (best == null)
+			out.put(BEST_NONE);
+		else if (best == last)
+			out.put(BEST_LAST);
+		else
+		{
+			out.put(BEST_FOLLOWS);
+			putPopulation(out, best);
+		}
+		
+		out.flip();
+		return new Checkpoint(out);
+	}
+	
+
+
+	/**
+	 * Reads a Checkpoint from the specified file.
+	 * @param file The file.
+	 * @return The checkpoint.
+	 * @throws IOException If the file cannot be read, or is not a valid checkpoint.
+	 */
+	public static Checkpoint read(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Checkpoint too large: " + file);
+			ByteBuffer in = ByteBuffer.allocateDirect((int)size);
+			while (in.hasRemaining())
+				if (channel.read(in) < 0)
+					throw new IOException("Unexpected end of checkpoint: " + file);
+			in.flip();
+			return new Checkpoint(in);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Invalid checkpoint " + file + ": " + e.getMessage(), e);
+		}
+	}
+	
+
+
+	/**
+	 * Writes this Checkpoint to the specified file. The image is written to a temporary file first, which then replaces the file, so that an interrupted write never leaves a partial checkpoint behind.
+	 * @param file The file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void write(Path file) throws IOException
+	{
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer out = image.duplicate();
+			while (out.hasRemaining())
+				channel.write(out);
+			channel.force(true);
+		}
+		
+		try
+		{
+			Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+
+
+	/**
+	 * Returns the size of this Checkpoint in bytes.
+	 * @return The size in bytes.
+	 */
+	public int getSize()
+	{
+		return image.remaining();
+	}
+	
+
+
+	/**
+	 * Returns the seed of the random number streams.
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+
+
+	/**
+	 * Returns the generation the run had reached.
+	 * @return The generation.
+	 */
+	public int getGeneration()
+	{
+		return generation;
+	}
+	
+
+
+	/**
+	 * Returns the number of stable generations.
+	 * @return The number of stable generations.
+	 */
+	public int getStableGenerations()
+	{
+		return stableGenerations;
+	}
+	
+
+
+	/**
+	 * Returns the number of evaluations skipped in the last generation.
+	 * @return The number of skipped evaluations.
+	 */
+	public int getSkippedEvaluations()
+	{
+		return skippedEvaluations;
+	}
+	
+
+
+	/**
+	 * Returns the history of best, mean or worst fitnesses.
+	 * @param which 0 for the best, 1 for the mean and 2 for the worst fitnesses.
+	 * @return The history (a copy).
+	 */
+	double[] getHistory(int which)
+	{
+		return history[which].clone();
+	}
+	
+
+
+	/**
+	 * Checks whether the checkpoint holds a last population.
+	 * @return True, if there is a last population; false otherwise.
+	 */
+	public boolean hasLastPopulation()
+	{
+		return image.getInt(lastOffset) >= 0;
+	}
+	
+
+
+	/**
+	 * Checks whether the best population is the same as the last one.
+	 * @return True, if the best population is the last one; false otherwise.
+	 */
+	public boolean isBestLast()
+	{
+		return bestKind == BEST_LAST;
+	}
+	
+
+
+	/**
+	 * Decodes the last population into a new heap Population.
+	 * @param objective The optimisation objective.
+	 * @return The last population, or null if there is none.
+	 */
+	public Population getLastPopulation(Objective objective)
+	{
+		return getPopulation(lastOffset, objective);
+	}
+	
+
+
+	/**
+	 * Decodes the best population into a new heap Population (a distinct one, even if it is the last one).
+	 * @param objective The optimisation objective.
+	 * @return The best population, or null if there is none.
+	 */
+	public Population getBestPopulation(Objective objective)
+	{
+		if (bestKind == BEST_NONE)
+			return null;
+		return getPopulation((bestKind == BEST_LAST ? lastOffset : bestOffset), objective);
+	}
+	
+
+
+	/**
+	 * Decodes the last population into an existing Population of the same size (e.g. one kept in a store), overwriting its Genomes.
+	 * @param target The Population to overwrite.
+	 */
+	public void readLastPopulation(Population target)
+	{
+		ByteBuffer in = image.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		in.position(lastOffset);
+		int size = in.getInt();
+		int genomeLength = in.getInt();
+		if (size != target.getSize())
+			throw new IllegalArgumentException("The checkpoint holds " + size + " genomes, not " + target.getSize());
+		
+		Genome genome = new Genome(genomeLength);
+		int words = in.position();
+		for (int i = 0; i < size; i++)
+			target.setGenome(i, readGenome(in, words, size, i, genome));
+	}
+	
+
+
+	/**
+	 * Returns the genome length of the last population.
+	 * @return The genome length in bits, or -1 if there is no last population.
+	 */
+	public int getGenomeLength()
+	{
+		return (hasLastPopulation() ? image.getInt(lastOffset + 4) : -1);
+	}
+	
+
+
+	/**
+	 * Decodes the population at the specified offset.
+	 * @param offset The offset.
+	 * @param objective The optimisation objective.
+	 * @return The population, or null if there is none.
+	 */
+	private Population getPopulation(int offset, Objective objective)
+	{
+		ByteBuffer in = image.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		in.position(offset);
+		int size = in.getInt();
+		if (size < 0)
+			return null;
+		int genomeLength = in.getInt();
+		
+		Population population = new Population(objective, size);
+		int words = in.position();
+		for (int i = 0; i < size; i++)
+			population.setGenome(i, readGenome(in, words, size, i, new Genome(genomeLength)));
+		return population;
+	}
+	
+
+
+	/**
+	 * Decodes one genome of a population section into the specified Genome.
+	 * @param in The image.
+	 * @param words The offset of the section's genome words.
+	 * @param size The population size.
+	 * @param i The index of the genome.
+	 * @param genome The Genome to overwrite (of the section's genome length).
+	 * @return The Genome.
+	 */
+	private static Genome readGenome(ByteBuffer in, int words, int size, int i, Genome genome)
+	{
+		int wordCount = genome.getWordCount();
+		int fitnesses = words + size * wordCount * Long.BYTES;
+		int flags = fitnesses + size * Double.BYTES;
+		
+		int offset = words + i * wordCount * Long.BYTES;
+		for (int w = 0; w < wordCount; w++, offset += Long.BYTES)
+			genome.setWord(w, in.getLong(offset));
+		if (in.get(flags + i) != 0)
+			genome.setFitness(in.getDouble(fitnesses + i * Double.BYTES));
+		else
+			genome.clearFitness();
+		return genome;
+	}
+	
+
+
+	/**
+	 * Returns the size of a population section.
+	 * @param population The population, or null.
+	 * @return The size in bytes.
+	 */
+	private static long populationBytes(Population population)
+	{
+		if (population == null)
+			return 4;
+		int wordCount = Genome.wordCount(genomeLength(population));
+		return 8 + (long)population.getSize() * ((long)wordCount * Long.BYTES + Double.BYTES + 1);
+	}
+	
+
+
+	/**
+	 * Returns the genome length of a population.
+	 * @param population The population.
+	 * @return The genome length in bits.
+	 */
+	private static int genomeLength(Population population)
+	{
+		if (population.getStore() != null)
+			return population.getStore().getGenomeLength();
+		return (population.getSize() == 0 ? 0 : population.getGenomes().get(0).length());
+	}
+	
+
+
+	/**
+	 * Writes a population section: the size and genome length, the genome words, the fitness column and the evaluated flags.
+	 * @param out The image.
+	 * @param population The population, or null.
+	 */
+	private static void putPopulation(ByteBuffer out, Population population)
+	{
+		if (population == null)
+		{
+			out.putInt(-1);
+			return;
+		}
+		
+		int size = population.getSize();
+		int genomeLength = genomeLength(population);
+		int wordCount = Genome.wordCount(genomeLength);
+		out.putInt(size);
+		out.putInt(genomeLength);
+		
+		// Fill the three columns in a single pass over the genomes
+		int words = out.position();
+		int fitnesses = words + size * wordCount * Long.BYTES;
+		int flags = fitnesses + size * Double.BYTES;
+		GenomeStore store = population.getStore();
+		List<Genome> genomes = (store != null ? null : population.getGenomes());
+		for (int i = 0, offset = words; i < size; i++)
+		{
+			if (store != null)
+			{
+				int row = population.getRow(i);
+				for (int w = 0; w < wordCount; w++, offset += Long.BYTES)
+					out.putLong(offset, store.getWord(row, w));
+				out.putDouble(fitnesses + i * Double.BYTES, store.getFitness(row));
+				out.put(flags + i, (byte)(store.isEvaluated(row) ? 1 : 0));
+			}
+			else
+			{
+				Genome genome = genomes.get(i);
+				for (int w = 0; w < wordCount; w++, offset += Long.BYTES)
+					out.putLong(offset, genome.getWord(w));
+				out.putDouble(fitnesses + i * Double.BYTES, (genome.isEvaluated() ? genome.getFitness() : Double.NaN));
+				out.put(flags + i, (byte)(genome.isEvaluated() ? 1 : 0));
+			}
+		}
+		out.position(flags + size);
+	}
+	
+
+
+	/**
+	 * Skips over a population section.
+	 * @param in The image, positioned at the start of the section.
+	 */
+	private static void skipPopulation(ByteBuffer in)
+	{
+		int size = in.getInt();
+		if (size < 0)
+			return;
+		int genomeLength = in.getInt();
+		if (genomeLength < 0)
+			throw new IllegalArgumentException("Invalid genome length " + genomeLength);
+		long bytes = (long)size * ((long)Genome.wordCount(genomeLength) * Long.BYTES + Double.BYTES + 1);
+		if (bytes > in.remaining())
+			throw new IllegalArgumentException("Truncated checkpoint");
+		in.position(in.position() + (int)bytes);
+	}
+}
@@ -21,6 +21,11 @@ package jeva.ga;
 
 
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+
+
 /**
  * Identifies a crossoverer operator
  * 
@@ -35,4 +40,52 @@ public interface Crossoverer
 	 * @return The child genome
 	 */
 	public Genome crossover(Genome parent1, Genome parent2);
+	
+
+
+	/**
+	 * Performs crossover between the specified parents, drawing random numbers from the specified stream
+	 * <p>
+	 * The default implementation ignores the stream; operators should override it so that seeded runs are reproducible.
+	 * @param parent1 The genome of the first parent
+	 * @param parent2 The genome of the second parent
+	 * @param random The random number stream
+	 * @return The child genome
+	 */
+	public default Genome crossover(Genome parent1, Genome parent2, RandomGenerator random)
+	{
+		return crossover(parent1, parent2);
+	}
+	
+
+
+	/**
+	 * Performs crossover between the specified parents, writing the result into an existing (recycled) child genome
+	 * @param parent1 The genome of the first parent
+	 * @param parent2 The genome of the second parent
+	 * @param child The genome to overwrite with the child (of the same length as the parents, and distinct from them)
+	 * @return The child genome
+	 */
+	public default Genome crossover(Genome parent1, Genome parent2, Genome child)
+	{
+		return crossover(parent1, parent2, child, ThreadLocalRandom.current());
+	}
+	
+
+
+	/**
+	 * Performs crossover between the specified parents, writing the result into an existing (recycled) child genome and drawing random numbers from the specified stream
+	 * <p>
+	 * The default implementation copies the result of {@link #crossover(Genome, Genome, RandomGenerator)}; operators should override it so that no genome is allocated.
+	 * @param parent1 The genome of the first parent
+	 * @param parent2 The genome of the second parent
+	 * @param child The genome to overwrite with the child (of the same length as the parents, and distinct from them)
+	 * @param random The random number stream
+	 * @return The child genome
+	 */
+	public default Genome crossover(Genome parent1, Genome parent2, Genome child, RandomGenerator random)
+	{
+		child.copyFrom(crossover(parent1, parent2, random));
+		return child;
+	}
 }
@@ -0,0 +1,76 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+/**
+ * Identifies a work dispatcher, used by the Breeder to spread evaluation work over threads.
+ * <p>
+ * A Dispatcher is long-lived: its threads (if any) are created once and reused for every generation, until the Dispatcher is closed.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface Dispatcher extends AutoCloseable
+{
+	/**
+	 * Runs the specified task over the index range [0, size), split into chunks of the Dispatcher's choosing, and waits until all chunks have completed.
+	 * @param size The size of the index range
+	 * @param grain The minimum chunk size (only the final chunk of a range may be smaller)
+	 * @param task The task to run on each chunk
+	 * @throws BreederException If the task fails on any chunk
+	 */
+	public void dispatch(int size, int grain, Task task) throws BreederException;
+	
+
+
+	/**
+	 * Returns the number of chunks this Dispatcher may run concurrently.
+	 * @return The number of chunks this Dispatcher may run concurrently.
+	 */
+	public int getParallelism();
+	
+
+
+	/**
+	 * Cancels the dispatch in progress, if any, from another thread. Chunks that have not started are skipped, running chunks may be interrupted, and the dispatch throws a BreederException once the running chunks have finished.
+	 * <p>
+	 * The default implementation does nothing, so the dispatch runs to completion.
+	 */
+	public default void cancel()
+	{
+	}
+	
+
+
+	/**
+	 * Releases any threads owned by this Dispatcher.
+	 */
+	public void close();
+	
+
+
+	/**
+	 * Identifies a unit of work over a range of indices.
+	 */
+	public interface Task
+	{
+		/**
+		 * Performs the work for the indices in [from, to).
+		 * @param from The first index
+		 * @param to The index after the last
+		 * @throws Exception If the work fails
+		 */
+		public void run(int from, int to) throws Exception;
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+
+/**
+ * An immutable view of the state of a Breeder run after a generation, for monitoring
+ * <p>
+ * The Breeder publishes a new snapshot at the end of every step (and the SteadyStateBreeder once every population size of births), so a snapshot can be read from any thread without blocking the Breeder, and stays consistent however far the run has moved on since (see {@link Breeder#getSnapshot()}).
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenerationSnapshot
+{
+	private final int generation;
+	private final int stableGenerations;
+	private final int skippedEvaluations;
+	private final Genome bestGenome;
+	private final double fitnessBest;
+	private final double fitnessMean;
+	private final double fitnessWorst;
+	private final List<Double> fitnessHistoryBest;
+	private final List<Double> fitnessHistoryMean;
+	private final List<Double> fitnessHistoryWorst;
+	
+
+
+	/**
+	 * Constructs a new GenerationSnapshot object, copying the histories
+	 * @param _generation The number of generations run
+	 * @param _stableGenerations The number of stable generations
+	 * @param _skippedEvaluations The number of evaluations skipped in the last generation
+	 * @param _bestGenome The best genome so far (which must not be modified afterwards), or null
+	 * @param _fitnessBest The best fitness of the last population
+	 * @param _fitnessMean The mean fitness of the last population
+	 * @param _fitnessWorst The worst fitness of the last population
+	 * @param _fitnessHistoryBest The history of best fitnesses
+	 * @param _fitnessHistoryMean The history of mean fitnesses
+	 * @param _fitnessHistoryWorst The history of worst fitnesses
+	 */
+	GenerationSnapshot(int _generation, int _stableGenerations, int _skippedEvaluations, Genome _bestGenome, double _fitnessBest, double _fitnessMean, double _fitnessWorst, List<Double> _fitnessHistoryBest, List<Double> _fitnessHistoryMean, List<Double> _fitnessHistoryWorst)
+	{
+		generation = _generation;
+		stableGenerations = _stableGenerations;
+		skippedEvaluations = _skippedEvaluations;
+		bestGenome = _bestGenome;
+		fitnessBest = _fitnessBest;
+		fitnessMean = _fitnessMean;
+		fitnessWorst = _fitnessWorst;
+		fitnessHistoryBest = Collections.unmodifiableList(new ArrayList<Double>(_fitnessHistoryBest));
+		fitnessHistoryMean = Collections.unmodifiableList(new ArrayList<Double>(_fitnessHistoryMean));
+		fitnessHistoryWorst = Collections.unmodifiableList(new ArrayList<Double>(_fitnessHistoryWorst));
+	}
+	
+
+
+	/**
+	 * Returns the number of generations run (the generation the Breeder will step next)
+	 * @return The number of generations
+	 */
+	public int getGeneration()
+	{
+		return generation;
+	}
+	
+
+
+	/**
+	 * Returns the number of stable generations
+	 * @return The number of stable generations
+	 */
+	public int getStableGenerations()
+	{
+		return stableGenerations;
+	}
+	
+
+
+	/**
+	 * Returns the number of evaluations skipped in the last generation
+	 * @return The number of skipped evaluations
+	 */
+	public int getSkippedEvaluations()
+	{
+		return skippedEvaluations;
+	}
+	
+
+
+	/**
+	 * Returns the best genome found so far
+	 * @return A copy of the best genome, or null if no generation has been run
+	 */
+	public Genome getBestGenome()
+	{
+		return (bestGenome != null ? (Genome)bestGenome.clone() : null);
+	}
+	
+
+
+	/**
+	 * Returns the best fitness of the last population
+	 * @return The best fitness, or NaN if no generation has been run
+	 */
+	public double getFitnessBest()
+	{
+		return fitnessBest;
+	}
+	
+
+
+	/**
+	 * Returns the mean fitness of the last population
+	 * @return The mean fitness, or NaN if no generation has been run
+	 */
+	public double getFitnessMean()
+	{
+		return fitnessMean;
+	}
+	
+
+
+	/**
+	 * Returns the worst fitness of the last population
+	 * @return The worst fitness, or NaN if no generation has been run
+	 */
+	public double getFitnessWorst()
+	{
+		return fitnessWorst;
+	}
+	
+
+
+	/**
+	 * Returns the history of best fitnesses
+	 * @return The history of best fitnesses (unmodifiable)
+	 */
+	public List<Double> getFitnessHistoryBest()
+	{
+		return fitnessHistoryBest;
+	}
+	
+
+
+	/**
+	 * Returns the history of mean fitnesses
+	 * @return The history of mean fitnesses (unmodifiable)
+	 */
+	public List<Double> getFitnessHistoryMean()
+	{
+		return fitnessHistoryMean;
+	}
+	
+
+
+	/**
+	 * Returns the history of worst fitnesses
+	 * @return The history of worst fitnesses (unmodifiable)
+	 */
+	public List<Double> getFitnessHistoryWorst()
+	{
+		return fitnessHistoryWorst;
+	}
+}
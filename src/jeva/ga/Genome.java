@@ -21,30 +21,63 @@ package jeva.ga;
 
 
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 
 
 /**
- * Defines an individual's genome
+ * Defines an individual's genome.
+ * <p>
+ * The bits are packed 64 to a <tt>long</tt> word: bit <tt>i</tt> of the genome is bit <tt>i % 64</tt> of word <tt>i / 64</tt>. Any unused bits in the last word are always kept clear, so that word-level operations (comparison, population count, etc.) need no special treatment of the tail.
+ * <p>
+ * Every operation that actually changes a bit marks the Genome dirty, invalidating its fitness until it is evaluated again. A Genome that is copied and left unchanged keeps its fitness, so it need not be re-evaluated. The words changed since the last evaluation are recorded too, so that an {@link IncrementalEvaluator} can re-evaluate only the affected part of the genome, starting from the fitness and evaluation state left behind by the last evaluation.
+ * <p>
+ * Genomes are serialised in the compact form of {@link GenomeCodec}: the packed bits and the fitness, but not the evaluation state.
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class Genome implements Selectable, Serializable, Cloneable
+public class Genome implements Selectable, Externalizable, Cloneable
 {
-	private boolean[] values;
-	private Double fitness = null;
+	private static final long serialVersionUID = 1L;
+	
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_BITS = 1 << WORD_SHIFT;
+	
+	private int length;
+	private long[] words;
+	private double fitness = Double.NaN;
+	private boolean hasFitness = false;
+	private boolean dirty = false;
+	private long[] changedWords = null;
+	private Object evaluationState = null;
 	
 
 
 	/**
-	 * Constructs a new Genome with the specified number of bits.
+	 * Constructs a new Genome of no bits, to be read with {@link #readExternal(ObjectInput)}.
+	 */
+	public Genome()
+	{
+		this(0);
+	}
+	
+
+
+	/**
+	 * Constructs a new Genome with the specified number of bits (all cleared).
 	 * @param length The number of bits in this Genome.
 	 */
 	public Genome(int length)
 	{
-		values = new boolean[length];
+		this.length = length;
+		words = new long[wordCount(length)];
 	}
 	
 
@@ -55,7 +88,10 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public Genome(boolean[] _values)
 	{
-		values = _values;
+		this(_values.length);
+		for (int i = 0; i < _values.length; i++)
+			if (_values[i])
+				words[i >>> WORD_SHIFT] |= 1L << i;
 	}
 	
 
@@ -66,9 +102,21 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public Genome(BitSet bitSet)
 	{
-		values = new boolean[bitSet.size()];
-		for (int i = 0; i < bitSet.size(); i++)
-			values[i] = bitSet.get(i);
+		this(bitSet.size());
+		long[] bitSetWords = bitSet.toLongArray();
+		System.arraycopy(bitSetWords, 0, words, 0, Math.min(bitSetWords.length, words.length));
+	}
+	
+
+
+	/**
+	 * Returns the number of <tt>long</tt> words needed to hold the specified number of bits.
+	 * @param length The number of bits.
+	 * @return The number of words.
+	 */
+	public static int wordCount(int length)
+	{
+		return (length + WORD_BITS - 1) >>> WORD_SHIFT;
 	}
 	
 
@@ -79,17 +127,79 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public int length()
 	{
-		return values.length;
+		return length;
+	}
+	
+
+
+	/**
+	 * Returns the number of <tt>long</tt> words backing this Genome.
+	 * @return The number of words backing this Genome.
+	 */
+	public int getWordCount()
+	{
+		return words.length;
+	}
+	
+
+
+	/**
+	 * Returns the word at the specified index (genome bits <tt>64 * w</tt> to <tt>64 * w + 63</tt>).
+	 * @param w The index of the word.
+	 * @return The wth word.
+	 */
+	public long getWord(int w)
+	{
+		return words[w];
+	}
+	
+
+
+	/**
+	 * Sets the word at the specified index. Bits beyond the end of the genome are ignored.
+	 * @param w The index of the word.
+	 * @param word The new word value.
+	 */
+	public void setWord(int w, long word)
+	{
+		word &= wordMask(w);
+		if (words[w] != word)
+		{
+			words[w] = word;
+			markChanged(w);
+		}
+	}
+	
+
+
+	/**
+	 * Flips the bits of the word at the specified index that are set in the mask. Bits beyond the end of the genome are ignored.
+	 * @param w The index of the word.
+	 * @param mask The bits to flip.
+	 */
+	public void flipWord(int w, long mask)
+	{
+		mask &= wordMask(w);
+		if (mask != 0)
+		{
+			words[w] ^= mask;
+			markChanged(w);
+		}
 	}
 	
 
 
 	/**
 	 * Returns the bits in this Genome.
+	 * <p>
+	 * This is a compatibility view: the returned array is a copy, so changes to it are not reflected in this Genome.
 	 * @return The bits in this Genome.
 	 */
 	public boolean[] getValues()
 	{
+		boolean[] values = new boolean[length];
+		for (int i = 0; i < length; i++)
+			values[i] = getValue(i);
 		return values;
 	}
 	
@@ -101,11 +211,7 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public BitSet toBitSet()
 	{
-		BitSet bitSet = new BitSet(values.length);
-		for (int i = 0; i < values.length; i++)
-			bitSet.set(i, values[i]);
-		
-		return bitSet;
+		return BitSet.valueOf(words);
 	}
 	
 
@@ -117,18 +223,276 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public boolean getValue(int i)
 	{
-		return values[i];
+		checkIndex(i);
+		return (words[i >>> WORD_SHIFT] & (1L << i)) != 0;
+	}
+	
+
+
+	/**
+	 * Sets the bit at the specified index.
+	 * @param i The index of the bit.
+	 * @param value The new bit value.
+	 */
+	public void setValue(int i, boolean value)
+	{
+		checkIndex(i);
+		long word = words[i >>> WORD_SHIFT];
+		setWord(i >>> WORD_SHIFT, value ? word | (1L << i) : word & ~(1L << i));
+	}
+	
+
+
+	/**
+	 * Flips the bit at the specified index.
+	 * @param i The index of the bit.
+	 */
+	public void flip(int i)
+	{
+		checkIndex(i);
+		words[i >>> WORD_SHIFT] ^= 1L << i;
+		markChanged(i >>> WORD_SHIFT);
+	}
+	
+
+
+	/**
+	 * Returns the number of set bits in this Genome.
+	 * @return The number of set bits in this Genome.
+	 */
+	public int cardinality()
+	{
+		int count = 0;
+		for (long word : words)
+			count += Long.bitCount(word);
+		return count;
+	}
+	
+
+
+	/**
+	 * Returns up to 64 consecutive bits, starting at the specified offset, packed into a <tt>long</tt> (bit <tt>offset</tt> becomes bit 0 of the result).
+	 * @param offset The index of the first bit.
+	 * @param n The number of bits to extract (0 to 64).
+	 * @return The extracted bits.
+	 */
+	public long getBits(int offset, int n)
+	{
+		if (n < 0 || n > WORD_BITS)
+			throw new IllegalArgumentException("Cannot extract " + n + " bits into a long.");
+		if (n == 0)
+			return 0;
+		if (offset < 0 || offset + n > length)
+			throw new IndexOutOfBoundsException("Bit range [" + offset + ", " + (offset + n) + ") outside genome of length " + length);
+		
+		int w = offset >>> WORD_SHIFT;
+		int shift = offset & (WORD_BITS - 1);
+		long bits = words[w] >>> shift;
+		if (shift + n > WORD_BITS)
+			bits |= words[w + 1] << (WORD_BITS - shift);
+		
+		return n == WORD_BITS ? bits : bits & ((1L << n) - 1);
+	}
+	
+
+
+	/**
+	 * Copies the bits in the range [from, to) from the source Genome into the same positions of this Genome.
+	 * @param source The Genome to copy from.
+	 * @param from The index of the first bit to copy.
+	 * @param to The index after the last bit to copy.
+	 */
+	public void copyRange(Genome source, int from, int to)
+	{
+		if (from < 0 || to > length || to > source.length || from > to)
+			throw new IndexOutOfBoundsException("Bit range [" + from + ", " + to + ") invalid for genome lengths " + length + " and " + source.length);
+		if (from == to)
+			return;
+		
+		int firstWord = from >>> WORD_SHIFT;
+		int lastWord = (to - 1) >>> WORD_SHIFT;
+		long firstMask = -1L << from;
+		long lastMask = -1L >>> -to;
+		
+		if (firstWord == lastWord)
+		{
+			long mask = firstMask & lastMask;
+			setWord(firstWord, (words[firstWord] & ~mask) | (source.words[firstWord] & mask));
+			return;
+		}
+		
+		setWord(firstWord, (words[firstWord] & ~firstMask) | (source.words[firstWord] & firstMask));
+		for (int w = firstWord + 1; w < lastWord; w++)
+			setWord(w, source.words[w]);
+		setWord(lastWord, (words[lastWord] & ~lastMask) | (source.words[lastWord] & lastMask));
+	}
+	
+
+
+	/**
+	 * Makes this Genome an exact copy of the source Genome (bits, fitness, evaluation state and changes), without allocating; used to recycle Genomes.
+	 * @param source The Genome to copy, of the same length.
+	 */
+	public void copyFrom(Genome source)
+	{
+		if (source.length != length)
+			throw new IllegalArgumentException("Cannot copy a genome of length " + source.length + " into one of length " + length);
+		if (source == this)
+			return;
+		
+		System.arraycopy(source.words, 0, words, 0, words.length);
+		fitness = source.fitness;
+		hasFitness = source.hasFitness;
+		dirty = source.dirty;
+		evaluationState = source.evaluationState;
+		if (source.dirty)
+		{
+			if (changedWords == null)
+				changedWords = source.changedWords.clone();
+			else
+				System.arraycopy(source.changedWords, 0, changedWords, 0, changedWords.length);
+		}
+		else if (changedWords != null)
+			Arrays.fill(changedWords, 0);
+	}
+	
+
+
+	/**
+	 * Returns a new Genome with the same bits as this one, but without its fitness, evaluation state or changes.
+	 * @return The new Genome.
+	 */
+	public Genome copyBits()
+	{
+		Genome copy = new Genome();
+		copy.length = length;
+		copy.words = words.clone();
+		return copy;
+	}
+	
+
+
+	/**
+	 * Returns a hash code computed from the bits (and length) of this Genome. Unlike {@link #hashCode()}, this changes whenever the bits change.
+	 * @return The content hash code.
+	 */
+	public int hashBits()
+	{
+		long h = length * 0x9E3779B97F4A7C15L;
+		for (int w = 0; w < words.length; w++)
+		{
+			h ^= words[w];
+			h *= 0xBF58476D1CE4E5B9L;
+			h ^= h >>> 31;
+		}
+		return (int)(h ^ (h >>> 32));
 	}
 	
 
 
 	/**
-	 * Sets the fitness of this genome.
+	 * Checks whether this Genome has the same bits (and length) as another.
+	 * @param other The other Genome.
+	 * @return True, if both Genomes hold the same bits; false otherwise.
+	 */
+	public boolean equalBits(Genome other)
+	{
+		if (other.length != length)
+			return false;
+		for (int w = 0; w < words.length; w++)
+			if (words[w] != other.words[w])
+				return false;
+		return true;
+	}
+	
+
+
+	/**
+	 * Sets the fitness of this genome, and marks it clean. Any evaluation state is discarded.
 	 * @param _fitness Thefitness value.
 	 */
 	public void setFitness(double _fitness)
+	{
+		setFitness(_fitness, null);
+	}
+	
+
+
+	/**
+	 * Sets the fitness of this genome along with evaluator-specific state (e.g. per-variable terms) for later incremental evaluation, and marks it clean.
+	 * <p>
+	 * The state is shared with clones of this Genome, so it must not be modified once set; incremental evaluators should derive a new state instead.
+	 * @param _fitness The fitness value.
+	 * @param _evaluationState The evaluation state, or null.
+	 */
+	public void setFitness(double _fitness, Object _evaluationState)
 	{
 		fitness = _fitness;
+		hasFitness = true;
+		evaluationState = _evaluationState;
+		dirty = false;
+		if (changedWords != null)
+			Arrays.fill(changedWords, 0);
+	}
+	
+
+
+	/**
+	 * Discards the fitness and evaluation state of this genome, so that it must be evaluated again.
+	 */
+	public void clearFitness()
+	{
+		fitness = Double.NaN;
+		hasFitness = false;
+		evaluationState = null;
+	}
+	
+
+
+	/**
+	 * Returns the fitness last set, even if this Genome has changed since.
+	 * @return The last fitness.
+	 */
+	public double getLastFitness()
+	{
+		if (!hasFitness)
+			throw new IllegalStateException("Error accessing genome fitness: The genome has never been evaluated.");
+		
+		return fitness;
+	}
+	
+
+
+	/**
+	 * Returns the evaluation state set along with the last fitness.
+	 * @return The evaluation state, or null if none was set.
+	 */
+	public Object getEvaluationState()
+	{
+		return evaluationState;
+	}
+	
+
+
+	/**
+	 * Returns the index of the first word, at or after the specified index, that has changed since the last evaluation.
+	 * @param w The index to start from.
+	 * @return The index of the next changed word, or -1 if there is none.
+	 */
+	public int nextChangedWord(int w)
+	{
+		if (!dirty || changedWords == null || w >= words.length)
+			return -1;
+		
+		int u = w >>> WORD_SHIFT;
+		long word = changedWords[u] & (-1L << w);
+		while (word == 0)
+		{
+			if (++u == changedWords.length)
+				return -1;
+			word = changedWords[u];
+		}
+		return (u << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
 	}
 	
 
@@ -147,12 +511,48 @@ public class Genome implements Selectable, Serializable, Cloneable
 
 
 	/**
-	 * Checks whether this Genome has been evaluated (i.e. has had its fitness score set).
+	 * Checks whether this Genome has been evaluated (i.e. has had its fitness score set, and has not changed since).
 	 * @return True, if the Genome has been evaluated; false otherwise.
 	 */
 	public boolean isEvaluated()
 	{
-		return fitness != null;
+		return hasFitness && !dirty;
+	}
+	
+
+
+	/**
+	 * Checks whether the bits of this Genome have changed since its fitness was last set.
+	 * @return True, if the Genome is dirty; false otherwise.
+	 */
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+	
+
+
+	/**
+	 * Marks this Genome dirty (with every word changed), e.g. after changing it by means other than its own methods.
+	 */
+	public void markDirty()
+	{
+		for (int w = 0; w < words.length; w++)
+			markChanged(w);
+	}
+	
+
+
+	/**
+	 * Records a change to the specified word.
+	 * @param w The index of the word.
+	 */
+	private void markChanged(int w)
+	{
+		if (changedWords == null)
+			changedWords = new long[wordCount(words.length)];
+		changedWords[w >>> WORD_SHIFT] |= 1L << w;
+		dirty = true;
 	}
 	
 
@@ -162,8 +562,43 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public void damage()
 	{
-		for (int i = 0; i < values.length; i++)
-			values[i] = Math.random() > 0.5;
+		damage(ThreadLocalRandom.current());
+	}
+	
+
+
+	/**
+	 * Damages this genome, drawing random bits from the specified stream [EXPERIMENTAL]
+	 * @param random The random number stream
+	 */
+	public void damage(RandomGenerator random)
+	{
+		for (int w = 0; w < words.length; w++)
+			setWord(w, random.nextLong());
+	}
+	
+
+
+	/**
+	 * Returns the mask of the valid (in-genome) bits of the specified word.
+	 * @param w The index of the word.
+	 * @return The mask of valid bits.
+	 */
+	private long wordMask(int w)
+	{
+		return (w == words.length - 1 && (length & (WORD_BITS - 1)) != 0) ? (1L << length) - 1 : -1L;
+	}
+	
+
+
+	/**
+	 * Checks that the specified bit index lies within this Genome.
+	 * @param i The bit index.
+	 */
+	private void checkIndex(int i)
+	{
+		if (i < 0 || i >= length)
+			throw new IndexOutOfBoundsException("Bit index " + i + " outside genome of length " + length);
 	}
 
 	
@@ -173,22 +608,54 @@ public class Genome implements Selectable, Serializable, Cloneable
 	 */
 	public String toString()
 	{
-		StringBuffer sb = new StringBuffer();
-		for (boolean value : values)
-			sb.append(value ? "1" : "0");
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append(getValue(i) ? '1' : '0');
 		return sb.toString();
 	}
 	
 
 
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal(ObjectOutput out) throws IOException
+	{
+		GenomeCodec.write(this, out, true);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal(ObjectInput in) throws IOException
+	{
+		Genome genome = GenomeCodec.read(in);
+		length = genome.length;
+		words = genome.words;
+		fitness = genome.fitness;
+		hasFitness = genome.hasFitness;
+		dirty = genome.dirty;
+		changedWords = genome.changedWords;
+		evaluationState = null;
+	}
+	
+
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#clone()
 	 */
 	public Object clone()
 	{
-		Genome clone = new Genome(this.values.length);
-		System.arraycopy(this.values, 0, clone.values, 0, this.values.length);
+		Genome clone = new Genome(this.length);
+		System.arraycopy(this.words, 0, clone.words, 0, this.words.length);
 		clone.fitness = this.fitness;
+		clone.hasFitness = this.hasFitness;
+		clone.dirty = this.dirty;
+		clone.evaluationState = this.evaluationState;
+		if (this.dirty)
+			clone.changedWords = this.changedWords.clone();
 		return clone;
 	}
 }
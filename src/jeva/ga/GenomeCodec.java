@@ -0,0 +1,286 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+
+/**
+ * Encodes Genomes in a compact binary form, and decodes them back.
+ * <p>
+ * A Genome is encoded as its length in bits (an <tt>int</tt>), a flags byte telling whether a fitness follows, the fitness (a <tt>double</tt>, if any), and the genome bits packed eight to a byte, bit <tt>i</tt> of the genome being bit <tt>i % 8</tt> of byte <tt>i / 8</tt>. All values are little-endian, whatever the order of the buffer they are read from or written to, so the bits are the little-endian bytes of the genome words, cut short after the last bit. Evaluation state is not encoded.
+ * <p>
+ * Genomes are encoded straight into (and decoded straight from) a <tt>ByteBuffer</tt>, from its position onwards, so that many of them can be packed into a single (direct or mapped) buffer without intermediate copies.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenomeCodec
+{
+	private static final int HEADER_BYTES = Integer.BYTES + 1;
+	private static final byte FLAG_FITNESS = 1;
+	
+
+
+	/**
+	 * Returns the number of bytes a Genome is encoded in.
+	 * @param genome The Genome.
+	 * @param withFitness True, if the fitness is encoded (if there is one); false otherwise.
+	 * @return The number of bytes.
+	 */
+	public static int encodedSize(Genome genome, boolean withFitness)
+	{
+		return encodedSize(genome.length(), withFitness && genome.isEvaluated());
+	}
+	
+
+
+	/**
+	 * Returns the number of bytes a Genome of the specified length is encoded in.
+	 * @param length The genome length in bits.
+	 * @param withFitness True, if a fitness is encoded; false otherwise.
+	 * @return The number of bytes.
+	 */
+	public static int encodedSize(int length, boolean withFitness)
+	{
+		return HEADER_BYTES + (withFitness ? Double.BYTES : 0) + bitBytes(length);
+	}
+	
+
+
+	/**
+	 * Encodes a Genome into a buffer, at its position, which is advanced past the encoded Genome.
+	 * @param genome The Genome.
+	 * @param buffer The buffer.
+	 * @param withFitness True, to encode the fitness (if there is one); false otherwise.
+	 * @throws BufferOverflowException If the buffer has fewer than {@link #encodedSize(Genome, boolean)} bytes remaining.
+	 */
+	public static void encode(Genome genome, ByteBuffer buffer, boolean withFitness)
+	{
+		int length = genome.length();
+		boolean fitness = withFitness && genome.isEvaluated();
+		if (buffer.remaining() < encodedSize(length, fitness))
+			throw new BufferOverflowException();
+		
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		try
+		{
+			buffer.putInt(length);
+			buffer.put(fitness ? FLAG_FITNESS : 0);
+			if (fitness)
+				buffer.putDouble(genome.getFitness());
+			
+			// Whole words, then the bytes of the last word that hold genome bits
+			int bytes = bitBytes(length);
+			int w = 0;
+			for (; (w + 1) * Long.BYTES <= bytes; w++)
+				buffer.putLong(genome.getWord(w));
+			for (int b = w * Long.BYTES; b < bytes; b++)
+				buffer.put((byte)(genome.getWord(w) >>> ((b - w * Long.BYTES) * 8)));
+		}
+		finally
+		{
+			buffer.order(order);
+		}
+	}
+	
+
+
+	/**
+	 * Decodes a Genome from a buffer, at its position, which is advanced past the encoded Genome.
+	 * @param buffer The buffer.
+	 * @return The Genome (with its fitness, if one was encoded).
+	 * @throws IllegalArgumentException If the buffer does not hold a valid encoded Genome.
+	 */
+	public static Genome decode(ByteBuffer buffer)
+	{
+		return decode(buffer, new Genome(peekLength(buffer)));
+	}
+	
+
+
+	/**
+	 * Decodes a Genome from a buffer, at its position, into an existing Genome of the same length, which is then marked dirty unless a fitness was encoded.
+	 * @param buffer The buffer.
+	 * @param genome The Genome to overwrite.
+	 * @return The Genome.
+	 * @throws IllegalArgumentException If the buffer does not hold a valid encoded Genome, or it is of a different length (the buffer is then left unchanged).
+	 */
+	public static Genome decode(ByteBuffer buffer, Genome genome)
+	{
+		int length = peekLength(buffer);
+		if (length != genome.length())
+			throw new IllegalArgumentException("The encoded genome has " + length + " bits, not " + genome.length());
+		byte flags = buffer.get(buffer.position() + Integer.BYTES);
+		if ((flags & ~FLAG_FITNESS) != 0)
+			throw new IllegalArgumentException("Invalid genome flags " + flags);
+		boolean fitness = (flags & FLAG_FITNESS) != 0;
+		if (buffer.remaining() < encodedSize(length, fitness))
+			throw new IllegalArgumentException("Truncated genome");
+		
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		try
+		{
+			buffer.position(buffer.position() + HEADER_BYTES);
+			double fitnessValue = (fitness ? buffer.getDouble() : Double.NaN);
+			
+			int bytes = bitBytes(length);
+			int w = 0;
+			for (; (w + 1) * Long.BYTES <= bytes; w++)
+				genome.setWord(w, buffer.getLong());
+			if (w * Long.BYTES < bytes)
+			{
+				long word = 0;
+				for (int b = w * Long.BYTES; b < bytes; b++)
+					word |= (buffer.get() & 0xFFL) << ((b - w * Long.BYTES) * 8);
+				genome.setWord(w, word);
+			}
+			
+			if (fitness)
+				genome.setFitness(fitnessValue);
+			else
+			{
+				genome.clearFitness();
+				genome.markDirty();
+			}
+			return genome;
+		}
+		finally
+		{
+			buffer.order(order);
+		}
+	}
+	
+
+
+	/**
+	 * Encodes a Genome into a new byte array.
+	 * @param genome The Genome.
+	 * @param withFitness True, to encode the fitness (if there is one); false otherwise.
+	 * @return The encoded Genome.
+	 */
+	public static byte[] toBytes(Genome genome, boolean withFitness)
+	{
+		byte[] bytes = new byte[encodedSize(genome, withFitness)];
+		encode(genome, ByteBuffer.wrap(bytes), withFitness);
+		return bytes;
+	}
+	
+
+
+	/**
+	 * Decodes a Genome from a byte array.
+	 * @param bytes The encoded Genome.
+	 * @return The Genome.
+	 * @throws IllegalArgumentException If the array does not hold a valid encoded Genome.
+	 */
+	public static Genome fromBytes(byte[] bytes)
+	{
+		return decode(ByteBuffer.wrap(bytes));
+	}
+	
+
+
+	/**
+	 * Writes an encoded Genome to a stream.
+	 * @param genome The Genome.
+	 * @param out The stream.
+	 * @param withFitness True, to encode the fitness (if there is one); false otherwise.
+	 * @throws IOException If the Genome cannot be written.
+	 */
+	public static void write(Genome genome, DataOutput out, boolean withFitness) throws IOException
+	{
+		out.write(toBytes(genome, withFitness));
+	}
+	
+
+
+	/**
+	 * Reads an encoded Genome from a stream.
+	 * @param in The stream.
+	 * @return The Genome.
+	 * @throws IOException If the Genome cannot be read, or is not valid.
+	 */
+	public static Genome read(DataInput in) throws IOException
+	{
+		byte[] header = new byte[HEADER_BYTES];
+		in.readFully(header);
+		ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+		int length = headerBuffer.getInt();
+		byte flags = headerBuffer.get();
+		if (length < 0)
+			throw new StreamCorruptedException("Invalid genome length " + length);
+		
+		byte[] bytes = new byte[encodedSize(length, (flags & FLAG_FITNESS) != 0)];
+		System.arraycopy(header, 0, bytes, 0, HEADER_BYTES);
+		in.readFully(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+		try
+		{
+			return fromBytes(bytes);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new StreamCorruptedException(e.getMessage());
+		}
+	}
+	
+
+
+	/**
+	 * Returns the length of the Genome encoded at the position of a buffer, without advancing it.
+	 * @param buffer The buffer.
+	 * @return The genome length in bits.
+	 * @throws IllegalArgumentException If the buffer does not hold a valid header.
+	 */
+	private static int peekLength(ByteBuffer buffer)
+	{
+		if (buffer.remaining() < HEADER_BYTES)
+			throw new IllegalArgumentException("Truncated genome");
+		int length = buffer.getInt(buffer.position());
+		if (buffer.order() != ByteOrder.LITTLE_ENDIAN)
+			length = Integer.reverseBytes(length);
+		if (length < 0)
+			throw new IllegalArgumentException("Invalid genome length " + length);
+		return length;
+	}
+	
+
+
+	/**
+	 * Returns the number of bytes the bits of a genome are packed in.
+	 * @param length The genome length in bits.
+	 * @return The number of bytes.
+	 */
+	private static int bitBytes(int length)
+	{
+		return (int)(((long)length + 7) >>> 3);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import jeva.util.BitSetUtil;
+
+
+
+/**
+ * Decodes a Genome into real-valued variables.
+ * <p>
+ * The genome is split into consecutive variables of equal bit width. Each variable is read straight from the genome words, optionally Gray-decoded, and scaled into [min, max]. Instances are immutable and hold no scratch state, so a single decoder may be shared by any number of evaluation threads.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenomeDecoder
+{
+	private final int nVars;
+	private final int nVarBits;
+	private final boolean grayCoded;
+	private final double varMin;
+	private final double divisor;
+	
+
+
+	/**
+	 * Constructs a new GenomeDecoder for Gray-coded variables.
+	 * @param _nVars The number of variables
+	 * @param _nVarBits The number of bits per variable (1 to 64)
+	 * @param _varMin The minimum variable value
+	 * @param _varMax The maximum variable value
+	 */
+	public GenomeDecoder(int _nVars, int _nVarBits, double _varMin, double _varMax)
+	{
+		this(_nVars, _nVarBits, _varMin, _varMax, true);
+	}
+	
+
+
+	/**
+	 * Constructs a new GenomeDecoder.
+	 * @param _nVars The number of variables
+	 * @param _nVarBits The number of bits per variable (1 to 64)
+	 * @param _varMin The minimum variable value
+	 * @param _varMax The maximum variable value
+	 * @param _grayCoded True, if the variables are Gray-coded; false, if they are plain binary
+	 */
+	public GenomeDecoder(int _nVars, int _nVarBits, double _varMin, double _varMax, boolean _grayCoded)
+	{
+		if (_nVarBits < 1 || _nVarBits > Long.SIZE)
+			throw new IllegalArgumentException("The number of bits per variable must be between 1 and " + Long.SIZE + ".");
+		
+		nVars = _nVars;
+		nVarBits = _nVarBits;
+		grayCoded = _grayCoded;
+		varMin = _varMin;
+		divisor = BitSetUtil.scaleDivisor(_nVarBits, _varMin, _varMax);
+	}
+	
+
+
+	/**
+	 * Returns the number of variables.
+	 * @return The number of variables.
+	 */
+	public int getVariableCount()
+	{
+		return nVars;
+	}
+	
+
+
+	/**
+	 * Returns the number of bits per variable.
+	 * @return The number of bits per variable.
+	 */
+	public int getVariableBits()
+	{
+		return nVarBits;
+	}
+	
+
+
+	/**
+	 * Returns the number of genome bits occupied by all variables.
+	 * @return The number of genome bits occupied by all variables.
+	 */
+	public int getGenomeLength()
+	{
+		return nVars * nVarBits;
+	}
+	
+
+
+	/**
+	 * Decodes a single variable.
+	 * @param genome The genome to decode
+	 * @param varIndex The index of the variable
+	 * @return The variable value
+	 */
+	public double decode(Genome genome, int varIndex)
+	{
+		long bits = genome.getBits(varIndex * nVarBits, nVarBits);
+		if (grayCoded)
+			bits = BitSetUtil.grayToBinary(bits);
+		return BitSetUtil.unsignedToDouble(bits) / divisor + varMin;
+	}
+	
+
+
+	/**
+	 * Decodes all variables into the specified array.
+	 * @param genome The genome to decode
+	 * @param x The array to receive the variable values (at least <tt>nVars</tt> long)
+	 */
+	public void decode(Genome genome, double[] x)
+	{
+		for (int varIndex = 0; varIndex < nVars; varIndex++)
+			x[varIndex] = decode(genome, varIndex);
+	}
+}
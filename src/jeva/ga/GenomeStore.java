@@ -0,0 +1,151 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+/**
+ * Identifies a fixed-size table of genome rows, each holding the bits of one genome and its fitness, stored outside the Java heap
+ * <p>
+ * A store keeps no Genome objects: genomes are copied in and out of rows through short-lived or per-thread Genomes, so that a population of millions costs only its bits. Distinct rows may be accessed concurrently.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface GenomeStore extends AutoCloseable
+{
+	/**
+	 * Returns the number of rows
+	 * @return The number of rows
+	 */
+	public int getSize();
+	
+
+
+	/**
+	 * Returns the genome length in bits
+	 * @return The genome length in bits
+	 */
+	public int getGenomeLength();
+	
+
+
+	/**
+	 * Returns a word (64 bits) of a row
+	 * @param row The row
+	 * @param w The index of the word
+	 * @return The word
+	 */
+	public long getWord(int row, int w);
+	
+
+
+	/**
+	 * Sets a word (64 bits) of a row
+	 * @param row The row
+	 * @param w The index of the word
+	 * @param word The word
+	 */
+	public void setWord(int row, int w, long word);
+	
+
+
+	/**
+	 * Returns the fitness of a row
+	 * @param row The row
+	 * @return The fitness
+	 */
+	public double getFitness(int row);
+	
+
+
+	/**
+	 * Sets the fitness of a row, marking it evaluated
+	 * @param row The row
+	 * @param fitness The fitness
+	 */
+	public void setFitness(int row, double fitness);
+	
+
+
+	/**
+	 * Marks a row unevaluated
+	 * @param row The row
+	 */
+	public void clearFitness(int row);
+	
+
+
+	/**
+	 * Checks whether a row has been evaluated
+	 * @param row The row
+	 * @return True, if the row has been evaluated; false otherwise
+	 */
+	public boolean isEvaluated(int row);
+	
+
+
+	/**
+	 * Returns the number of bytes this store occupies
+	 * @return The number of bytes this store occupies
+	 */
+	public long getFootprint();
+	
+
+
+	/**
+	 * Releases this store. It must not be accessed afterwards.
+	 */
+	public void close();
+	
+
+
+	/**
+	 * Copies a row into the specified Genome, along with its fitness if it has been evaluated
+	 * @param row The row
+	 * @param genome The Genome to overwrite (of the store's genome length)
+	 */
+	public default void read(int row, Genome genome)
+	{
+		for (int w = 0; w < genome.getWordCount(); w++)
+			genome.setWord(w, getWord(row, w));
+		if (isEvaluated(row))
+			genome.setFitness(getFitness(row));
+		else
+			genome.clearFitness();
+	}
+	
+
+
+	/**
+	 * Copies the specified Genome into a row, along with its fitness if it has been evaluated
+	 * @param row The row
+	 * @param genome The Genome to copy (of the store's genome length)
+	 */
+	public default void write(int row, Genome genome)
+	{
+		for (int w = 0; w < genome.getWordCount(); w++)
+			setWord(row, w, genome.getWord(w));
+		if (genome.isEvaluated())
+			setFitness(row, genome.getFitness());
+		else
+			clearFitness(row);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+/**
+ * Identifies an evaluator function that can re-evaluate a changed genome incrementally
+ * <p>
+ * When a dirty genome still carries the fitness and evaluation state of its last evaluation (typically inherited from a parent it was copied from), the Breeder calls {@link #evaluateChanges(Genome)} instead of {@link #evaluateGenome(Genome)}. The evaluator then only needs to recompute the parts of the fitness that depend on the words reported by {@link Genome#nextChangedWord(int)}.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface IncrementalEvaluator extends Evaluator
+{
+	/**
+	 * Re-evaluates the specified dirty genome, starting from {@link Genome#getLastFitness()} and {@link Genome#getEvaluationState()}
+	 * @param genome The genome to evaluate
+	 */
+	public void evaluateChanges(Genome genome);
+}
@@ -21,6 +21,10 @@ package jeva.ga;
 
 
 
+import java.util.random.RandomGenerator;
+
+
+
 /**
  * Identifies an initialization operator
  * 
@@ -33,4 +37,18 @@ public interface Initializer
 	 * @param genome The genome to initialise
 	 */
 	public void initialize(Genome genome);
+	
+
+
+	/**
+	 * Initialises the specified genome, drawing random numbers from the specified stream
+	 * <p>
+	 * The default implementation ignores the stream; operators should override it so that seeded runs are reproducible.
+	 * @param genome The genome to initialise
+	 * @param random The random number stream
+	 */
+	public default void initialize(Genome genome, RandomGenerator random)
+	{
+		initialize(genome);
+	}
 }
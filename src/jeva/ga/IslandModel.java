@@ -0,0 +1,413 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+
+import jeva.ga.dispatcher.DispatcherForkJoin;
+import jeva.ga.replacer.ReplacerWorst;
+import jeva.util.RandomSource;
+
+
+
+/**
+ * This class implements an island model: several Breeders (islands), each with its own population and parameters, that evolve side by side and exchange their best individuals now and then.
+ * <p>
+ * The islands run as tasks on one shared pool, which also runs their evaluations, so the pool size alone bounds the threads in use. Each task runs an island up to its next migration, and is then queued again behind the other islands, so that there can be more islands than threads. Islands do not wait for each other. Every migration interval, an island sends copies of some of its individuals (picked by the migrant Selector, or its best) to the islands chosen by the {@link Topology}, by appending them to their inboxes. Inboxes are lock-free queues, which every island drains before each of its steps, letting the migrant Replacer place the immigrants in its population.
+ * <p>
+ * Since islands run at their own pace, when migrants arrive, and therefore the outcome of a run, depends on timing even with seeded parameters.
+ * <p>
+ * The state of every island is published through its {@link GenerationSnapshot}, so the islands and the overall best can be monitored while a run is in progress.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class IslandModel implements AutoCloseable
+{
+	private Objective objective;
+	private Topology topology;
+	private ForkJoinPool pool;
+	private CopyOnWriteArrayList<Island> islands = new CopyOnWriteArrayList<Island>();
+	private int migrationInterval = 10;
+	private int migrationSize = 2;
+	private Selector migrantSelector = null;
+	private Replacer migrantReplacer = new ReplacerWorst();
+	private volatile boolean failed = false;
+	private AtomicReference<BreederException> failure = new AtomicReference<BreederException>();
+	
+
+
+	/**
+	 * Constructs a new IslandModel with no islands.
+	 * @param _objective The optimisation objective, shared by all islands.
+	 * @param _topology The migration topology.
+	 * @param _nThreads The number of threads in the shared pool.
+	 */
+	public IslandModel(Objective _objective, Topology _topology, int _nThreads)
+	{
+		objective = _objective;
+		topology = _topology;
+		pool = new ForkJoinPool(Math.max(1, _nThreads));
+	}
+	
+
+
+	/**
+	 * Adds an island, whose Breeder evaluates on the shared pool. All islands must have the same genome length.
+	 * @param evaluator The evaluation function (which may be shared with other islands, if it is safe for concurrent use).
+	 * @param parameters The GA parameters of the island.
+	 * @param historyLength The maximum size of history to retain.
+	 * @return The index of the island.
+	 */
+	public synchronized int addIsland(Evaluator evaluator, Parameters parameters, int historyLength)
+	{
+		Breeder breeder = new Breeder(evaluator, objective, parameters, new DispatcherForkJoin(pool), historyLength);
+		islands.add(new Island(breeder));
+		return islands.size() - 1;
+	}
+	
+
+
+	/**
+	 * Sets how often, and how many, individuals migrate.
+	 * @param _migrationInterval The number of generations between the migrations of an island.
+	 * @param _migrationSize The number of individuals an island sends to each of its targets.
+	 */
+	public synchronized void setMigration(int _migrationInterval, int _migrationSize)
+	{
+		if (_migrationInterval < 1)
+			throw new IllegalArgumentException("The migration interval must be at least 1");
+		migrationInterval = _migrationInterval;
+		migrationSize = Math.max(0, _migrationSize);
+	}
+	
+
+
+	/**
+	 * Sets the Selector that picks the emigrants of an island (it must be safe for concurrent use).
+	 * @param _migrantSelector The Selector, or null to send the best individuals (the default).
+	 */
+	public synchronized void setMigrantSelector(Selector _migrantSelector)
+	{
+		migrantSelector = _migrantSelector;
+	}
+	
+
+
+	/**
+	 * Sets the Replacer that picks the individual an immigrant replaces (it must be safe for concurrent use). Each island's elite is never replaced.
+	 * @param _migrantReplacer The Replacer (replace-worst by default).
+	 */
+	public synchronized void setMigrantReplacer(Replacer _migrantReplacer)
+	{
+		migrantReplacer = _migrantReplacer;
+	}
+	
+
+
+	/**
+	 * Runs every island for the specified number of generations, and waits until all have finished.
+	 * @param generations The number of generations.
+	 * @throws BreederException If any island fails (the others are then aborted).
+	 */
+	public synchronized void run(int generations) throws BreederException
+	{
+		if (islands.isEmpty())
+			throw new BreederException("There are no islands");
+		int genomeLength = islands.get(0).breeder.getParameters().getInt(Parameters.GENOME_LENGTH);
+		for (Island island : islands)
+			if (island.breeder.getParameters().getInt(Parameters.GENOME_LENGTH) != genomeLength)
+				throw new BreederException("All islands must have the same genome length");
+		
+		failed = false;
+		failure.set(null);
+		LinkedBlockingQueue<Integer> finished = new LinkedBlockingQueue<Integer>();
+		int[] remaining = new int[islands.size()];
+		for (int i = 0; i < islands.size(); i++)
+		{
+			remaining[i] = generations;
+			submitEpoch(i, remaining, finished);
+		}
+		
+		// Resubmit every island as soon as its epoch ends; submitting from this thread queues it behind the other islands
+		int active = islands.size();
+		boolean interrupted = false;
+		while (active > 0)
+		{
+			try
+			{
+				int index = finished.take();
+				if (failed || remaining[index] == 0)
+					active--;
+				else
+					submitEpoch(index, remaining, finished);
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+				fail(-1, e);
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		
+		if (failure.get() != null)
+			throw new BreederException(failure.get().getMessage(), failure.get().getCause());
+	}
+	
+
+
+	/**
+	 * Returns the number of islands.
+	 * @return The number of islands.
+	 */
+	public int getIslandCount()
+	{
+		return islands.size();
+	}
+	
+
+
+	/**
+	 * Returns the Breeder of an island, e.g. to configure it before a run.
+	 * @param island The index of the island.
+	 * @return The Breeder of the island.
+	 */
+	public Breeder getBreeder(int island)
+	{
+		return islands.get(island).breeder;
+	}
+	
+
+
+	/**
+	 * Returns the latest snapshot of an island. Does not wait for a run to finish.
+	 * @param island The index of the island.
+	 * @return The snapshot of the island.
+	 */
+	public GenerationSnapshot getSnapshot(int island)
+	{
+		return islands.get(island).breeder.getSnapshot();
+	}
+	
+
+
+	/**
+	 * Returns the number of immigrants that an island has accepted so far. Does not wait for a run to finish.
+	 * @param island The index of the island.
+	 * @return The number of accepted immigrants.
+	 */
+	public int getImmigrants(int island)
+	{
+		return islands.get(island).immigrants.get();
+	}
+	
+
+
+	/**
+	 * Returns the island that has found the best Genome so far. Does not wait for a run to finish.
+	 * @return The index of the island, or -1 if no island has been stepped yet.
+	 */
+	public int getBestIsland()
+	{
+		int bestIsland = -1;
+		Genome best = null;
+		for (int i = 0; i < islands.size(); i++)
+		{
+			Genome genome = getSnapshot(i).getBestGenome();
+			if (genome != null && (best == null || objective.compare(genome, best) < 0))
+			{
+				best = genome;
+				bestIsland = i;
+			}
+		}
+		
+		return bestIsland;
+	}
+	
+
+
+	/**
+	 * Returns (a copy of) the best Genome found on any island so far. Does not wait for a run to finish.
+	 * @return The best Genome, or null if no island has been stepped yet.
+	 */
+	public Genome getBestGenome()
+	{
+		int bestIsland = getBestIsland();
+		return (bestIsland >= 0 ? getSnapshot(bestIsland).getBestGenome() : null);
+	}
+	
+
+
+	/**
+	 * Closes the Breeders of all islands, and shuts the shared pool down.
+	 */
+	public synchronized void close()
+	{
+		for (Island island : islands)
+			island.breeder.close();
+		pool.shutdown();
+	}
+	
+
+
+	/**
+	 * Submits the next epoch of an island to the pool.
+	 * @param index The index of the island.
+	 * @param remaining The number of generations each island has left to run.
+	 * @param finished The queue that the index of the island is put in when the epoch ends.
+	 */
+	private void submitEpoch(int index, int[] remaining, LinkedBlockingQueue<Integer> finished)
+	{
+		// Run up to the next migration
+		Breeder breeder = islands.get(index).breeder;
+		int epoch = Math.min(remaining[index], migrationInterval - breeder.getGeneration() % migrationInterval);
+		remaining[index] -= epoch;
+		pool.execute(() ->
+		{
+			try
+			{
+				runEpoch(index, epoch);
+			}
+			catch (BreederException | RuntimeException | Error e)
+			{
+				fail(index, e);
+			}
+			finally
+			{
+				finished.add(index);
+			}
+		});
+	}
+	
+
+
+	/**
+	 * Steps an island for the specified number of generations, taking in immigrants before each step and sending emigrants every migration interval.
+	 * @param index The index of the island.
+	 * @param generations The number of generations.
+	 * @throws BreederException If the island fails.
+	 */
+	private void runEpoch(int index, int generations) throws BreederException
+	{
+		Island island = islands.get(index);
+		Breeder breeder = island.breeder;
+		for (int g = 0; g < generations && !failed; g++)
+		{
+			// Take in the immigrants that have arrived so far (they wait in the inbox until there is a population to take them in)
+			Genome[] immigrants;
+			while (breeder.getGeneration() > 0 && (immigrants = island.inbox.poll()) != null)
+			{
+				RandomGenerator random = breeder.getRandomSource().stream(RandomSource.MIGRATION, breeder.getGeneration(), islands.size() + index);
+				island.immigrants.addAndGet(breeder.immigrate(immigrants, migrantReplacer, random));
+			}
+			
+			breeder.step();
+			
+			if (breeder.getGeneration() % migrationInterval == 0)
+				emigrate(index);
+		}
+	}
+	
+
+
+	/**
+	 * Records the first failure of a run, and aborts every island. Islands that fail because they were aborted are not recorded.
+	 * @param index The index of the failed island, or -1 if the run was interrupted.
+	 * @param e The failure.
+	 */
+	private void fail(int index, Throwable e)
+	{
+		String message = (index >= 0 ? "Island " + index + " failed: " : "Island model interrupted: ") + e;
+		failure.compareAndSet(null, new BreederException(message, e));
+		failed = true;
+		abortAll();
+	}
+	
+
+
+	/**
+	 * Sends emigrants from an island to the islands chosen by the topology.
+	 * @param index The index of the island.
+	 */
+	private void emigrate(int index)
+	{
+		Breeder breeder = islands.get(index).breeder;
+		RandomGenerator random = breeder.getRandomSource().stream(RandomSource.MIGRATION, breeder.getGeneration(), index);
+		Genome[] emigrants = breeder.emigrants(migrationSize, migrantSelector, random);
+		if (emigrants.length == 0)
+			return;
+		
+		int[] targets = topology.getTargets(index, islands.size(), random);
+		for (int t = 0; t < targets.length; t++)
+		{
+			// Every target gets its own copies
+			Genome[] migrants = emigrants;
+			if (t > 0)
+			{
+				migrants = new Genome[emigrants.length];
+				for (int i = 0; i < migrants.length; i++)
+					migrants[i] = (Genome)emigrants[i].clone();
+			}
+			islands.get(targets[t]).inbox.offer(migrants);
+		}
+	}
+	
+
+
+	/**
+	 * Aborts the step in progress on every island.
+	 */
+	private void abortAll()
+	{
+		for (Island island : islands)
+			island.breeder.abort();
+	}
+	
+
+
+	/**
+	 * This class holds the Breeder of an island, and the inbox its immigrants arrive in.
+	 */
+	private static class Island
+	{
+		private Breeder breeder;
+		private ConcurrentLinkedQueue<Genome[]> inbox = new ConcurrentLinkedQueue<Genome[]>();
+		private AtomicInteger immigrants = new AtomicInteger(0);
+		
+
+
+		/**
+		 * Constructs a new Island.
+		 * @param _breeder The Breeder of the island.
+		 */
+		public Island(Breeder _breeder)
+		{
+			breeder = _breeder;
+		}
+	}
+}
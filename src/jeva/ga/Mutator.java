@@ -21,6 +21,10 @@ package jeva.ga;
 
 
 
+import java.util.random.RandomGenerator;
+
+
+
 /**
  * Identifies a mutation operator
  * 
@@ -34,4 +38,19 @@ public interface Mutator
 	 * @param mr The mutation rate
 	 */
 	public void mutate(Genome genome, double mr);
+	
+
+
+	/**
+	 * Performs mutation on the specified genome, drawing random numbers from the specified stream
+	 * <p>
+	 * The default implementation ignores the stream; operators should override it so that seeded runs are reproducible.
+	 * @param genome The genome to mutate
+	 * @param mr The mutation rate
+	 * @param random The random number stream
+	 */
+	public default void mutate(Genome genome, double mr, RandomGenerator random)
+	{
+		mutate(genome, mr);
+	}
 }
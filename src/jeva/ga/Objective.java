@@ -21,16 +21,28 @@ package jeva.ga;
 
 
 
+import java.io.Serializable;
 import java.util.Comparator;
 
 
 
 /**
  * Identifies an optimisation objective
+ * <p>
+ * Objectives are serialisable, so that they can be written along with a {@link Population}.
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public interface Objective extends Comparator<Selectable>
+public interface Objective extends Comparator<Selectable>, Serializable
 {
-	
+	/**
+	 * Compares two fitness values, best first, in the same order as {@link #compare(Object, Object)}
+	 * @param fitness1 The first fitness
+	 * @param fitness2 The second fitness
+	 * @return A negative integer, zero, or a positive integer as the first fitness is better than, as good as, or worse than the second
+	 */
+	public default int compareFitness(double fitness1, double fitness2)
+	{
+		return compare(() -> fitness1, () -> fitness2);
+	}
 }
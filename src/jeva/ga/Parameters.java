@@ -23,6 +23,7 @@ import java.util.Set;
 import jeva.ga.crossoverer.CrossovererSingle;
 import jeva.ga.initializer.InitializerRandom;
 import jeva.ga.mutator.MutatorFlip;
+import jeva.ga.replacer.ReplacerWorst;
 import jeva.ga.selector.SelectorRouletteRebased;
 
 
@@ -43,6 +44,8 @@ public class Parameters implements Serializable
 	public static final String CROSSOVERER = "CROSSOVERER";
 	public static final String MUTATOR = "MUTATOR";
 	public static final String SELECTOR = "SELECTOR";
+	public static final String REPLACER = "REPLACER";
+	public static final String SEED = "SEED";
 	
 	private transient PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 	private HashMap<String, Object> parameters = new HashMap<String, Object>();
@@ -62,6 +65,7 @@ public class Parameters implements Serializable
 		put(CROSSOVERER, new CrossovererSingle());
 		put(MUTATOR, new MutatorFlip());
 		put(SELECTOR, new SelectorRouletteRebased());
+		put(REPLACER, new ReplacerWorst());
 	}
 	
 
@@ -127,6 +131,18 @@ public class Parameters implements Serializable
 	
 
 
+	/**
+	 * Returns a long parameter value having the specified key
+	 * @param key The key of the parameter
+	 * @return The value
+	 */
+	public long getLong(String key)
+	{
+		return ((Number)parameters.get(key)).longValue();
+	}
+	
+
+
 	/**
 	 * Returns a double parameter value having the specified key
 	 * @param key The key of the parameter
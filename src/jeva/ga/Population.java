@@ -21,21 +21,48 @@ package jeva.ga;
 
 
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Collections;
 
+import jeva.util.RandomSource;
+
 
 
 /**
  * Defines a population of individuals
+ * <p>
+ * Sorting reads every fitness once into a primitive column, which then serves the fitness statistics until the genomes are replaced.
+ * <p>
+ * A population may instead keep its genomes in the rows of a {@link GenomeStore}. It then holds no Genome objects: {@link #getGenome(int)} returns a copy, {@link #setGenome(int, Genome)} copies the genome into its row, and sorting only permutes an index of rows.
+ * <p>
+ * A population is serialised as its objective followed by its genomes, in order, in the compact form of {@link GenomeCodec}. One kept in a store is read back onto the heap.
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class Population implements Serializable
+public class Population implements Externalizable
 {
+	private static final long serialVersionUID = 1L;
+	
 	private Objective objective;
 	private ArrayList<Genome> genomes = new ArrayList<Genome>();
+	private transient double[] fitnesses = null;
+	private transient GenomeStore store = null;
+	private transient int[] rows = null;
+	private transient Selectable[] slots = null;
+	
+
+
+	/**
+	 * Creates a new, empty Population object without an objective, to be read with {@link #readExternal(ObjectInput)}
+	 */
+	public Population()
+	{
+		this(null);
+	}
 	
 
 
@@ -50,6 +77,34 @@ public class Population implements Serializable
 	
 
 
+	/**
+	 * Creates a new Population object with the specified optimisation objective and a fixed number of (empty) slots, to be filled with {@link #setGenome(int, Genome)}. Distinct slots may be filled concurrently.
+	 * @param _objective The optimisation objective
+	 * @param size The number of slots
+	 */
+	public Population(Objective _objective, int size)
+	{
+		objective = _objective;
+		genomes = new ArrayList<Genome>(Collections.<Genome>nCopies(size, null));
+	}
+	
+
+
+	/**
+	 * Creates a new Population object with the specified optimisation objective, whose genomes are kept in the rows of the specified store
+	 * @param _objective The optimisation objective
+	 * @param _store The store (one genome per row)
+	 */
+	public Population(Objective _objective, GenomeStore _store)
+	{
+		objective = _objective;
+		genomes = null;
+		store = _store;
+		rows = identity(_store.getSize());
+	}
+	
+
+
 	/**
 	 * Initialises the Population object
 	 * @param size The population size
@@ -58,8 +113,19 @@ public class Population implements Serializable
 	 */
 	public void initialise(int size, int genomeLength, Initializer initializer)
 	{
-		genomes.clear();
+		fitnesses = null;
+		if (store != null)
+		{
+			Genome newGenome = newStoredGenome(size, genomeLength);
+			for (int i = 0; i < size; i++)
+			{
+				initializer.initialize(newGenome);
+				store.write(rows[i], newGenome);
+			}
+			return;
+		}
 		
+		genomes.clear();
 		for (int i = 0; i < size; i++)
 		{
 			Genome newGenome = new Genome(genomeLength);
@@ -70,13 +136,68 @@ public class Population implements Serializable
 	
 
 
+	/**
+	 * Initialises the Population object, drawing each genome's random bits from its own stream of the specified source, so that the result depends only on the seed
+	 * @param size The population size
+	 * @param genomeLength The genome length in bits
+	 * @param initializer The initializer operator to use
+	 * @param randomSource The source of random number streams
+	 */
+	public void initialise(int size, int genomeLength, Initializer initializer, RandomSource randomSource)
+	{
+		fitnesses = null;
+		if (store != null)
+		{
+			Genome newGenome = newStoredGenome(size, genomeLength);
+			for (int i = 0; i < size; i++)
+			{
+				initializer.initialize(newGenome, randomSource.stream(RandomSource.INITIALISATION, 0, i));
+				store.write(rows[i], newGenome);
+			}
+			return;
+		}
+		
+		genomes.clear();
+		for (int i = 0; i < size; i++)
+		{
+			Genome newGenome = new Genome(genomeLength);
+			initializer.initialize(newGenome, randomSource.stream(RandomSource.INITIALISATION, 0, i));
+			genomes.add(newGenome);
+		}
+	}
+	
+
+
 	/**
 	 * Applies damage to the population's individual genomes [EXPERIMENTAL]
 	 */
 	public void damage()
 	{
-		for (Genome genome : genomes)
+		for (int i = 0; i < getSize(); i++)
+		{
+			Genome genome = getGenome(i);
 			genome.damage();
+			setGenome(i, genome);
+		}
+		fitnesses = null;
+	}
+	
+
+
+	/**
+	 * Applies damage to the population's individual genomes, drawing each genome's random bits from its own stream of the specified source [EXPERIMENTAL]
+	 * @param randomSource The source of random number streams
+	 * @param generation The generation the damage is applied in
+	 */
+	public void damage(RandomSource randomSource, long generation)
+	{
+		for (int i = 0; i < getSize(); i++)
+		{
+			Genome genome = getGenome(i);
+			genome.damage(randomSource.stream(RandomSource.DAMAGE, generation, i));
+			setGenome(i, genome);
+		}
+		fitnesses = null;
 	}
 	
 
@@ -87,53 +208,132 @@ public class Population implements Serializable
 	 */
 	public int getSize()
 	{
-		return genomes.size();
+		return (store != null ? rows.length : genomes.size());
 	}
 	
 
 
 	/**
-	 * Returns the Genome at the specified index
+	 * Returns the Genome at the specified index (a copy, if the genomes are kept in a store)
 	 * @param i The index of the Genome
 	 * @return The ith Genome
 	 */
 	public Genome getGenome(int i)
 	{
+		if (store != null)
+		{
+			Genome genome = new Genome(store.getGenomeLength());
+			store.read(rows[i], genome);
+			return genome;
+		}
+		
 		return genomes.get(i);
 	}
 	
 
 
 	/**
-	 * Updates the Genome at the specified index 
+	 * Updates the Genome at the specified index (by copying it, if the genomes are kept in a store)
 	 * @param i The index of the Genome
 	 * @param genome The new Genome
 	 */
 	public void setGenome(int i, Genome genome)
 	{
-		genomes.set(i, genome);
+		if (store != null)
+			store.write(rows[i], genome);
+		else
+			genomes.set(i, genome);
+		fitnesses = null;
 	}
 	
 
 
 	/**
-	 * Returns an ArrayList with all the Genomes in this Population 
+	 * Returns an ArrayList with all the Genomes in this Population. Genomes changed or replaced through it must be sorted again before the fitness statistics are read.
+	 * <p>
+	 * If the genomes are kept in a store, the list holds copies of all of them.
 	 * @return An ArrayList with all the Genomes in this Population
 	 */
 	public ArrayList<Genome> getGenomes()
 	{
+		if (store != null)
+		{
+			ArrayList<Genome> copies = new ArrayList<Genome>(rows.length);
+			for (int i = 0; i < rows.length; i++)
+				copies.add(getGenome(i));
+			return copies;
+		}
+		
 		return genomes;
 	}
 	
 
 
+	/**
+	 * Returns the individuals of this Population as Selectables, in order. If the genomes are kept in a store, these are lightweight handles rather than Genomes, created once per Population; {@link #getIndex(Selectable)} maps them back. Selecting from large stores is cheaper through {@link Selector#prepare(Objective, double[])} over {@link #getFitnesses()}.
+	 * @return The individuals as Selectables
+	 */
+	public Selectable[] getSelectables()
+	{
+		if (store == null)
+			return genomes.toArray(new Selectable[] {});
+		
+		if (slots == null)
+		{
+			slots = new Selectable[rows.length];
+			for (int i = 0; i < slots.length; i++)
+				slots[i] = new Slot(this, i);
+		}
+		return slots;
+	}
+	
+
+
+	/**
+	 * Returns the index of a handle returned by {@link #getSelectables()} for a Population kept in a store.
+	 * @param selectable The handle
+	 * @return The index of the individual
+	 */
+	public int getIndex(Selectable selectable)
+	{
+		return ((Slot)selectable).index;
+	}
+	
+
+
+	/**
+	 * Returns the store holding the genomes
+	 * @return The store, or null if the genomes are held on the heap
+	 */
+	public GenomeStore getStore()
+	{
+		return store;
+	}
+	
+
+
+	/**
+	 * Returns the store row holding the Genome at the specified index
+	 * @param i The index of the Genome
+	 * @return The row
+	 */
+	public int getRow(int i)
+	{
+		return rows[i];
+	}
+	
+
+
 	/**
 	 * Adds the specified Genome into this Population
 	 * @param genome The new Genome to add
 	 */
 	public void addGenome(Genome genome)
 	{
+		if (store != null)
+			throw new UnsupportedOperationException("Cannot add genomes to a population kept in a store");
 		genomes.add(genome);
+		fitnesses = null;
 	}
 	
 
@@ -144,7 +344,7 @@ public class Population implements Serializable
 	 */
 	public Genome getBestGenome()
 	{
-		return genomes.get(0);
+		return getGenome(0);
 	}
 	
 
@@ -155,7 +355,7 @@ public class Population implements Serializable
 	 */
 	public Genome getWorstGenome()
 	{
-		return genomes.get(genomes.size() - 1);
+		return getGenome(getSize() - 1);
 	}
 	
 
@@ -166,7 +366,7 @@ public class Population implements Serializable
 	 */
 	public double getFitnessBest()
 	{
-		return getBestGenome().getFitness();
+		return getFitness(0);
 	}
 	
 
@@ -178,9 +378,9 @@ public class Population implements Serializable
 	public double getFitnessMean()
 	{
 		double fitness = 0;
-		for (Genome genome : genomes)
-			fitness += genome.getFitness();
-		fitness /= (double)(genomes.size());
+		for (int i = 0; i < getSize(); i++)
+			fitness += getFitness(i);
+		fitness /= (double)(getSize());
 		return fitness;
 	}
 	
@@ -192,7 +392,77 @@ public class Population implements Serializable
 	 */
 	public double getFitnessWorst()
 	{
-		return getWorstGenome().getFitness();
+		return getFitness(getSize() - 1);
+	}
+	
+
+
+	/**
+	 * Returns the fitness of the Genome at the specified index, from the fitness column if the population has been sorted.
+	 * @param i The index of the Genome
+	 * @return The fitness of the ith Genome
+	 */
+	public double getFitness(int i)
+	{
+		if (fitnesses != null)
+			return fitnesses[i];
+		if (store != null)
+			return storedFitness(rows[i]);
+		return genomes.get(i).getFitness();
+	}
+	
+
+
+	/**
+	 * Returns the fitnesses of all the Genomes, in order, without creating any Genomes or handles.
+	 * @return A new array with the fitnesses.
+	 */
+	public double[] getFitnesses()
+	{
+		return (fitnesses != null ? fitnesses.clone() : readFitnesses());
+	}
+	
+
+
+	/**
+	 * Returns a heap Population holding copies of the first n Genomes (the best n, once sorted).
+	 * @param n The number of Genomes to copy.
+	 * @return The new Population.
+	 */
+	public Population copyBest(int n)
+	{
+		Population copy = new Population(objective);
+		for (int i = 0; i < Math.min(n, getSize()); i++)
+			copy.genomes.add(copyGenome(i));
+		return copy;
+	}
+	
+
+
+	/**
+	 * Makes this heap Population an exact copy of the source Population, recycling its own Genomes (see {@link Genome#copyFrom(Genome)}); used to keep the best population without allocating.
+	 * @param source The Population to copy, of the same size and genome length.
+	 */
+	public void copyFrom(Population source)
+	{
+		if (store != null)
+			throw new IllegalStateException("Cannot copy into a population kept in a store");
+		if (source.getSize() != getSize())
+			throw new IllegalArgumentException("Cannot copy a population of " + source.getSize() + " genomes into one of " + getSize());
+		
+		for (int i = 0; i < getSize(); i++)
+		{
+			if (source.store != null)
+				source.store.read(source.rows[i], genomes.get(i));
+			else
+				genomes.get(i).copyFrom(source.genomes.get(i));
+		}
+		if (source.fitnesses == null)
+			fitnesses = null;
+		else if (fitnesses != null && fitnesses.length == source.fitnesses.length)
+			System.arraycopy(source.fitnesses, 0, fitnesses, 0, fitnesses.length);
+		else
+			fitnesses = source.fitnesses.clone();
 	}
 	
 
@@ -202,7 +472,270 @@ public class Population implements Serializable
 	 */
 	public void sort()
 	{
-		Collections.sort(genomes, objective);
+		// Stable, like Collections.sort, but comparing primitive fitnesses read once per Genome
+		double[] keys = readFitnesses();
+		int[] order = identity(keys.length);
+		mergeSort(order, new int[order.length], keys, 0, order.length);
+		arrange(order, keys);
+	}
+	
+
+
+	/**
+	 * Partially sorts the Genomes in this Population in linear time: the best k are moved to the front in order, and the worst to the back. The rest are left in no particular order.
+	 * @param k The number of best Genomes to order (at least the best one is always ordered).
+	 */
+	public void sortPartial(int k)
+	{
+		double[] keys = readFitnesses();
+		int n = keys.length;
+		k = Math.max(1, Math.min(k, n));
+		if (n == 0)
+			return;
+		
+		int[] order = identity(n);
+		selectBest(order, keys, k);
+		mergeSort(order, new int[k], keys, 0, k);
+		if (k < n)
+		{
+			int worst = k;
+			for (int i = k + 1; i < n; i++)
+				if (objective.compareFitness(keys[order[i]], keys[order[worst]]) >= 0)
+					worst = i;
+			swap(order, worst, n - 1);
+		}
+		arrange(order, keys);
+	}
+	
+
+
+	/**
+	 * Prepares this Population for its Genomes to be overwritten in place: discards the fitness column, and restores the natural order of the store rows so that passes over the population access them sequentially.
+	 */
+	void recycle()
+	{
+		fitnesses = null;
+		if (store != null)
+			for (int i = 0; i < rows.length; i++)
+				rows[i] = i;
+	}
+	
+
+
+	/**
+	 * Reads the fitness of every Genome into a new array.
+	 * @return The fitnesses.
+	 */
+	private double[] readFitnesses()
+	{
+		double[] keys = new double[getSize()];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = (store != null ? storedFitness(rows[i]) : genomes.get(i).getFitness());
+		return keys;
+	}
+	
+
+
+	/**
+	 * Returns a copy of the Genome at the specified index.
+	 * @param i The index of the Genome.
+	 * @return The copy.
+	 */
+	private Genome copyGenome(int i)
+	{
+		return (store != null ? getGenome(i) : (Genome)genomes.get(i).clone());
+	}
+	
+
+
+	/**
+	 * Returns the fitness of a store row.
+	 * @param row The row.
+	 * @return The fitness.
+	 */
+	private double storedFitness(int row)
+	{
+		if (!store.isEvaluated(row))
+			throw new IllegalStateException("Error accessing genome fitness: The genome has not been evaluated.");
+		return store.getFitness(row);
+	}
+	
+
+
+	/**
+	 * Returns a Genome to copy into the store, after checking that the store has the requested shape.
+	 * @param size The population size.
+	 * @param genomeLength The genome length in bits.
+	 * @return The Genome.
+	 */
+	private Genome newStoredGenome(int size, int genomeLength)
+	{
+		if (size != rows.length || genomeLength != store.getGenomeLength())
+			throw new IllegalArgumentException("The store holds " + rows.length + " genomes of " + store.getGenomeLength() + " bits, not " + size + " of " + genomeLength);
+		return new Genome(genomeLength);
+	}
+	
+
+
+	/**
+	 * Reorders the Genomes, and sets the fitness column to match.
+	 * @param order The new order, as indices into the current one.
+	 * @param keys The fitnesses, in the current order.
+	 */
+	private void arrange(int[] order, double[] keys)
+	{
+		if (store != null)
+		{
+			int[] arrangedRows = new int[order.length];
+			fitnesses = new double[order.length];
+			for (int i = 0; i < order.length; i++)
+			{
+				arrangedRows[i] = rows[order[i]];
+				fitnesses[i] = keys[order[i]];
+			}
+			rows = arrangedRows;
+			return;
+		}
+		
+		ArrayList<Genome> arranged = new ArrayList<Genome>(order.length);
+		double[] arrangedFitnesses = new double[order.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			arranged.add(genomes.get(order[i]));
+			arrangedFitnesses[i] = keys[order[i]];
+		}
+		genomes = arranged;
+		fitnesses = arrangedFitnesses;
+	}
+	
+
+
+	/**
+	 * Stably sorts a range of indices, best fitness first.
+	 * @param order The indices.
+	 * @param scratch A scratch array at least as long as the range.
+	 * @param keys The fitnesses the indices refer to.
+	 * @param from The start of the range (inclusive).
+	 * @param to The end of the range (exclusive).
+	 */
+	private void mergeSort(int[] order, int[] scratch, double[] keys, int from, int to)
+	{
+		if (to - from <= 16)
+		{
+			// Insertion sort for short runs
+			for (int i = from + 1; i < to; i++)
+			{
+				int index = order[i];
+				int j = i;
+				for (; j > from && objective.compareFitness(keys[order[j - 1]], keys[index]) > 0; j--)
+					order[j] = order[j - 1];
+				order[j] = index;
+			}
+			return;
+		}
+		
+		int middle = (from + to) >>> 1;
+		mergeSort(order, scratch, keys, from, middle);
+		mergeSort(order, scratch, keys, middle, to);
+		if (objective.compareFitness(keys[order[middle - 1]], keys[order[middle]]) <= 0)
+			return;
+		
+		System.arraycopy(order, from, scratch, 0, middle - from);
+		int i = 0, j = middle, o = from;
+		while (i < middle - from && j < to)
+			order[o++] = (objective.compareFitness(keys[order[j]], keys[scratch[i]]) < 0 ? order[j++] : scratch[i++]);
+		while (i < middle - from)
+			order[o++] = scratch[i++];
+	}
+	
+
+
+	/**
+	 * Moves the indices of the k best fitnesses to the front (in no particular order), by three-way quickselect.
+	 * @param order The indices.
+	 * @param keys The fitnesses the indices refer to.
+	 * @param k The number of best fitnesses.
+	 */
+	private void selectBest(int[] order, double[] keys, int k)
+	{
+		int low = 0;
+		int high = order.length - 1;
+		while (low < high)
+		{
+			double pivot = median(keys[order[low]], keys[order[(low + high) >>> 1]], keys[order[high]]);
+			
+			// Partition into [low, lt) better, [lt, gt] equal and (gt, high] worse than the pivot
+			int lt = low, i = low, gt = high;
+			while (i <= gt)
+			{
+				int c = objective.compareFitness(keys[order[i]], pivot);
+				if (c < 0)
+					swap(order, lt++, i++);
+				else if (c > 0)
+					swap(order, i, gt--);
+				else
+					i++;
+			}
+			
+			if (k <= lt)
+				high = lt - 1;
+			else if (k > gt + 1)
+				low = gt + 1;
+			else
+				return;
+		}
+	}
+	
+
+
+	/**
+	 * Returns the median of three fitnesses, according to the optimisation objective.
+	 * @param a The first fitness.
+	 * @param b The second fitness.
+	 * @param c The third fitness.
+	 * @return The median fitness.
+	 */
+	private double median(double a, double b, double c)
+	{
+		if (objective.compareFitness(a, b) > 0)
+		{
+			double t = a;
+			a = b;
+			b = t;
+		}
+		if (objective.compareFitness(b, c) <= 0)
+			return b;
+		return (objective.compareFitness(a, c) > 0 ? a : c);
+	}
+	
+
+
+	/**
+	 * Returns the identity permutation.
+	 * @param n The size of the permutation.
+	 * @return The array {0, 1, ..., n - 1}.
+	 */
+	private static int[] identity(int n)
+	{
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		return order;
+	}
+	
+
+
+	/**
+	 * Swaps two entries of an index array.
+	 * @param order The index array.
+	 * @param i The first entry.
+	 * @param j The second entry.
+	 */
+	private static void swap(int[] order, int i, int j)
+	{
+		int t = order[i];
+		order[i] = order[j];
+		order[j] = t;
 	}
 	
 
@@ -213,22 +746,100 @@ public class Population implements Serializable
 	public String toString()
 	{
 		StringBuffer sb = new StringBuffer();
-		for (int i = 0; i < genomes.size(); i++)
-			sb.append(i + ":\t" + genomes.get(i).getFitness() + "\t" + genomes.get(i).toString() + "\n");
+		for (int i = 0; i < getSize(); i++)
+			sb.append(i + ":\t" + getFitness(i) + "\t" + getGenome(i).toString() + "\n");
 		return sb.toString();
 	}
 	
 
 
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal(ObjectOutput out) throws IOException
+	{
+		out.writeObject(objective);
+		out.writeInt(getSize());
+		Genome genome = (store != null ? new Genome(store.getGenomeLength()) : null);
+		for (int i = 0; i < getSize(); i++)
+		{
+			if (store != null)
+				store.read(rows[i], genome);
+			else
+				genome = genomes.get(i);
+			
+			// Empty slots (of a Population that is being filled) are kept empty
+			out.writeBoolean(genome != null);
+			if (genome != null)
+				GenomeCodec.write(genome, out, true);
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+	{
+		objective = (Objective)in.readObject();
+		int size = in.readInt();
+		genomes = new ArrayList<Genome>(size);
+		for (int i = 0; i < size; i++)
+			genomes.add(in.readBoolean() ? GenomeCodec.read(in) : null);
+		fitnesses = null;
+		store = null;
+		rows = null;
+		slots = null;
+	}
+	
+
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#clone()
 	 */
 	public Object clone()
 	{
+		// A population kept in a store is cloned onto the heap
 		Population clone = new Population(this.objective);
 		clone.genomes = new ArrayList<Genome>();
-		for (Genome genome : this.genomes)
-			clone.genomes.add((Genome)genome.clone());
+		for (int i = 0; i < getSize(); i++)
+			clone.genomes.add(copyGenome(i));
+		clone.fitnesses = (this.fitnesses != null ? this.fitnesses.clone() : null);
 		return clone;
 	}
+	
+
+
+	/**
+	 * A lightweight handle on an individual of a Population kept in a store.
+	 */
+	private static class Slot implements Selectable
+	{
+		private final Population population;
+		private final int index;
+		
+
+
+		/**
+		 * Constructs a new Slot.
+		 * @param _population The Population.
+		 * @param _index The index of the individual.
+		 */
+		public Slot(Population _population, int _index)
+		{
+			population = _population;
+			index = _index;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Selectable#getFitness()
+		 */
+		public double getFitness()
+		{
+			return population.getFitness(index);
+		}
+	}
 }
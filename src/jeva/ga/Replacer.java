@@ -0,0 +1,45 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.random.RandomGenerator;
+
+
+
+/**
+ * Identifies a replacement operator, which decides which individual of a steady-state population a newly evaluated child replaces
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface Replacer
+{
+	/**
+	 * Chooses the individual to be replaced by a child
+	 * @param objective The optimisation objective
+	 * @param fitnesses The fitnesses of the population, sorted best first (which must not be modified)
+	 * @param eliteSize The number of best individuals that should not be replaced
+	 * @param fitness The fitness of the child
+	 * @param random The random number stream
+	 * @return The index of the individual to replace, or -1 to discard the child
+	 */
+	public int replace(Objective objective, double[] fitnesses, int eliteSize, double fitness, RandomGenerator random);
+}
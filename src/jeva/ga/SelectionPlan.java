@@ -0,0 +1,96 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga;
+
+
+
+import java.util.random.RandomGenerator;
+
+
+
+/**
+ * Identifies a selection plan: the state a Selector prepares once per generation, from which any number of individuals can then be drawn cheaply
+ * <p>
+ * Plans are immutable once prepared, so a single plan may be drawn from by many threads at once.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface SelectionPlan
+{
+	/**
+	 * Performs a single selection
+	 * @param random The random number stream
+	 * @return The selected individual
+	 */
+	public Selectable select(RandomGenerator random);
+	
+
+
+	/**
+	 * Performs n selections. Plans whose Selector picks several individuals together (e.g. the best n) must override this.
+	 * <p>
+	 * The default implementation performs n single selections.
+	 * @param n The number of individuals to pick
+	 * @param random The random number stream
+	 * @return The selected individuals
+	 */
+	public default Selectable[] select(int n, RandomGenerator random)
+	{
+		Selectable[] selected = new Selectable[n];
+		for (int index = 0; index < n; index++)
+			selected[index] = select(random);
+		
+		return selected;
+	}
+	
+
+
+	/**
+	 * Performs a single selection, returning the index of the selected individual
+	 * <p>
+	 * The default implementation throws an UnsupportedOperationException; plans prepared by {@link Selector#prepare(Objective, double[])} implement it.
+	 * @param random The random number stream
+	 * @return The index of the selected individual
+	 */
+	public default int selectIndex(RandomGenerator random)
+	{
+		throw new UnsupportedOperationException("This plan does not select by index");
+	}
+	
+
+
+	/**
+	 * Performs n selections, returning the indices of the selected individuals. Plans whose Selector picks several individuals together must override this.
+	 * <p>
+	 * The default implementation performs n single selections.
+	 * @param n The number of individuals to pick
+	 * @param random The random number stream
+	 * @return The indices of the selected individuals
+	 */
+	public default int[] selectIndices(int n, RandomGenerator random)
+	{
+		int[] selected = new int[n];
+		for (int index = 0; index < n; index++)
+			selected[index] = selectIndex(random);
+		
+		return selected;
+	}
+}
@@ -21,6 +21,12 @@ package jeva.ga;
 
 
 
+import java.util.random.RandomGenerator;
+
+import jeva.ga.selectionplan.SelectionPlanIndexed;
+
+
+
 /**
  * Identifies a selection operator
  * 
@@ -36,4 +42,76 @@ public interface Selector
 	 * @return The selected individuals
 	 */
 	public Selectable[] select(Objective objective, Selectable[] selectables, int n);
+	
+
+
+	/**
+	 * Performs n selections, drawing random numbers from the specified stream
+	 * <p>
+	 * The default implementation ignores the stream; operators should override it so that seeded runs are reproducible.
+	 * @param objective The optimisation objective
+	 * @param selectables An array of Selectables
+	 * @param n The number of individuals to pick
+	 * @param random The random number stream
+	 * @return The selected individuals
+	 */
+	public default Selectable[] select(Objective objective, Selectable[] selectables, int n, RandomGenerator random)
+	{
+		return select(objective, selectables, n);
+	}
+	
+
+
+	/**
+	 * Checks whether this Selector requires the selectables to be sorted, best first. If not, the Breeder only orders the elite.
+	 * <p>
+	 * The default implementation returns true.
+	 * @return True, if the selectables must be sorted; false otherwise
+	 */
+	public default boolean requiresSortedSelectables()
+	{
+		return true;
+	}
+	
+
+
+	/**
+	 * Prepares a plan from which individuals can be drawn repeatedly, without repeating the per-call setup of {@link #select(Objective, Selectable[], int)}
+	 * <p>
+	 * The default implementation makes a plan that calls {@link #select(Objective, Selectable[], int, RandomGenerator)} for every draw, so that several individuals drawn at once are picked together, as they would be by the Selector itself.
+	 * @param objective The optimisation objective
+	 * @param selectables An array of Selectables (which must not be modified while the plan is used)
+	 * @return The selection plan
+	 */
+	public default SelectionPlan prepare(Objective objective, Selectable[] selectables)
+	{
+		Selectable[] candidates = selectables.clone();
+		return new SelectionPlan()
+		{
+			public Selectable select(RandomGenerator random)
+			{
+				return Selector.this.select(objective, candidates, 1, random)[0];
+			}
+			
+			public Selectable[] select(int n, RandomGenerator random)
+			{
+				return Selector.this.select(objective, candidates, n, random);
+			}
+		};
+	}
+	
+
+
+	/**
+	 * Prepares a plan over individuals given only by their fitnesses, from which indices can be drawn with {@link SelectionPlan#selectIndex(RandomGenerator)} and {@link SelectionPlan#selectIndices(int, RandomGenerator)}
+	 * <p>
+	 * This lets populations that keep their genomes in a store select without a heap object per individual. The default implementation wraps every fitness in a handle, and prepares a plan over the handles; the bundled selectors override it to work on the fitnesses alone.
+	 * @param objective The optimisation objective
+	 * @param fitnesses The fitnesses of the individuals, in order (which must not be modified while the plan is used)
+	 * @return The selection plan
+	 */
+	public default SelectionPlan prepare(Objective objective, double[] fitnesses)
+	{
+		return new SelectionPlanIndexed(this, objective, fitnesses);
+	}
 }
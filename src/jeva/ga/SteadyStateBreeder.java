@@ -0,0 +1,499 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+import jeva.util.RandomSource;
+
+
+
+/**
+ * This class implements a steady-state GA, which has no generations to wait for.
+ * <p>
+ * Each worker thread repeatedly breeds a child from the current population, evaluates it, and inserts it into the population straight away, replacing the individual chosen by the {@link Parameters#REPLACER} (if the child is good enough). There is no barrier between children, so a slow evaluation holds up only its own worker, and all workers stay busy however much the evaluation times vary.
+ * <p>
+ * The population is kept sorted, best first. Parents are drawn from a selection plan that is prepared again once as many children as there are workers have been inserted, i.e. about once for every child in flight, so selectors that require sorted selectables work unchanged. The {@link Parameters#ELITE_SIZE} best individuals are protected from tournament replacement.
+ * <p>
+ * Every child draws its random numbers from a {@link RandomSource} stream keyed by its birth number. With a single worker, a seeded run is therefore reproducible; with several, the order in which evaluations finish decides which population each child is bred from and inserted into.
+ * <p>
+ * Progress is counted in equivalent generations of {@link Parameters#POPULATION_SIZE} births, after each of which a {@link GenerationSnapshot} is published and the fitness history updated.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class SteadyStateBreeder implements AutoCloseable
+{
+	private Evaluator evaluator;
+	private Objective objective;
+	private Parameters parameters;
+	private int nThreads;
+	private ExecutorService workers;
+	private RandomSource randomSource;
+	private int historyLength;
+	
+	// Guarded by the population lock
+	private final Object populationLock = new Object();
+	private Genome[] members = null;
+	private double[] fitnesses = null;
+	private long births = 0;
+	private long replacements = 0;
+	private SelectionPlan selectionPlan = null;
+	private long selectionPlanBirths = 0;
+	private int stableGenerations = 0;
+	private double lastFitnessBest = Double.NaN;
+	private ArrayList<Double> fitnessHistoryBest = new ArrayList<Double>();
+	private ArrayList<Double> fitnessHistoryMean = new ArrayList<Double>();
+	private ArrayList<Double> fitnessHistoryWorst = new ArrayList<Double>();
+	
+	private volatile GenerationSnapshot snapshot;
+	private volatile boolean aborted = false;
+	
+
+
+	/**
+	 * Constructs a new SteadyStateBreeder instance with the specified parameters.
+	 * @param _evaluator The evaluation function to use (which must be safe for concurrent use).
+	 * @param _objective The optimisation objective.
+	 * @param _parameters The set of GA parameters to use.
+	 * @param _nThreads The number of worker threads, i.e. of children bred and evaluated concurrently.
+	 * @param _historyLength The maximum size of history to retain.
+	 */
+	public SteadyStateBreeder(Evaluator _evaluator, Objective _objective, Parameters _parameters, int _nThreads, int _historyLength)
+	{
+		if (_nThreads < 1)
+			throw new IllegalArgumentException("There must be at least one worker thread");
+		evaluator = _evaluator;
+		objective = _objective;
+		parameters = _parameters;
+		nThreads = _nThreads;
+		randomSource = (_parameters.contains(Parameters.SEED) ? new RandomSource(_parameters.getLong(Parameters.SEED)) : new RandomSource());
+		historyLength = _historyLength;
+		workers = Executors.newFixedThreadPool(_nThreads, runnable -> {
+			Thread thread = new Thread(runnable, "jeva-steady-state");
+			thread.setDaemon(true);
+			return thread;
+		});
+		publish();
+	}
+	
+
+
+	/**
+	 * Constructs a new SteadyStateBreeder instance with the specified parameters, and a worker thread per processor.
+	 * @param _evaluator The evaluation function to use (which must be safe for concurrent use).
+	 * @param _objective The optimisation objective.
+	 * @param _parameters The set of GA parameters to use.
+	 */
+	public SteadyStateBreeder(Evaluator _evaluator, Objective _objective, Parameters _parameters)
+	{
+		this(_evaluator, _objective, _parameters, Runtime.getRuntime().availableProcessors(), 0);
+	}
+	
+
+
+	/**
+	 * Returns the GA parameters.
+	 * @return The GA parameters.
+	 */
+	public Parameters getParameters()
+	{
+		return parameters;
+	}
+	
+
+
+	/**
+	 * Returns the state of the run after the last equivalent generation. It never blocks, even while children are being bred.
+	 * @return The last snapshot.
+	 */
+	public GenerationSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+	
+
+
+	/**
+	 * Returns the number of children evaluated so far (not counting the initial population).
+	 * @return The number of births.
+	 */
+	public long getBirths()
+	{
+		synchronized (populationLock)
+		{
+			return births;
+		}
+	}
+	
+
+
+	/**
+	 * Returns the number of children that replaced an individual of the population.
+	 * @return The number of replacements.
+	 */
+	public long getReplacements()
+	{
+		synchronized (populationLock)
+		{
+			return replacements;
+		}
+	}
+	
+
+
+	/**
+	 * Returns a copy of the current population, sorted best first. The Genomes themselves are shared, and must not be modified.
+	 * @return The current population, or null if the run has not started.
+	 */
+	public Population getPopulation()
+	{
+		synchronized (populationLock)
+		{
+			if (members == null)
+				return null;
+			Population population = new Population(objective, members.length);
+			for (int i = 0; i < members.length; i++)
+				population.setGenome(i, members[i]);
+			return population;
+		}
+	}
+	
+
+
+	/**
+	 * Returns the best Genome found so far.
+	 * @return A copy of the best Genome, or null if the run has not started.
+	 */
+	public Genome getBestGenome()
+	{
+		synchronized (populationLock)
+		{
+			return (members != null ? (Genome)members[0].clone() : null);
+		}
+	}
+	
+
+
+	/**
+	 * Breeds, evaluates and inserts the specified number of children, initialising (and evaluating) the population first if this is the first run. Returns once all of them have been inserted or discarded.
+	 * @param n The number of children.
+	 * @throws BreederException If something goes wrong
+	 */
+	public synchronized void run(long n) throws BreederException
+	{
+		if (members == null)
+			initialise();
+		
+		long target;
+		synchronized (populationLock)
+		{
+			target = births + n;
+		}
+		AtomicLong tickets = new AtomicLong(target - n);
+		aborted = false;
+		List<Future<?>> futures = new ArrayList<Future<?>>(nThreads);
+		for (int t = 0; t < nThreads; t++)
+			futures.add(workers.submit(() -> {
+				long ticket;
+				while (!aborted && (ticket = tickets.getAndIncrement()) < target)
+					birth(ticket);
+			}));
+		await(futures);
+	}
+	
+
+
+	/**
+	 * Stops the worker threads. The SteadyStateBreeder must not be run afterwards.
+	 */
+	public void close()
+	{
+		aborted = true;
+		workers.shutdownNow();
+	}
+	
+
+
+	/**
+	 * Creates and evaluates the initial Population, and sorts it.
+	 * @throws BreederException If something goes wrong
+	 */
+	private void initialise() throws BreederException
+	{
+		if (!parameters.contains(Parameters.GENOME_LENGTH))
+			throw new BreederException("The genome length has not been set");
+		int populationSize = parameters.getInt(Parameters.POPULATION_SIZE);
+		int genomeLength = parameters.getInt(Parameters.GENOME_LENGTH);
+		Initializer initializer = (Initializer)parameters.getOperator(Parameters.INITIALIZER);
+		Population population = new Population(objective);
+		try
+		{
+			population.initialise(populationSize, genomeLength, initializer, randomSource);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new BreederException(e.getMessage(), e);
+		}
+		
+		// Evaluate (the workers claim genomes one at a time, so stragglers do not hold up the others)
+		List<Genome> genomes = population.getGenomes();
+		AtomicLong next = new AtomicLong();
+		aborted = false;
+		List<Future<?>> futures = new ArrayList<Future<?>>(nThreads);
+		for (int t = 0; t < nThreads; t++)
+			futures.add(workers.submit(() -> {
+				long i;
+				while (!aborted && (i = next.getAndIncrement()) < genomes.size())
+					evaluator.evaluateGenome(genomes.get((int)i));
+			}));
+		await(futures);
+		population.sort();
+		
+		synchronized (populationLock)
+		{
+			members = population.getGenomes().toArray(new Genome[populationSize]);
+			fitnesses = new double[members.length];
+			for (int i = 0; i < members.length; i++)
+				fitnesses[i] = members[i].getFitness();
+			pushHistory();
+			publish();
+		}
+	}
+	
+
+
+	/**
+	 * Breeds, evaluates and inserts one child.
+	 * @param ticket The birth number of the child.
+	 */
+	private void birth(long ticket)
+	{
+		RandomGenerator random = randomSource.stream(RandomSource.BREEDING, ticket, 0);
+		SelectionPlan plan = getSelectionPlan();
+		Crossoverer crossoverer = (Crossoverer)parameters.getOperator(Parameters.CROSSOVERER);
+		Mutator mutator = (Mutator)parameters.getOperator(Parameters.MUTATOR);
+		
+		// Select parents, as a pair (which are never modified once in the population)
+		Selectable[] parents = plan.select(2, random);
+		Genome parent1 = (Genome)parents[0];
+		Genome parent2 = (Genome)parents[1];
+		
+		// Perform crossover
+		Genome child;
+		if (random.nextDouble() < parameters.getDouble(Parameters.CROSSOVER_RATE))
+			child = crossoverer.crossover(parent1, parent2, random);
+		else
+			child = (Genome)parent1.clone();
+		
+		// Perform mutation
+		mutator.mutate(child, parameters.getDouble(Parameters.MUTATION_RATE), random);
+		
+		// Evaluate, then insert
+		evaluator.evaluateGenome(child);
+		insert(child, random);
+	}
+	
+
+
+	/**
+	 * Returns the selection plan, preparing it again if as many children as there are workers have been inserted since it was prepared.
+	 * @return The selection plan.
+	 */
+	private SelectionPlan getSelectionPlan()
+	{
+		synchronized (populationLock)
+		{
+			if (selectionPlan == null || births - selectionPlanBirths >= nThreads)
+			{
+				Selector selector = (Selector)parameters.getOperator(Parameters.SELECTOR);
+				selectionPlan = selector.prepare(objective, members.clone());
+				selectionPlanBirths = births;
+			}
+			return selectionPlan;
+		}
+	}
+	
+
+
+	/**
+	 * Inserts an evaluated child into the population, in place of the individual chosen by the replacer, keeping it sorted.
+	 * @param child The child.
+	 * @param random The random number stream of the child.
+	 */
+	private void insert(Genome child, RandomGenerator random)
+	{
+		Replacer replacer = (Replacer)parameters.getOperator(Parameters.REPLACER);
+		int eliteSize = parameters.getInt(Parameters.ELITE_SIZE);
+		double fitness = child.getFitness();
+		synchronized (populationLock)
+		{
+			births++;
+			int replaced = replacer.replace(objective, fitnesses, eliteSize, fitness, random);
+			if (replaced >= 0)
+			{
+				// Find the place of the child (after any equally fit individuals), and shift the individuals in between
+				int place = upperBound(fitness);
+				if (place <= replaced)
+				{
+					System.arraycopy(members, place, members, place + 1, replaced - place);
+					System.arraycopy(fitnesses, place, fitnesses, place + 1, replaced - place);
+				}
+				else
+				{
+					place--;
+					System.arraycopy(members, replaced + 1, members, replaced, place - replaced);
+					System.arraycopy(fitnesses, replaced + 1, fitnesses, replaced, place - replaced);
+				}
+				members[place] = child;
+				fitnesses[place] = fitness;
+				replacements++;
+			}
+			
+			// Every population size of births makes an equivalent generation
+			if (births % members.length == 0)
+			{
+				pushHistory();
+				publish();
+			}
+		}
+	}
+	
+
+
+	/**
+	 * Returns the index of the first individual that is worse than the specified fitness.
+	 * @param fitness The fitness.
+	 * @return The index (the population size, if there is none).
+	 */
+	private int upperBound(double fitness)
+	{
+		int low = 0;
+		int high = fitnesses.length;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (objective.compareFitness(fitnesses[middle], fitness) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+	
+
+
+	/**
+	 * Adds a new history entry (set), deletes an old one if necessary, and counts stable generations.
+	 */
+	private void pushHistory()
+	{
+		double fitnessBest = fitnesses[0];
+		
+		if (!Double.isNaN(lastFitnessBest) && objective.compareFitness(fitnessBest, lastFitnessBest) >= 0)
+			stableGenerations++;
+		else
+			stableGenerations = 0;
+		lastFitnessBest = fitnessBest;
+		
+		fitnessHistoryBest.add(fitnessBest);
+		fitnessHistoryMean.add(getFitnessMean());
+		fitnessHistoryWorst.add(fitnesses[fitnesses.length - 1]);
+		if (fitnessHistoryBest.size() > historyLength)
+		{
+			fitnessHistoryBest.remove(0);
+			fitnessHistoryMean.remove(0);
+			fitnessHistoryWorst.remove(0);
+		}
+	}
+	
+
+
+	/**
+	 * Returns the mean fitness of the population.
+	 * @return The mean fitness.
+	 */
+	private double getFitnessMean()
+	{
+		double fitnessSum = 0;
+		for (double fitness : fitnesses)
+			fitnessSum += fitness;
+		return fitnessSum / fitnesses.length;
+	}
+	
+
+
+	/**
+	 * Publishes a snapshot of the state of the run.
+	 */
+	private void publish()
+	{
+		if (members == null)
+		{
+			snapshot = new GenerationSnapshot(0, 0, 0, null, Double.NaN, Double.NaN, Double.NaN, fitnessHistoryBest, fitnessHistoryMean, fitnessHistoryWorst);
+			return;
+		}
+		
+		int generation = (int)(births / members.length);
+		snapshot = new GenerationSnapshot(generation, stableGenerations, 0, (Genome)members[0].clone(), fitnesses[0], getFitnessMean(), fitnesses[fitnesses.length - 1], fitnessHistoryBest, fitnessHistoryMean, fitnessHistoryWorst);
+	}
+	
+
+
+	/**
+	 * Waits for the workers to finish, stopping the others as soon as one fails.
+	 * @param futures The futures of the workers.
+	 * @throws BreederException If a worker failed, or the wait was interrupted.
+	 */
+	private void await(List<Future<?>> futures) throws BreederException
+	{
+		BreederException failure = null;
+		for (Future<?> future : futures)
+		{
+			try
+			{
+				future.get();
+			}
+			catch (ExecutionException e)
+			{
+				aborted = true;
+				if (failure == null)
+					failure = new BreederException("A worker failed: " + e.getCause(), e.getCause());
+			}
+			catch (InterruptedException e)
+			{
+				aborted = true;
+				Thread.currentThread().interrupt();
+				if (failure == null)
+					failure = new BreederException("Interrupted while waiting for the workers", e);
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+}
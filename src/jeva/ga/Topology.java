@@ -0,0 +1,43 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.random.RandomGenerator;
+
+
+
+/**
+ * Identifies a migration topology, which decides the islands that receive the migrants of an island
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface Topology
+{
+	/**
+	 * Returns the islands that receive the migrants of the specified island
+	 * @param island The index of the sending island
+	 * @param nIslands The number of islands
+	 * @param random The random number stream
+	 * @return The indices of the receiving islands (never the sending island itself)
+	 */
+	public int[] getTargets(int island, int nIslands, RandomGenerator random);
+}
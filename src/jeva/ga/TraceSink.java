@@ -0,0 +1,46 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+/**
+ * Identifies a sink that records the genomes and fitnesses of every generation of a run, for later analysis
+ * <p>
+ * The Breeder records each generation once it has been evaluated and sorted, on the thread that steps it. Implementations report I/O failures as an {@link java.io.UncheckedIOException}, which the Breeder turns into a {@link BreederException}.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public interface TraceSink extends AutoCloseable
+{
+	/**
+	 * Records a generation
+	 * @param generation The generation
+	 * @param population The evaluated and sorted population (which must not be retained, as it may be recycled)
+	 */
+	public void record(int generation, Population population);
+	
+
+
+	/**
+	 * Writes out everything recorded so far and releases this sink. Nothing may be recorded afterwards.
+	 */
+	public void close();
+}
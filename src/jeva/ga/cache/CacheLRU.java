@@ -0,0 +1,117 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.cache;
+
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+
+
+/**
+ * Least-recently-used fitness cache.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class CacheLRU extends CacheStriped
+{
+	/**
+	 * Constructs a new CacheLRU.
+	 * @param _capacity The maximum number of entries
+	 */
+	public CacheLRU(int _capacity)
+	{
+		super(_capacity);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.cache.CacheStriped#createSegment(int)
+	 */
+	Segment createSegment(int segmentCapacity)
+	{
+		return new SegmentLRU(segmentCapacity);
+	}
+	
+
+
+	/**
+	 * A segment evicting its least recently used entries.
+	 */
+	private static class SegmentLRU extends Segment
+	{
+		private final int capacity;
+		private final LinkedHashMap<GenomeKey, Double> entries = new LinkedHashMap<GenomeKey, Double>(16, 0.75f, true);
+		
+
+
+		/**
+		 * Constructs a new SegmentLRU.
+		 * @param _capacity The maximum number of entries
+		 */
+		SegmentLRU(int _capacity)
+		{
+			capacity = _capacity;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#get(jeva.ga.cache.GenomeKey)
+		 */
+		Double get(GenomeKey key)
+		{
+			return entries.get(key);
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#put(jeva.ga.cache.GenomeKey, double)
+		 */
+		int put(GenomeKey key, double fitness)
+		{
+			entries.put(key, fitness);
+			
+			int evicted = 0;
+			for (Iterator<GenomeKey> it = entries.keySet().iterator(); entries.size() > capacity; evicted++)
+			{
+				it.next();
+				it.remove();
+			}
+			return evicted;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#size()
+		 */
+		int size()
+		{
+			return entries.size();
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#clear()
+		 */
+		void clear()
+		{
+			entries.clear();
+		}
+	}
+}
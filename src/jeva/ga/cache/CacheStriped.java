@@ -0,0 +1,244 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.cache;
+
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jeva.ga.Cache;
+import jeva.ga.Genome;
+
+
+
+/**
+ * Base class for bounded caches split into independently locked segments.
+ * <p>
+ * Each genome hashes to one segment, so concurrent evaluation threads only contend when they touch the same segment. The eviction policy is applied per segment, each holding an equal share of the total capacity.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+abstract class CacheStriped implements Cache
+{
+	private static final int MIN_SEGMENT_CAPACITY = 32;
+	
+	private final int capacity;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+
+
+	/**
+	 * Constructs a new CacheStriped.
+	 * @param _capacity The maximum number of entries
+	 */
+	CacheStriped(int _capacity)
+	{
+		if (_capacity < 1)
+			throw new IllegalArgumentException("The cache capacity must be positive.");
+		capacity = _capacity;
+		
+		// Use a power-of-two number of segments, enough to spread the threads but each large enough for its policy to be meaningful
+		int nSegments = 1;
+		int maxSegments = 4 * Runtime.getRuntime().availableProcessors();
+		while (nSegments < maxSegments && nSegments * 2 * MIN_SEGMENT_CAPACITY <= capacity)
+			nSegments <<= 1;
+		
+		segments = new Segment[nSegments];
+		for (int i = 0; i < nSegments; i++)
+			segments[i] = createSegment(capacity / nSegments + (i < capacity % nSegments ? 1 : 0));
+	}
+	
+
+
+	/**
+	 * Creates a segment implementing the eviction policy.
+	 * @param segmentCapacity The maximum number of entries in the segment
+	 * @return The new segment
+	 */
+	abstract Segment createSegment(int segmentCapacity);
+	
+
+
+	/**
+	 * Returns the maximum number of entries.
+	 * @return The maximum number of entries.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#get(jeva.ga.Genome)
+	 */
+	public Double get(Genome genome)
+	{
+		GenomeKey key = GenomeKey.probe(genome);
+		Segment segment = segmentFor(key);
+		Double fitness;
+		synchronized (segment)
+		{
+			fitness = segment.get(key);
+		}
+		
+		(fitness != null ? hits : misses).increment();
+		return fitness;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#put(jeva.ga.Genome, double)
+	 */
+	public void put(Genome genome, double fitness)
+	{
+		GenomeKey key = GenomeKey.copy(genome);
+		Segment segment = segmentFor(key);
+		int evicted;
+		synchronized (segment)
+		{
+			evicted = segment.put(key, fitness);
+		}
+		
+		if (evicted > 0)
+			evictions.add(evicted);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#size()
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		return size;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#getHits()
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#getMisses()
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#getEvictions()
+	 */
+	public long getEvictions()
+	{
+		return evictions.sum();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Cache#clear()
+	 */
+	public void clear()
+	{
+		for (Segment segment : segments)
+			synchronized (segment)
+			{
+				segment.clear();
+			}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[size=" + size() + "/" + capacity + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+	}
+	
+
+
+	/**
+	 * Returns the segment responsible for the specified key.
+	 * @param key The key
+	 * @return The segment
+	 */
+	private Segment segmentFor(GenomeKey key)
+	{
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+	}
+	
+
+
+	/**
+	 * A single segment of the cache. Calls are made with the segment's monitor held.
+	 */
+	static abstract class Segment
+	{
+		/**
+		 * Looks up a key, updating the policy's access information.
+		 * @param key The key
+		 * @return The cached fitness, or null
+		 */
+		abstract Double get(GenomeKey key);
+		
+
+
+		/**
+		 * Inserts an entry, evicting as necessary.
+		 * @param key The key
+		 * @param fitness The fitness
+		 * @return The number of entries evicted or refused
+		 */
+		abstract int put(GenomeKey key, double fitness);
+		
+
+
+		/**
+		 * Returns the number of entries.
+		 * @return The number of entries.
+		 */
+		abstract int size();
+		
+
+
+		/**
+		 * Removes all entries.
+		 */
+		abstract void clear();
+	}
+}
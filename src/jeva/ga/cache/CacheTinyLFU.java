@@ -0,0 +1,300 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.cache;
+
+
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+
+/**
+ * Window TinyLFU fitness cache.
+ * <p>
+ * New entries enter a small LRU window. Entries leaving the window compete for a place in the main region (a segmented LRU) against the main region's eviction candidate, and are only admitted if they have been requested more often, as estimated by a compact frequency sketch. This keeps genomes that keep reappearing (elites, the offspring of dominant parents) cached while one-off genomes pass through.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class CacheTinyLFU extends CacheStriped
+{
+	/**
+	 * Constructs a new CacheTinyLFU.
+	 * @param _capacity The maximum number of entries
+	 */
+	public CacheTinyLFU(int _capacity)
+	{
+		super(_capacity);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.cache.CacheStriped#createSegment(int)
+	 */
+	Segment createSegment(int segmentCapacity)
+	{
+		return new SegmentTinyLFU(segmentCapacity);
+	}
+	
+
+
+	/**
+	 * A segment applying the W-TinyLFU policy.
+	 */
+	private static class SegmentTinyLFU extends Segment
+	{
+		private static final double WINDOW_SHARE = 0.01;
+		private static final double PROTECTED_SHARE = 0.8;
+		
+		private final int windowCapacity;
+		private final int mainCapacity;
+		private final int protectedCapacity;
+		private final LinkedHashMap<GenomeKey, Double> window = new LinkedHashMap<GenomeKey, Double>(16, 0.75f, true);
+		private final LinkedHashMap<GenomeKey, Double> probation = new LinkedHashMap<GenomeKey, Double>(16, 0.75f, true);
+		private final LinkedHashMap<GenomeKey, Double> protectedEntries = new LinkedHashMap<GenomeKey, Double>(16, 0.75f, true);
+		private final FrequencySketch sketch;
+		
+
+
+		/**
+		 * Constructs a new SegmentTinyLFU.
+		 * @param capacity The maximum number of entries
+		 */
+		SegmentTinyLFU(int capacity)
+		{
+			windowCapacity = Math.max(1, (int)(capacity * WINDOW_SHARE));
+			mainCapacity = capacity - windowCapacity;
+			protectedCapacity = (int)(mainCapacity * PROTECTED_SHARE);
+			sketch = new FrequencySketch(capacity);
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#get(jeva.ga.cache.GenomeKey)
+		 */
+		Double get(GenomeKey key)
+		{
+			sketch.increment(key.hashCode());
+			
+			Double fitness = window.get(key);
+			if (fitness != null)
+				return fitness;
+			
+			fitness = protectedEntries.get(key);
+			if (fitness != null)
+				return fitness;
+			
+			// A second hit promotes a probationary entry; the protected overflow is demoted back to probation
+			fitness = probation.remove(key);
+			if (fitness != null)
+			{
+				protectedEntries.put(key, fitness);
+				if (protectedEntries.size() > protectedCapacity)
+				{
+					Map.Entry<GenomeKey, Double> demoted = removeEldest(protectedEntries);
+					probation.put(demoted.getKey(), demoted.getValue());
+				}
+			}
+			return fitness;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#put(jeva.ga.cache.GenomeKey, double)
+		 */
+		int put(GenomeKey key, double fitness)
+		{
+			if (protectedEntries.containsKey(key))
+			{
+				protectedEntries.put(key, fitness);
+				return 0;
+			}
+			if (probation.containsKey(key))
+			{
+				probation.put(key, fitness);
+				return 0;
+			}
+			
+			window.put(key, fitness);
+			if (window.size() <= windowCapacity)
+				return 0;
+			
+			// The window overflowed: its eldest entry becomes a candidate for the main region
+			Map.Entry<GenomeKey, Double> candidate = removeEldest(window);
+			if (probation.size() + protectedEntries.size() < mainCapacity)
+			{
+				probation.put(candidate.getKey(), candidate.getValue());
+				return 0;
+			}
+			if (mainCapacity == 0)
+				return 1;
+			
+			// Admit the candidate only if it is requested more often than the main region's victim
+			LinkedHashMap<GenomeKey, Double> victims = (probation.isEmpty() ? protectedEntries : probation);
+			GenomeKey victim = victims.keySet().iterator().next();
+			if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.hashCode()))
+			{
+				victims.remove(victim);
+				probation.put(candidate.getKey(), candidate.getValue());
+			}
+			return 1;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#size()
+		 */
+		int size()
+		{
+			return window.size() + probation.size() + protectedEntries.size();
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.cache.CacheStriped.Segment#clear()
+		 */
+		void clear()
+		{
+			window.clear();
+			probation.clear();
+			protectedEntries.clear();
+			sketch.clear();
+		}
+		
+
+
+		/**
+		 * Removes and returns the least recently used entry of a map.
+		 * @param map The map (in access order)
+		 * @return The removed entry
+		 */
+		private static Map.Entry<GenomeKey, Double> removeEldest(LinkedHashMap<GenomeKey, Double> map)
+		{
+			Iterator<Map.Entry<GenomeKey, Double>> it = map.entrySet().iterator();
+			Map.Entry<GenomeKey, Double> eldest = it.next();
+			GenomeKey key = eldest.getKey();
+			Double value = eldest.getValue();
+			it.remove();
+			return new AbstractMap.SimpleImmutableEntry<GenomeKey, Double>(key, value);
+		}
+	}
+	
+
+
+	/**
+	 * A count-min sketch of 4-bit counters, estimating how often each key has been requested.
+	 * <p>
+	 * All counters are halved once the number of recorded requests reaches ten times the capacity, so old popularity fades.
+	 */
+	private static class FrequencySketch
+	{
+		private static final int DEPTH = 4;
+		private static final long[] SEEDS = { 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+		
+		private final long[] table;
+		private final int counterMask;
+		private final int sampleSize;
+		private int samples = 0;
+		
+
+
+		/**
+		 * Constructs a new FrequencySketch.
+		 * @param capacity The capacity of the cache
+		 */
+		FrequencySketch(int capacity)
+		{
+			int nWords = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+			table = new long[nWords];
+			counterMask = nWords * 16 - 1;
+			sampleSize = 10 * Math.max(1, capacity);
+		}
+		
+
+
+		/**
+		 * Records a request for the specified key.
+		 * @param hash The hash of the key
+		 */
+		void increment(int hash)
+		{
+			for (int i = 0; i < DEPTH; i++)
+			{
+				int index = indexOf(hash, i);
+				int shift = (index & 15) << 2;
+				if (((table[index >>> 4] >>> shift) & 15) < 15)
+					table[index >>> 4] += 1L << shift;
+			}
+			
+			if (++samples >= sampleSize)
+			{
+				for (int w = 0; w < table.length; w++)
+					table[w] = (table[w] >>> 1) & RESET_MASK;
+				samples /= 2;
+			}
+		}
+		
+
+
+		/**
+		 * Returns the estimated number of requests for the specified key.
+		 * @param hash The hash of the key
+		 * @return The estimated frequency (0 to 15)
+		 */
+		int frequency(int hash)
+		{
+			int frequency = 15;
+			for (int i = 0; i < DEPTH; i++)
+			{
+				int index = indexOf(hash, i);
+				frequency = Math.min(frequency, (int)((table[index >>> 4] >>> ((index & 15) << 2)) & 15));
+			}
+			return frequency;
+		}
+		
+
+
+		/**
+		 * Resets all counters.
+		 */
+		void clear()
+		{
+			Arrays.fill(table, 0);
+			samples = 0;
+		}
+		
+
+
+		/**
+		 * Returns the counter index of a key in the specified row.
+		 * @param hash The hash of the key
+		 * @param row The row
+		 * @return The counter index
+		 */
+		private int indexOf(int hash, int row)
+		{
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			h ^= h >>> 32;
+			return (int)h & counterMask;
+		}
+	}
+}
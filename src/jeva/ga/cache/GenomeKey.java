@@ -0,0 +1,92 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.cache;
+
+
+
+import jeva.ga.Genome;
+
+
+
+/**
+ * A hash key identifying a Genome by content.
+ * <p>
+ * Probe keys wrap the caller's Genome and are only used for lookups; stored keys wrap a private copy, so later changes to the original Genome cannot corrupt the cache.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+final class GenomeKey
+{
+	private final Genome genome;
+	private final int hash;
+	
+
+
+	/**
+	 * Constructs a new GenomeKey.
+	 * @param _genome The Genome
+	 * @param _hash The content hash of the Genome
+	 */
+	private GenomeKey(Genome _genome, int _hash)
+	{
+		genome = _genome;
+		hash = _hash;
+	}
+	
+
+
+	/**
+	 * Returns a lookup key wrapping the specified Genome (no copy).
+	 * @param genome The Genome
+	 * @return The lookup key
+	 */
+	static GenomeKey probe(Genome genome)
+	{
+		return new GenomeKey(genome, genome.hashBits());
+	}
+	
+
+
+	/**
+	 * Returns a storable key wrapping a copy of the bits of the specified Genome (its fitness and evaluation state are not kept).
+	 * @param genome The Genome
+	 * @return The storable key
+	 */
+	static GenomeKey copy(Genome genome)
+	{
+		return new GenomeKey(genome.copyBits(), genome.hashBits());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof GenomeKey))
+			return false;
+		GenomeKey other = (GenomeKey)object;
+		return hash == other.hash && genome.equalBits(other.genome);
+	}
+}
@@ -21,6 +21,9 @@ package jeva.ga.crossoverer;
 
 
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 import jeva.ga.Crossoverer;
 import jeva.ga.Genome;
 
@@ -38,10 +41,35 @@ public class CrossovererSingle implements Crossoverer
 	 */
 	public Genome crossover(Genome parent1, Genome parent2)
 	{
-		Genome child = new Genome(parent1.length());
-		int cp = (int)(Math.random() * child.length());
-		System.arraycopy(parent1.getValues(), 0, child.getValues(), 0, cp);
-		System.arraycopy(parent2.getValues(), cp, child.getValues(), cp, child.length() - cp);
+		return crossover(parent1, parent2, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Crossoverer#crossover(jeva.ga.Genome, jeva.ga.Genome, java.util.random.RandomGenerator)
+	 */
+	public Genome crossover(Genome parent1, Genome parent2, RandomGenerator random)
+	{
+		// Start from a copy of parent1 (fitness included), so the child is only dirty if parent2's tail actually differs
+		Genome child = (Genome)parent1.clone();
+		int cp = (int)(random.nextDouble() * child.length());
+		child.copyRange(parent2, cp, child.length());
+		
+		return child;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Crossoverer#crossover(jeva.ga.Genome, jeva.ga.Genome, jeva.ga.Genome, java.util.random.RandomGenerator)
+	 */
+	public Genome crossover(Genome parent1, Genome parent2, Genome child, RandomGenerator random)
+	{
+		// Same as above, but recycling the child
+		child.copyFrom(parent1);
+		int cp = (int)(random.nextDouble() * child.length());
+		child.copyRange(parent2, cp, child.length());
 		
 		return child;
 	}
@@ -0,0 +1,232 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.dispatcher;
+
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jeva.ga.BreederException;
+import jeva.ga.Dispatcher;
+
+
+
+/**
+ * Runs work on a ForkJoinPool using work stealing.
+ * <p>
+ * Ranges are split adaptively: a task keeps halving its range only while the pool has few queued tasks to steal, so idle workers always find work, and busy pools are not flooded with tiny chunks. A slow chunk therefore holds up only itself, not a fixed share of the range.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class DispatcherForkJoin implements Dispatcher
+{
+	private static final int SURPLUS_THRESHOLD = 3;
+	
+	private final int parallelism;
+	private final boolean ownsPool;
+	private ForkJoinPool pool;
+	private boolean closed = false;
+	
+
+
+	/**
+	 * Constructs a new DispatcherForkJoin with its own pool of the specified size. The pool is started on first use.
+	 * @param _parallelism The number of worker threads
+	 */
+	public DispatcherForkJoin(int _parallelism)
+	{
+		parallelism = _parallelism;
+		ownsPool = true;
+	}
+	
+
+
+	/**
+	 * Constructs a new DispatcherForkJoin on a shared pool. The pool is not shut down when this Dispatcher is closed.
+	 * @param _pool The pool to run on
+	 */
+	public DispatcherForkJoin(ForkJoinPool _pool)
+	{
+		pool = _pool;
+		parallelism = _pool.getParallelism();
+		ownsPool = false;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#dispatch(int, int, jeva.ga.Dispatcher.Task)
+	 */
+	public void dispatch(int size, int grain, Task task) throws BreederException
+	{
+		if (size <= 0)
+			return;
+		
+		ForkJoinPool running = getPool();
+		try
+		{
+			running.invoke(new RangeAction(task, Math.max(1, grain), 0, size));
+		}
+		catch (TaskFailure e)
+		{
+			throw new BreederException("Dispatched task failed: " + e.getCause(), e.getCause());
+		}
+		catch (RuntimeException e)
+		{
+			// ForkJoinPool may rethrow a copy of the original exception, with the original as its cause
+			Throwable cause = (e.getCause() != null && e.getCause().getClass() == e.getClass() ? e.getCause() : e);
+			throw new BreederException("Dispatched task failed: " + cause, cause);
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#getParallelism()
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#close()
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		if (ownsPool && pool != null)
+		{
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+
+
+	/**
+	 * Returns the pool, starting it if necessary.
+	 * @return The pool.
+	 * @throws IllegalStateException If this Dispatcher has been closed
+	 */
+	private synchronized ForkJoinPool getPool()
+	{
+		if (closed)
+			throw new IllegalStateException("Dispatcher is closed");
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+	
+
+
+	/**
+	 * This RecursiveAction runs a Task over a range, splitting the range while there are idle workers.
+	 */
+	private static class RangeAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final Task task;
+		private final int grain;
+		private final int from;
+		private int to;
+		private RangeAction next;
+		
+
+
+		/**
+		 * Constructs a new RangeAction.
+		 * @param _task The task to run
+		 * @param _grain The minimum chunk size
+		 * @param _from The first index
+		 * @param _to The index after the last
+		 */
+		RangeAction(Task _task, int _grain, int _from, int _to)
+		{
+			task = _task;
+			grain = _grain;
+			from = _from;
+			to = _to;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		protected void compute()
+		{
+			// Hand off the upper halves while other workers are short of work
+			RangeAction forked = null;
+			while (to - from >= 2 * grain && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD)
+			{
+				int mid = from + (((to - from) / grain) >>> 1) * grain;
+				RangeAction right = new RangeAction(task, grain, mid, to);
+				right.fork();
+				right.next = forked;
+				forked = right;
+				to = mid;
+			}
+			
+			RuntimeException failure = null;
+			try
+			{
+				task.run(from, to);
+			}
+			catch (RuntimeException e)
+			{
+				failure = e;
+			}
+			catch (Exception e)
+			{
+				failure = new TaskFailure(e);
+			}
+			
+			// Join the halves (or run them here, if nobody stole them); after a failure, cancel whatever has not started yet
+			for (; forked != null; forked = forked.next)
+			{
+				if (failure != null)
+					forked.cancel(false);
+				forked.quietlyJoin();
+				if (failure == null && forked.isCompletedAbnormally())
+				{
+					Throwable t = forked.getException();
+					failure = (t instanceof RuntimeException ? (RuntimeException)t : new TaskFailure(t));
+				}
+			}
+			
+			if (failure != null)
+				throw failure;
+		}
+	}
+	
+
+
+	/**
+	 * Carries a checked exception out of a RangeAction.
+	 */
+	private static class TaskFailure extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+		
+
+
+		TaskFailure(Throwable cause)
+		{
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.dispatcher;
+
+
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jeva.ga.BreederException;
+import jeva.ga.Dispatcher;
+
+
+
+/**
+ * Runs work on a user-supplied ExecutorService.
+ * <p>
+ * Each dispatch submits one worker per unit of parallelism. Workers claim chunks from a shared cursor (guided self-scheduling): each chunk is a fixed fraction of the work still remaining, so chunks start large and shrink towards the end of the range, and a worker that finishes early simply claims more.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class DispatcherPooled implements Dispatcher
+{
+	private final ExecutorService executorService;
+	private final int parallelism;
+	private final boolean ownsExecutorService;
+	
+
+
+	/**
+	 * Constructs a new DispatcherPooled. The ExecutorService is not shut down when this Dispatcher is closed.
+	 * @param _executorService The ExecutorService to run on
+	 * @param _parallelism The number of workers to submit per dispatch
+	 */
+	public DispatcherPooled(ExecutorService _executorService, int _parallelism)
+	{
+		this(_executorService, _parallelism, false);
+	}
+	
+
+
+	/**
+	 * Constructs a new DispatcherPooled.
+	 * @param _executorService The ExecutorService to run on
+	 * @param _parallelism The number of workers to submit per dispatch
+	 * @param _ownsExecutorService True, if the ExecutorService should be shut down when this Dispatcher is closed
+	 */
+	public DispatcherPooled(ExecutorService _executorService, int _parallelism, boolean _ownsExecutorService)
+	{
+		executorService = _executorService;
+		parallelism = Math.max(1, _parallelism);
+		ownsExecutorService = _ownsExecutorService;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#dispatch(int, int, jeva.ga.Dispatcher.Task)
+	 */
+	public void dispatch(int size, int grain, Task task) throws BreederException
+	{
+		if (size <= 0)
+			return;
+		
+		AtomicInteger cursor = new AtomicInteger(0);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		grain = Math.max(1, grain);
+		int nWorkers = Math.min(parallelism, (size + grain - 1) / grain);
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(nWorkers);
+		for (int i = 0; i < nWorkers; i++)
+			futures.add(executorService.submit(new Worker(task, size, grain, cursor, failed)));
+		
+		// Wait for all workers, even after a failure, so no chunk outlives the dispatch
+		Throwable failure = null;
+		for (Future<Void> future : futures)
+		{
+			try
+			{
+				future.get();
+			}
+			catch (ExecutionException e)
+			{
+				if (failure == null)
+					failure = e.getCause();
+			}
+			catch (InterruptedException e)
+			{
+				failed.set(true);
+				Thread.currentThread().interrupt();
+				if (failure == null)
+					failure = e;
+			}
+		}
+		
+		if (failure != null)
+			throw new BreederException("Dispatched task failed: " + failure, failure);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#getParallelism()
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#close()
+	 */
+	public void close()
+	{
+		if (ownsExecutorService)
+			executorService.shutdown();
+	}
+	
+
+
+	/**
+	 * This Callable claims and runs chunks until the range is exhausted.
+	 */
+	private class Worker implements Callable<Void>
+	{
+		private final Task task;
+		private final int size;
+		private final int grain;
+		private final AtomicInteger cursor;
+		private final AtomicBoolean failed;
+		
+
+
+		/**
+		 * Constructs a new Worker.
+		 * @param _task The task to run
+		 * @param _size The size of the range
+		 * @param _grain The minimum chunk size
+		 * @param _cursor The shared index of the next unclaimed element
+		 * @param _failed The shared failure flag
+		 */
+		Worker(Task _task, int _size, int _grain, AtomicInteger _cursor, AtomicBoolean _failed)
+		{
+			task = _task;
+			size = _size;
+			grain = _grain;
+			cursor = _cursor;
+			failed = _failed;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Void call() throws Exception
+		{
+			while (!failed.get())
+			{
+				// Claim a chunk proportional to the remaining work
+				int from, to;
+				do
+				{
+					from = cursor.get();
+					if (from >= size)
+						return null;
+					to = Math.min(size, from + Math.max(grain, (size - from) / (2 * parallelism)));
+				} while (!cursor.compareAndSet(from, to));
+				
+				try
+				{
+					task.run(from, to);
+				}
+				catch (Exception e)
+				{
+					failed.set(true);
+					throw e;
+				}
+			}
+			
+			return null;
+		}
+	}
+}
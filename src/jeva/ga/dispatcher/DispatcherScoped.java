@@ -0,0 +1,339 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.dispatcher;
+
+
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import jeva.ga.BreederException;
+import jeva.ga.Dispatcher;
+
+
+
+/**
+ * Runs every chunk as a task of its own, for evaluators that mostly wait (on files, sockets or subprocesses) rather than compute.
+ * <p>
+ * Chunks run on virtual threads where the runtime provides them, and on a cached pool of daemon threads otherwise. A semaphore caps the number of chunks in flight, so the concurrency limit, rather than the number of processors, bounds the evaluations that wait at the same time.
+ * <p>
+ * Each dispatch is a structured scope: it does not return before every chunk it started has finished. The first failure cancels the rest of the scope, as does {@link #cancel()}: chunks not yet started are skipped, and running ones are interrupted.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class DispatcherScoped implements Dispatcher
+{
+	private final int maxConcurrency;
+	private final boolean virtual;
+	private ExecutorService executorService;
+	private volatile Scope scope = null;
+	
+
+
+	/**
+	 * Constructs a new DispatcherScoped.
+	 * @param _maxConcurrency The maximum number of chunks to run at the same time
+	 */
+	public DispatcherScoped(int _maxConcurrency)
+	{
+		maxConcurrency = Math.max(1, _maxConcurrency);
+		executorService = newVirtualExecutorService();
+		virtual = (executorService != null);
+		if (executorService == null)
+		{
+			ThreadFactory threadFactory = runnable ->
+			{
+				Thread thread = new Thread(runnable, "jeva-scoped");
+				thread.setDaemon(true);
+				return thread;
+			};
+			executorService = Executors.newCachedThreadPool(threadFactory);
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#dispatch(int, int, jeva.ga.Dispatcher.Task)
+	 */
+	public void dispatch(int size, int grain, Task task) throws BreederException
+	{
+		if (size <= 0)
+			return;
+		
+		Scope dispatchScope = new Scope();
+		scope = dispatchScope;
+		Semaphore permits = new Semaphore(maxConcurrency);
+		grain = Math.max(1, grain);
+		try
+		{
+			for (int from = 0; from < size && !dispatchScope.isCancelled(); from += grain)
+			{
+				permits.acquire();
+				dispatchScope.fork(task, from, Math.min(size, from + grain), permits);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			dispatchScope.cancel();
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			// Wait for every started chunk, even after a failure, so no chunk outlives the dispatch
+			dispatchScope.join();
+			scope = null;
+		}
+		
+		if (dispatchScope.getFailure() != null)
+			throw new BreederException("Dispatched task failed: " + dispatchScope.getFailure(), dispatchScope.getFailure());
+		if (dispatchScope.isCancelled())
+			throw new BreederException("Dispatch cancelled");
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#getParallelism()
+	 */
+	public int getParallelism()
+	{
+		return maxConcurrency;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#cancel()
+	 */
+	public void cancel()
+	{
+		Scope dispatchScope = scope;
+		if (dispatchScope != null)
+			dispatchScope.cancel();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#close()
+	 */
+	public void close()
+	{
+		cancel();
+		executorService.shutdown();
+	}
+	
+
+
+	/**
+	 * Checks whether chunks run on virtual threads.
+	 * @return True, if chunks run on virtual threads; false, if the runtime has none, and they run on platform threads.
+	 */
+	public boolean isVirtual()
+	{
+		return virtual;
+	}
+	
+
+
+	/**
+	 * Returns an ExecutorService that starts a virtual thread per task, if the runtime provides one.
+	 * @return The ExecutorService, or null if the runtime has no virtual threads.
+	 */
+	private static ExecutorService newVirtualExecutorService()
+	{
+		try
+		{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+	
+
+
+	/**
+	 * This class keeps track of the chunks started by one dispatch.
+	 */
+	private class Scope
+	{
+		private HashSet<Thread> running = new HashSet<Thread>();
+		private int pending = 0;
+		private boolean cancelled = false;
+		private Throwable failure = null;
+		
+
+
+		/**
+		 * Starts a chunk.
+		 * @param task The task to run
+		 * @param from The first index of the chunk
+		 * @param to The index after the last
+		 * @param permits The semaphore to release when the chunk is done
+		 */
+		void fork(Task task, int from, int to, Semaphore permits)
+		{
+			synchronized (this)
+			{
+				pending++;
+			}
+			try
+			{
+				executorService.execute(() -> run(task, from, to, permits));
+			}
+			catch (RuntimeException e)
+			{
+				fail(e);
+				permits.release();
+				done();
+			}
+		}
+		
+
+
+		/**
+		 * Runs a chunk, unless the scope has been cancelled.
+		 * @param task The task to run
+		 * @param from The first index of the chunk
+		 * @param to The index after the last
+		 * @param permits The semaphore to release when the chunk is done
+		 */
+		private void run(Task task, int from, int to, Semaphore permits)
+		{
+			Thread thread = Thread.currentThread();
+			try
+			{
+				synchronized (this)
+				{
+					if (cancelled)
+						return;
+					running.add(thread);
+				}
+				task.run(from, to);
+			}
+			catch (Throwable e)
+			{
+				fail(e);
+			}
+			finally
+			{
+				synchronized (this)
+				{
+					running.remove(thread);
+				}
+				// A pooled thread must not carry a cancellation on to its next task
+				Thread.interrupted();
+				permits.release();
+				done();
+			}
+		}
+		
+
+
+		/**
+		 * Records a failure (unless the scope was already cancelled) and cancels the scope.
+		 * @param e The failure
+		 */
+		synchronized void fail(Throwable e)
+		{
+			if (!cancelled)
+				failure = e;
+			cancel();
+		}
+		
+
+
+		/**
+		 * Cancels the scope: chunks not yet started are skipped, and running ones are interrupted.
+		 */
+		synchronized void cancel()
+		{
+			cancelled = true;
+			for (Thread thread : running)
+				thread.interrupt();
+		}
+		
+
+
+		/**
+		 * Marks a chunk as finished.
+		 */
+		private synchronized void done()
+		{
+			pending--;
+			if (pending == 0)
+				notifyAll();
+		}
+		
+
+
+		/**
+		 * Waits until every started chunk has finished. An interrupt cancels the scope, but the wait goes on.
+		 */
+		synchronized void join()
+		{
+			boolean interrupted = false;
+			while (pending > 0)
+			{
+				try
+				{
+					wait();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+					cancel();
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		
+
+
+		/**
+		 * Checks whether the scope has been cancelled.
+		 * @return True, if the scope has been cancelled.
+		 */
+		synchronized boolean isCancelled()
+		{
+			return cancelled;
+		}
+		
+
+
+		/**
+		 * Returns the first failure of a chunk.
+		 * @return The failure, or null if no chunk failed.
+		 */
+		synchronized Throwable getFailure()
+		{
+			return failure;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.dispatcher;
+
+
+
+import jeva.ga.BreederException;
+import jeva.ga.Dispatcher;
+
+
+
+/**
+ * Runs all work on the calling thread.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class DispatcherSerial implements Dispatcher
+{
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#dispatch(int, int, jeva.ga.Dispatcher.Task)
+	 */
+	public void dispatch(int size, int grain, Task task) throws BreederException
+	{
+		if (size <= 0)
+			return;
+		
+		try
+		{
+			task.run(0, size);
+		}
+		catch (Exception e)
+		{
+			throw new BreederException("Dispatched task failed: " + e, e);
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#getParallelism()
+	 */
+	public int getParallelism()
+	{
+		return 1;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Dispatcher#close()
+	 */
+	public void close()
+	{
+		
+	}
+}
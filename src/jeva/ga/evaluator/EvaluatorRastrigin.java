@@ -21,29 +21,17 @@ package jeva.ga.evaluator;
 
 
 
-import java.util.BitSet;
-
-import jeva.ga.Evaluator;
-import jeva.ga.Genome;
-import jeva.util.BitSetUtil;
-
-
-
-
 /**
  * Rastrigin function evaluator
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class EvaluatorRastrigin implements Evaluator
+public class EvaluatorRastrigin extends EvaluatorSeparable
 {
 	private static final int RASTRIGIN_A = 10;
 	private static final double RASTRIGIN_VAR_MIN = -0.5;
 	private static final double RASTRIGIN_VAR_MAX = 0.5;
 	
-	int nVars = 0;
-	int nVarBits = 0;
-	
 
 
 	/**
@@ -53,35 +41,16 @@ public class EvaluatorRastrigin implements Evaluator
 	 */
 	public EvaluatorRastrigin(int _nVars, int _nVarBits)
 	{
-		nVars = _nVars;
-		nVarBits = _nVarBits;
+		super(_nVars, _nVarBits, RASTRIGIN_VAR_MIN, RASTRIGIN_VAR_MAX);
 	}
 	
 
 
 	/* (non-Javadoc)
-	 * @see jeva.ga.Evaluator#evaluateGenome(jeva.ga.Genome)
+	 * @see jeva.ga.evaluator.EvaluatorSeparable#term(double)
 	 */
-	public void evaluateGenome(Genome genome)
+	protected double term(double x)
 	{
-		boolean[] values = genome.getValues();
-		double x[] = new double[nVars];
-		
-		int bitSetOffset = 0;
-		for (int varIndex = 0; varIndex < nVars; varIndex++)
-		{
-			BitSet bs = new BitSet();
-			for (int bitIndex = 0; bitIndex < nVarBits; bitIndex++)
-				bs.set(bitIndex, values[bitSetOffset++]);
-			BitSetUtil.doInvGrayCoding(bs);
-			
-			x[varIndex] = BitSetUtil.bitSetToDouble(bs, 0, nVarBits, RASTRIGIN_VAR_MIN, RASTRIGIN_VAR_MAX);
-		}
-		
-		double ras = 0;
-		for (int i = 0; i < x.length; i++)
-			ras += RASTRIGIN_A + Math.pow(x[i], 2) - RASTRIGIN_A * Math.cos(2 * Math.PI * x[i]);
-		
-		genome.setFitness(ras);
+		return RASTRIGIN_A + Math.pow(x, 2) - RASTRIGIN_A * Math.cos(2 * Math.PI * x);
 	}
 }
@@ -21,27 +21,28 @@ package jeva.ga.evaluator;
 
 
 
-import java.util.BitSet;
-
-import jeva.ga.Evaluator;
 import jeva.ga.Genome;
-import jeva.util.BitSetUtil;
+import jeva.ga.GenomeDecoder;
+import jeva.ga.IncrementalEvaluator;
 
 
 
 
 /**
  * Rosenbrock (De Jong F2) function evaluator
+ * <p>
+ * Each term couples a variable with its successor, so a changed variable invalidates the two terms it appears in. The decoded variables and the terms are kept with each evaluated genome for incremental re-evaluation.
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class EvaluatorRosenbrock implements Evaluator
+public class EvaluatorRosenbrock implements IncrementalEvaluator
 {
 	private static final double VAR_MIN = -2.048;
 	private static final double VAR_MAX = 2.048;
 	
 	int nVars = 0;
 	int nVarBits = 0;
+	GenomeDecoder decoder;
 	
 
 
@@ -54,6 +55,7 @@ public class EvaluatorRosenbrock implements Evaluator
 	{
 		nVars = _nVars;
 		nVarBits = _nVarBits;
+		decoder = new GenomeDecoder(nVars, nVarBits, VAR_MIN, VAR_MAX);
 	}
 	
 
@@ -63,24 +65,101 @@ public class EvaluatorRosenbrock implements Evaluator
 	 */
 	public void evaluateGenome(Genome genome)
 	{
-		boolean[] values = genome.getValues();
-		double x[] = new double[nVars];
+		double[] x = new double[nVars];
+		decoder.decode(genome, x);
+		
+		double[] terms = new double[Math.max(0, nVars - 1)];
+		for (int i = 0; i < terms.length; i++)
+			terms[i] = term(x[i], x[i + 1]);
+		
+		State state = new State(x, new SumTree(terms));
+		genome.setFitness(state.terms.sum(), state);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.IncrementalEvaluator#evaluateChanges(jeva.ga.Genome)
+	 */
+	public void evaluateChanges(Genome genome)
+	{
+		if (!(genome.getEvaluationState() instanceof State))
+		{
+			evaluateGenome(genome);
+			return;
+		}
 		
-		int bitSetOffset = 0;
-		for (int varIndex = 0; varIndex < nVars; varIndex++)
+		State base = (State)genome.getEvaluationState();
+		State state = new State(base.x.clone(), new SumTree(base.terms));
+		
+		// Changed variables arrive in increasing order: term i-1 can be recomputed as soon as variable i is decoded, term i only once variable i+1 is known
+		int lastVar = -1;
+		int pendingTerm = -1;
+		for (int w = genome.nextChangedWord(0); w >= 0; w = genome.nextChangedWord(w + 1))
 		{
-			BitSet bs = new BitSet();
-			for (int bitIndex = 0; bitIndex < nVarBits; bitIndex++)
-				bs.set(bitIndex, values[bitSetOffset++]);
-			BitSetUtil.doInvGrayCoding(bs);
-			
-			x[varIndex] = BitSetUtil.bitSetToDouble(bs, 0, nVarBits, VAR_MIN, VAR_MAX);
+			int firstVar = Math.max(lastVar + 1, w * Long.SIZE / nVarBits);
+			lastVar = Math.min(nVars - 1, (w * Long.SIZE + Long.SIZE - 1) / nVarBits);
+			for (int i = firstVar; i <= lastVar; i++)
+			{
+				state.x[i] = decoder.decode(genome, i);
+				if (pendingTerm >= 0 && pendingTerm < i - 1)
+					state.setTerm(pendingTerm);
+				if (i > 0)
+					state.setTerm(i - 1);
+				pendingTerm = (i < nVars - 1 ? i : -1);
+			}
 		}
+		if (pendingTerm >= 0)
+			state.setTerm(pendingTerm);
+		
+		genome.setFitness(state.terms.sum(), state);
+	}
+	
+
+
+	/**
+	 * Computes the term coupling a variable with its successor
+	 * @param x The variable
+	 * @param xNext The successor variable
+	 * @return The term
+	 */
+	private static double term(double x, double xNext)
+	{
+		return 100 * Math.pow((Math.pow(x, 2) - xNext), 2) + Math.pow((1 - x), 2);
+	}
+	
+
+
+	/**
+	 * The evaluation state kept with each genome: the decoded variables and the terms.
+	 */
+	private static final class State
+	{
+		final double[] x;
+		final SumTree terms;
 		
-		double sum = 0;
-		for (int i = 0; i < x.length - 1; i++)
-			sum += 100 * Math.pow((Math.pow(x[i], 2) - x[i + 1]), 2) + Math.pow((1 - x[i]), 2);
+
+
+		/**
+		 * Constructs a new State
+		 * @param _x The decoded variables
+		 * @param _terms The terms
+		 */
+		State(double[] _x, SumTree _terms)
+		{
+			x = _x;
+			terms = _terms;
+		}
 		
-		genome.setFitness(sum);
+
+
+		/**
+		 * Recomputes the term at the specified index from the decoded variables
+		 * @param i The index of the term
+		 */
+		void setTerm(int i)
+		{
+			terms.set(i, term(x[i], x[i + 1]));
+		}
 	}
 }
@@ -0,0 +1,110 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.evaluator;
+
+
+
+import jeva.ga.Genome;
+import jeva.ga.GenomeDecoder;
+import jeva.ga.IncrementalEvaluator;
+
+
+
+/**
+ * Base class for functions that are a sum of independent per-variable terms
+ * <p>
+ * The terms are kept with each evaluated genome, so after a mutation or crossover only the variables overlapping the changed words are decoded and recomputed.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public abstract class EvaluatorSeparable implements IncrementalEvaluator
+{
+	int nVars = 0;
+	int nVarBits = 0;
+	GenomeDecoder decoder;
+	
+
+
+	/**
+	 * Constructs a new EvaluatorSeparable
+	 * @param _nVars The number of variables
+	 * @param _nVarBits The number of bits per variable
+	 * @param varMin The minimum variable value
+	 * @param varMax The maximum variable value
+	 */
+	protected EvaluatorSeparable(int _nVars, int _nVarBits, double varMin, double varMax)
+	{
+		nVars = _nVars;
+		nVarBits = _nVarBits;
+		decoder = new GenomeDecoder(nVars, nVarBits, varMin, varMax);
+	}
+	
+
+
+	/**
+	 * Computes the term contributed by a single variable
+	 * @param x The variable value
+	 * @return The term
+	 */
+	protected abstract double term(double x);
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Evaluator#evaluateGenome(jeva.ga.Genome)
+	 */
+	public void evaluateGenome(Genome genome)
+	{
+		double[] terms = new double[nVars];
+		for (int i = 0; i < nVars; i++)
+			terms[i] = term(decoder.decode(genome, i));
+		
+		SumTree sumTree = new SumTree(terms);
+		genome.setFitness(sumTree.sum(), sumTree);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.IncrementalEvaluator#evaluateChanges(jeva.ga.Genome)
+	 */
+	public void evaluateChanges(Genome genome)
+	{
+		if (!(genome.getEvaluationState() instanceof SumTree))
+		{
+			evaluateGenome(genome);
+			return;
+		}
+		
+		SumTree sumTree = new SumTree((SumTree)genome.getEvaluationState());
+		int lastVar = -1;
+		for (int w = genome.nextChangedWord(0); w >= 0; w = genome.nextChangedWord(w + 1))
+		{
+			// Recompute every variable overlapping the changed word (once)
+			int firstVar = Math.max(lastVar + 1, w * Long.SIZE / nVarBits);
+			lastVar = Math.min(nVars - 1, (w * Long.SIZE + Long.SIZE - 1) / nVarBits);
+			for (int i = firstVar; i <= lastVar; i++)
+				sumTree.set(i, term(decoder.decode(genome, i)));
+		}
+		
+		genome.setFitness(sumTree.sum(), sumTree);
+	}
+}
@@ -21,28 +21,16 @@ package jeva.ga.evaluator;
 
 
 
-import java.util.BitSet;
-
-import jeva.ga.Evaluator;
-import jeva.ga.Genome;
-import jeva.util.BitSetUtil;
-
-
-
-
 /**
  * All-zeroes function evaluator
  * 
  * @author Nikolaos Chatzinikolaou
  */
-public class EvaluatorZero implements Evaluator
+public class EvaluatorZero extends EvaluatorSeparable
 {
 	private static final double VAR_MIN = 0;
 	private static final double VAR_MAX = 1;
 	
-	int nVars = 0;
-	int nVarBits = 0;
-	
 
 
 	/**
@@ -52,35 +40,16 @@ public class EvaluatorZero implements Evaluator
 	 */
 	public EvaluatorZero(int _nVars, int _nVarBits)
 	{
-		nVars = _nVars;
-		nVarBits = _nVarBits;
+		super(_nVars, _nVarBits, VAR_MIN, VAR_MAX);
 	}
 	
 
 
 	/* (non-Javadoc)
-	 * @see jeva.ga.Evaluator#evaluateGenome(jeva.ga.Genome)
+	 * @see jeva.ga.evaluator.EvaluatorSeparable#term(double)
 	 */
-	public void evaluateGenome(Genome genome)
+	protected double term(double x)
 	{
-		boolean[] values = genome.getValues();
-		double x[] = new double[nVars];
-		
-		int bitSetOffset = 0;
-		for (int varIndex = 0; varIndex < nVars; varIndex++)
-		{
-			BitSet bs = new BitSet();
-			for (int bitIndex = 0; bitIndex < nVarBits; bitIndex++)
-				bs.set(bitIndex, values[bitSetOffset++]);
-			BitSetUtil.doInvGrayCoding(bs);
-			
-			x[varIndex] = BitSetUtil.bitSetToDouble(bs, 0, nVarBits, VAR_MIN, VAR_MAX);
-		}
-		
-		double sum = 0;
-		for (int i = 0; i < x.length; i++)
-			sum += x[i];
-		
-		genome.setFitness(sum);
+		return x;
 	}
 }
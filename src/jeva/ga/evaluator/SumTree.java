@@ -0,0 +1,93 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.evaluator;
+
+
+
+/**
+ * An immutable-by-convention binary tree of partial sums over a fixed number of terms.
+ * <p>
+ * The total is always formed by the same tree of additions, whether the terms were set all at once or updated one at a time, so an incrementally updated total is bit-identical to a fresh one and no rounding error accumulates across updates.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+final class SumTree
+{
+	private final int n;
+	private final double[] nodes;
+	
+
+
+	/**
+	 * Constructs a new SumTree over the specified terms.
+	 * @param terms The terms
+	 */
+	SumTree(double[] terms)
+	{
+		n = terms.length;
+		nodes = new double[2 * Math.max(1, n)];
+		System.arraycopy(terms, 0, nodes, n, n);
+		for (int i = n - 1; i > 0; i--)
+			nodes[i] = nodes[2 * i] + nodes[2 * i + 1];
+	}
+	
+
+
+	/**
+	 * Constructs a copy of the specified SumTree.
+	 * @param other The SumTree to copy
+	 */
+	SumTree(SumTree other)
+	{
+		n = other.n;
+		nodes = other.nodes.clone();
+	}
+	
+
+
+	/**
+	 * Returns the term at the specified index.
+	 * @param i The index
+	 * @return The term
+	 */
+	double get(int i)
+	{
+		return nodes[n + i];
+	}
+	
+
+
+	/**
+	 * Replaces the term at the specified index, updating the partial sums above it.
+	 * @param i The index
+	 * @param term The new term
+	 */
+	void set(int i, double term)
+	{
+		int node = n + i;
+		nodes[node] = term;
+		for (node >>>= 1; node > 0; node >>>= 1)
+			nodes[node] = nodes[2 * node] + nodes[2 * node + 1];
+	}
+	
+
+
+	/**
+	 * Returns the sum of all terms.
+	 * @return The sum of all terms
+	 */
+	double sum()
+	{
+		return nodes[1];
+	}
+}
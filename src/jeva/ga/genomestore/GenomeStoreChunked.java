@@ -0,0 +1,251 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.genomestore;
+
+
+
+import java.nio.ByteBuffer;
+
+import jeva.ga.Genome;
+import jeva.ga.GenomeStore;
+
+
+
+/**
+ * Base class for genome stores laid out as a struct of arrays, split into buffers (chunks) of up to 64 MB.
+ * <p>
+ * Each chunk holds a power-of-two number of rows as three regions: the bit rows, at a fixed stride of whole words; the fitness column; and a column of evaluated flags. A pass over the rows in order therefore reads each region sequentially.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+abstract class GenomeStoreChunked implements GenomeStore
+{
+	private static final long MAX_CHUNK_BYTES = 1L << 26;
+	
+	private final int size;
+	private final int genomeLength;
+	private final int wordCount;
+	private final int chunkShift;
+	private final int chunkMask;
+	private final int fitnessOffset;
+	private final int flagsOffset;
+	private final int chunkBytes;
+	private ByteBuffer[] chunks;
+	
+
+
+	/**
+	 * Constructs a new GenomeStoreChunked. Subclasses must call {@link #allocateChunks()} once they are ready to allocate.
+	 * @param _size The number of rows
+	 * @param _genomeLength The genome length in bits
+	 */
+	GenomeStoreChunked(int _size, int _genomeLength)
+	{
+		if (_size < 1 || _genomeLength < 1)
+			throw new IllegalArgumentException("The store size and genome length must be positive");
+		size = _size;
+		genomeLength = _genomeLength;
+		wordCount = Genome.wordCount(_genomeLength);
+		
+		// The largest power-of-two number of rows per chunk that fits, but no more than needed
+		long rowBytes = (long)wordCount * Long.BYTES + Double.BYTES + 1;
+		if (rowBytes > MAX_CHUNK_BYTES)
+			throw new IllegalArgumentException("The genome length " + _genomeLength + " is too large for a store");
+		int shift = 0;
+		while ((rowBytes << (shift + 1)) <= MAX_CHUNK_BYTES && (1 << shift) < _size)
+			shift++;
+		chunkShift = shift;
+		chunkMask = (1 << shift) - 1;
+		int chunkRows = 1 << shift;
+		fitnessOffset = chunkRows * wordCount * Long.BYTES;
+		flagsOffset = fitnessOffset + chunkRows * Double.BYTES;
+		chunkBytes = flagsOffset + chunkRows;
+	}
+	
+
+
+	/**
+	 * Allocates the chunks, all of the same size.
+	 */
+	protected final void allocateChunks()
+	{
+		int nChunks = ((size - 1) >>> chunkShift) + 1;
+		chunks = new ByteBuffer[nChunks];
+		for (int c = 0; c < nChunks; c++)
+			chunks[c] = allocateChunk(c, chunkBytes);
+	}
+	
+
+
+	/**
+	 * Allocates a chunk. Its contents must be zeroed, and its byte order should be native.
+	 * @param index The index of the chunk
+	 * @param bytes The size of the chunk in bytes
+	 * @return The chunk
+	 */
+	protected abstract ByteBuffer allocateChunk(int index, int bytes);
+	
+
+
+	/**
+	 * Releases the chunks.
+	 */
+	protected void releaseChunks()
+	{
+		chunks = null;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#getSize()
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+	
+
+
+	/**
+	 * Returns the number of rows per chunk.
+	 * @return The number of rows per chunk.
+	 */
+	protected int getChunkRows()
+	{
+		return chunkMask + 1;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#getGenomeLength()
+	 */
+	public int getGenomeLength()
+	{
+		return genomeLength;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#getWord(int, int)
+	 */
+	public long getWord(int row, int w)
+	{
+		checkIndex(row, w);
+		return chunks[row >>> chunkShift].getLong(((row & chunkMask) * wordCount + w) * Long.BYTES);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#setWord(int, int, long)
+	 */
+	public void setWord(int row, int w, long word)
+	{
+		checkIndex(row, w);
+		
+		// Keep the unused tail of the last word cleared, as Genome does
+		if (w == wordCount - 1 && (genomeLength & 63) != 0)
+			word &= -1L >>> -genomeLength;
+		chunks[row >>> chunkShift].putLong(((row & chunkMask) * wordCount + w) * Long.BYTES, word);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#getFitness(int)
+	 */
+	public double getFitness(int row)
+	{
+		checkIndex(row, 0);
+		return chunks[row >>> chunkShift].getDouble(fitnessOffset + (row & chunkMask) * Double.BYTES);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#setFitness(int, double)
+	 */
+	public void setFitness(int row, double fitness)
+	{
+		checkIndex(row, 0);
+		ByteBuffer chunk = chunks[row >>> chunkShift];
+		chunk.putDouble(fitnessOffset + (row & chunkMask) * Double.BYTES, fitness);
+		chunk.put(flagsOffset + (row & chunkMask), (byte)1);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#clearFitness(int)
+	 */
+	public void clearFitness(int row)
+	{
+		checkIndex(row, 0);
+		chunks[row >>> chunkShift].put(flagsOffset + (row & chunkMask), (byte)0);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#isEvaluated(int)
+	 */
+	public boolean isEvaluated(int row)
+	{
+		checkIndex(row, 0);
+		return chunks[row >>> chunkShift].get(flagsOffset + (row & chunkMask)) != 0;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#getFootprint()
+	 */
+	public long getFootprint()
+	{
+		return (chunks == null ? 0 : (long)chunks.length * chunkBytes);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[size=" + size + ", genomeLength=" + genomeLength + ", footprint=" + getFootprint() + "]";
+	}
+	
+
+
+	/**
+	 * Checks that a row and word index are within bounds.
+	 * @param row The row
+	 * @param w The index of the word
+	 */
+	private void checkIndex(int row, int w)
+	{
+		if (row < 0 || row >= size || w < 0 || w >= wordCount)
+			throw new IndexOutOfBoundsException("Row " + row + ", word " + w + " out of bounds for a store of " + size + " rows of " + wordCount + " words");
+	}
+}
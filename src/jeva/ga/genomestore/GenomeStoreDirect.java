@@ -0,0 +1,69 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.genomestore;
+
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+
+/**
+ * Genome store held in direct (off-heap) buffers
+ * <p>
+ * The rows cost their bits plus nine bytes each, and nothing on the heap, so that populations of millions of genomes fit in a small heap. Note that direct memory is limited separately (-XX:MaxDirectMemorySize, by default the maximum heap size), and is only returned once the store has been closed and collected.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenomeStoreDirect extends GenomeStoreChunked
+{
+	/**
+	 * Constructs a new GenomeStoreDirect object, with all rows cleared and unevaluated
+	 * @param _size The number of rows
+	 * @param _genomeLength The genome length in bits
+	 */
+	public GenomeStoreDirect(int _size, int _genomeLength)
+	{
+		super(_size, _genomeLength);
+		allocateChunks();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.genomestore.GenomeStoreChunked#allocateChunk(int, int)
+	 */
+	protected ByteBuffer allocateChunk(int index, int bytes)
+	{
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#close()
+	 */
+	public void close()
+	{
+		releaseChunks();
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.genomestore;
+
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+
+/**
+ * Genome store held in a memory-mapped file
+ * <p>
+ * The operating system pages the rows in and out as they are used, so populations larger than physical memory can be bred without running out of memory. The Breeder initialises, evaluates and breeds into the rows in order, so most passes read and write the file sequentially; only parents are read at random.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenomeStoreMapped extends GenomeStoreChunked
+{
+	private final Path file;
+	private final boolean temporary;
+	private FileChannel channel;
+	private MappedByteBuffer[] mapped;
+	
+
+
+	/**
+	 * Constructs a new GenomeStoreMapped object in the specified file, which is created or overwritten, with all rows cleared and unevaluated
+	 * @param _file The file
+	 * @param _size The number of rows
+	 * @param _genomeLength The genome length in bits
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	public GenomeStoreMapped(Path _file, int _size, int _genomeLength) throws IOException
+	{
+		this(_file, _size, _genomeLength, false);
+	}
+	
+
+
+	/**
+	 * Constructs a new GenomeStoreMapped object in a temporary file, which is deleted when the store is closed
+	 * @param _size The number of rows
+	 * @param _genomeLength The genome length in bits
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	public GenomeStoreMapped(int _size, int _genomeLength) throws IOException
+	{
+		this(Files.createTempFile("jeva", ".genomes"), _size, _genomeLength, true);
+	}
+	
+
+
+	/**
+	 * Constructs a new GenomeStoreMapped object
+	 * @param _file The file
+	 * @param _size The number of rows
+	 * @param _genomeLength The genome length in bits
+	 * @param _temporary True, to delete the file when the store is closed
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	private GenomeStoreMapped(Path _file, int _size, int _genomeLength, boolean _temporary) throws IOException
+	{
+		super(_size, _genomeLength);
+		file = _file;
+		temporary = _temporary;
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			allocateChunks();
+		}
+		catch (UncheckedIOException e)
+		{
+			close();
+			throw e.getCause();
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.genomestore.GenomeStoreChunked#allocateChunk(int, int)
+	 */
+	protected ByteBuffer allocateChunk(int index, int bytes)
+	{
+		// Mapping past the end of the file grows it, with zeroes
+		try
+		{
+			if (mapped == null)
+				mapped = new MappedByteBuffer[((getSize() - 1) / getChunkRows()) + 1];
+			mapped[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long)index * bytes, bytes);
+			return mapped[index].order(ByteOrder.nativeOrder());
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+
+
+	/**
+	 * Returns the file holding this store.
+	 * @return The file.
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+	
+
+
+	/**
+	 * Writes any changes out to the file.
+	 */
+	public void flush()
+	{
+		if (mapped != null)
+			for (MappedByteBuffer chunk : mapped)
+				if (chunk != null)
+					chunk.force();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.GenomeStore#close()
+	 */
+	public void close()
+	{
+		// The mappings themselves are only released once collected
+		releaseChunks();
+		mapped = null;
+		try
+		{
+			if (channel != null)
+				channel.close();
+			channel = null;
+			if (temporary)
+				Files.deleteIfExists(file);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -21,6 +21,9 @@ package jeva.ga.initializer;
 
 
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 import jeva.ga.Genome;
 import jeva.ga.Initializer;
 
@@ -39,7 +42,17 @@ public class InitializerRandom implements Initializer
 	 */
 	public void initialize(Genome genome)
 	{
-		for (int i = 0; i < genome.length(); i++)
-			genome.getValues()[i] = (Math.random() >= 0.5);
+		initialize(genome, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Initializer#initialize(jeva.ga.Genome, java.util.random.RandomGenerator)
+	 */
+	public void initialize(Genome genome, RandomGenerator random)
+	{
+		for (int w = 0; w < genome.getWordCount(); w++)
+			genome.setWord(w, random.nextLong());
 	}
 }
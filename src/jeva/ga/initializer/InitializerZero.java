@@ -39,7 +39,7 @@ public class InitializerZero implements Initializer
 	 */
 	public void initialize(Genome genome)
 	{
-		for (int i = 0; i < genome.length(); i++)
-			genome.getValues()[i] = false;
+		for (int w = 0; w < genome.getWordCount(); w++)
+			genome.setWord(w, 0);
 	}
 }
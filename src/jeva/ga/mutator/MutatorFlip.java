@@ -21,6 +21,9 @@ package jeva.ga.mutator;
 
 
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 import jeva.ga.Genome;
 import jeva.ga.Mutator;
 
@@ -38,9 +41,27 @@ public class MutatorFlip implements Mutator
 	 */
 	public void mutate(Genome genome, double mr)
 	{
-		boolean[] values = genome.getValues();
-		for (int i = 0; i < values.length; i++)
-			if (Math.random() < mr)
-				values[i] = !values[i];
+		mutate(genome, mr, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Mutator#mutate(jeva.ga.Genome, double, java.util.random.RandomGenerator)
+	 */
+	public void mutate(Genome genome, double mr, RandomGenerator random)
+	{
+		// Build one flip mask per word, then apply it in a single operation
+		int length = genome.length();
+		for (int w = 0, offset = 0; offset < length; w++, offset += Long.SIZE)
+		{
+			long mask = 0;
+			int bits = Math.min(Long.SIZE, length - offset);
+			for (int i = 0; i < bits; i++)
+				if (random.nextDouble() < mr)
+					mask |= 1L << i;
+			if (mask != 0)
+				genome.flipWord(w, mask);
+		}
 	}
 }
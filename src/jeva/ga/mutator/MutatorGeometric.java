@@ -0,0 +1,97 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.mutator;
+
+
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Genome;
+import jeva.ga.Mutator;
+
+
+
+/**
+ * Bit flip mutator that jumps straight from one flipped bit to the next
+ * <p>
+ * The gap between successive flips of independent per-bit trials is geometrically distributed, so it is drawn directly from one uniform number. The cost is therefore proportional to the number of flipped bits rather than to the genome length, which suits long genomes and low mutation rates. The flipped bits follow exactly the same distribution as with {@link MutatorFlip}.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class MutatorGeometric implements Mutator
+{
+	/* (non-Javadoc)
+	 * @see jeva.ga.Mutator#mutate(jeva.ga.Genome, double)
+	 */
+	public void mutate(Genome genome, double mr)
+	{
+		mutate(genome, mr, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Mutator#mutate(jeva.ga.Genome, double, java.util.random.RandomGenerator)
+	 */
+	public void mutate(Genome genome, double mr, RandomGenerator random)
+	{
+		int length = genome.length();
+		if (mr <= 0 || length == 0)
+			return;
+		if (mr >= 1)
+		{
+			for (int w = 0; w < genome.getWordCount(); w++)
+				genome.flipWord(w, -1L);
+			return;
+		}
+		
+		// Collect the flips of each word into one mask, then apply it in a single operation
+		double logQ = Math.log1p(-mr);
+		long position = skip(random, logQ);
+		while (position < length)
+		{
+			int w = (int)(position >>> 6);
+			long mask = 0;
+			do
+			{
+				mask |= 1L << position;
+				position += 1 + skip(random, logQ);
+			} while (position < length && (position >>> 6) == w);
+			genome.flipWord(w, mask);
+		}
+	}
+	
+
+
+	/**
+	 * Draws the number of unflipped bits before the next flipped one
+	 * @param random The random number stream
+	 * @param logQ The logarithm of the probability that a bit is not flipped
+	 * @return The number of bits to skip
+	 */
+	private static long skip(RandomGenerator random, double logQ)
+	{
+		// 1 - u lies in (0, 1], so the logarithm is finite; huge gaps saturate rather than overflow
+		double gap = Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+		return (gap < Integer.MAX_VALUE ? (long)gap : Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.mutator;
+
+
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Genome;
+import jeva.ga.Mutator;
+
+
+
+/**
+ * Bit flip mutator that builds each word's flip mask from a few random words
+ * <p>
+ * The mutation rate is rounded to a binary fraction of a fixed precision, and its binary digits are read from the least significant set one upwards: a one digit ORs the mask with a fresh random word, a zero digit ANDs it. Every bit of the result is then set with exactly the rounded probability, independently of the others, at the cost of at most one random word per digit instead of one random number per bit. This suits high mutation rates; for low ones {@link MutatorGeometric} is cheaper.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class MutatorMask implements Mutator
+{
+	private int precision;
+	
+
+
+	/**
+	 * Constructs a new MutatorMask object that rounds the mutation rate to 32 binary digits.
+	 */
+	public MutatorMask()
+	{
+		this(32);
+	}
+	
+
+
+	/**
+	 * Constructs a new MutatorMask object
+	 * @param _precision The number of binary digits the mutation rate is rounded to (1 to 62)
+	 */
+	public MutatorMask(int _precision)
+	{
+		if (_precision < 1 || _precision > 62)
+			throw new IllegalArgumentException("The precision must lie between 1 and 62 binary digits");
+		precision = _precision;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Mutator#mutate(jeva.ga.Genome, double)
+	 */
+	public void mutate(Genome genome, double mr)
+	{
+		mutate(genome, mr, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Mutator#mutate(jeva.ga.Genome, double, java.util.random.RandomGenerator)
+	 */
+	public void mutate(Genome genome, double mr, RandomGenerator random)
+	{
+		long digits = Math.round(Math.min(Math.max(mr, 0), 1) * (1L << precision));
+		if (digits == 0)
+			return;
+		
+		// Bits past the genome's length are masked off by the genome itself
+		int lowest = Long.numberOfTrailingZeros(digits);
+		for (int w = 0; w < genome.getWordCount(); w++)
+		{
+			long mask;
+			if (digits == 1L << precision)
+				mask = -1L;
+			else
+			{
+				mask = random.nextLong();
+				for (int d = lowest + 1; d < precision; d++)
+					mask = (((digits >>> d) & 1) != 0 ? mask | random.nextLong() : mask & random.nextLong());
+			}
+			if (mask != 0)
+				genome.flipWord(w, mask);
+		}
+	}
+}
@@ -33,16 +33,30 @@ import jeva.ga.Selectable;
  */
 public class ObjectiveMinimize implements Objective
 {
+	private static final long serialVersionUID = 1L;
+	
+
+
 	/* (non-Javadoc)
 	 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
 	 */
 	public int compare(Selectable o1, Selectable o2)
+	{
+		return compareFitness(o1.getFitness(), o2.getFitness());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Objective#compareFitness(double, double)
+	 */
+	public int compareFitness(double fitness1, double fitness2)
 	{
 		// Order is reverse (best = smallest = first)
 
-		if (o1.getFitness() < o2.getFitness())
+		if (fitness1 < fitness2)
 			return -1;
-		else if (o1.getFitness() > o2.getFitness())
+		else if (fitness1 > fitness2)
 			return 1;
 		else
 			return 0;
@@ -0,0 +1,84 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.replacer;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Objective;
+import jeva.ga.Replacer;
+
+
+
+/**
+ * Tournament replacement: a child replaces the worst of k individuals drawn at random (outside the elite), if it is better
+ * <p>
+ * Unlike replace-worst, this lets moderately fit individuals die too, which keeps more diversity in the population.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class ReplacerTournament implements Replacer
+{
+	private int k;
+	
+
+
+	/**
+	 * Constructs a new ReplacerTournament with tournaments of 2
+	 */
+	public ReplacerTournament()
+	{
+		this(2);
+	}
+	
+
+
+	/**
+	 * Constructs a new ReplacerTournament
+	 * @param _k The tournament size (at least 1)
+	 */
+	public ReplacerTournament(int _k)
+	{
+		if (_k < 1)
+			throw new IllegalArgumentException("The tournament size must be at least 1");
+		k = _k;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Replacer#replace(jeva.ga.Objective, double[], int, double, java.util.random.RandomGenerator)
+	 */
+	public int replace(Objective objective, double[] fitnesses, int eliteSize, double fitness, RandomGenerator random)
+	{
+		int candidates = fitnesses.length - eliteSize;
+		if (candidates <= 0)
+			return -1;
+		
+		// The fitnesses are sorted, so the worst contestant is the one with the highest index
+		int worst = eliteSize;
+		for (int i = 0; i < k; i++)
+			worst = Math.max(worst, eliteSize + random.nextInt(candidates));
+		if (objective.compareFitness(fitness, fitnesses[worst]) >= 0)
+			return -1;
+		return worst;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.replacer;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Objective;
+import jeva.ga.Replacer;
+
+
+
+/**
+ * Replace-worst replacement: a child replaces the worst individual, if it is better
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class ReplacerWorst implements Replacer
+{
+	/* (non-Javadoc)
+	 * @see jeva.ga.Replacer#replace(jeva.ga.Objective, double[], int, double, java.util.random.RandomGenerator)
+	 */
+	public int replace(Objective objective, double[] fitnesses, int eliteSize, double fitness, RandomGenerator random)
+	{
+		int worst = fitnesses.length - 1;
+		if (worst < eliteSize || objective.compareFitness(fitness, fitnesses[worst]) >= 0)
+			return -1;
+		return worst;
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.selectionplan;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
+
+
+
+/**
+ * Weighted selection plan based on Walker's alias method
+ * <p>
+ * The probabilities are redistributed into n equally likely columns, each holding at most two individuals (Vose's construction, O(n)). Each draw then picks a column and one of its two individuals from a single uniform number, i.e. O(1).
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class SelectionPlanAlias implements SelectionPlan
+{
+	private final Selectable[] selectables;
+	private final double[] fitnesses;
+	private final double[] probabilities;
+	private final int[] aliases;
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanAlias object. If the weights do not have a positive, finite sum, every individual is equally likely.
+	 * @param _selectables The individuals
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	public SelectionPlanAlias(Selectable[] _selectables, double[] weights)
+	{
+		this(_selectables.clone(), null, weights);
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanAlias object over individuals given by their fitnesses, which selects them by index (single selections return a {@link SelectionPlanIndexed.Handle}). If the weights do not have a positive, finite sum, every individual is equally likely.
+	 * @param _fitnesses The fitnesses of the individuals, in order
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	public SelectionPlanAlias(double[] _fitnesses, double[] weights)
+	{
+		this(null, _fitnesses.clone(), weights);
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanAlias object.
+	 * @param _selectables The individuals, or null
+	 * @param _fitnesses The fitnesses of the individuals, if there are no Selectables
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	private SelectionPlanAlias(Selectable[] _selectables, double[] _fitnesses, double[] weights)
+	{
+		int n = weights.length;
+		selectables = _selectables;
+		fitnesses = _fitnesses;
+		probabilities = new double[n];
+		aliases = new int[n];
+		
+		double weightsSum = 0;
+		for (double weight : weights)
+			weightsSum += weight;
+		boolean uniform = !(weightsSum > 0 && weightsSum < Double.POSITIVE_INFINITY);
+		
+		// Scale the probabilities so that they average 1, and split the columns into under- and over-full ones
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int nSmall = 0;
+		int nLarge = 0;
+		for (int i = 0; i < n; i++)
+		{
+			scaled[i] = (uniform ? 1 : weights[i] * n / weightsSum);
+			if (scaled[i] < 1)
+				small[nSmall++] = i;
+			else
+				large[nLarge++] = i;
+		}
+		
+		// Top up each under-full column from an over-full one
+		while (nSmall > 0 && nLarge > 0)
+		{
+			int s = small[--nSmall];
+			int l = large[--nLarge];
+			probabilities[s] = scaled[s];
+			aliases[s] = l;
+			scaled[l] = (scaled[l] + scaled[s]) - 1;
+			if (scaled[l] < 1)
+				small[nSmall++] = l;
+			else
+				large[nLarge++] = l;
+		}
+		
+		// Whatever remains is full (up to rounding)
+		while (nLarge > 0)
+		{
+			int l = large[--nLarge];
+			probabilities[l] = 1;
+			aliases[l] = l;
+		}
+		while (nSmall > 0)
+		{
+			int s = small[--nSmall];
+			probabilities[s] = 1;
+			aliases[s] = s;
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#select(java.util.random.RandomGenerator)
+	 */
+	public Selectable select(RandomGenerator random)
+	{
+		int index = selectIndex(random);
+		return (selectables != null ? selectables[index] : new SelectionPlanIndexed.Handle(index, fitnesses[index]));
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#selectIndex(java.util.random.RandomGenerator)
+	 */
+	public int selectIndex(RandomGenerator random)
+	{
+		double u = random.nextDouble() * probabilities.length;
+		int column = Math.min((int)u, probabilities.length - 1);
+		
+		return (u - column < probabilities[column] ? column : aliases[column]);
+	}
+}
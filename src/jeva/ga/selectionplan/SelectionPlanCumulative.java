@@ -0,0 +1,126 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.selectionplan;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
+
+
+
+/**
+ * Weighted selection plan based on cumulative probabilities
+ * <p>
+ * Each draw is a binary search for the first individual whose cumulative probability exceeds a uniform number, i.e. O(log n). It picks exactly the individual a linear scan of the roulette wheel would.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class SelectionPlanCumulative implements SelectionPlan
+{
+	private final Selectable[] selectables;
+	private final double[] fitnesses;
+	private final double[] summedSelectionProbabilities;
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanCumulative object. If the weights do not have a positive, finite sum, every individual is equally likely.
+	 * @param _selectables The individuals
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	public SelectionPlanCumulative(Selectable[] _selectables, double[] weights)
+	{
+		this(_selectables.clone(), null, weights);
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanCumulative object over individuals given by their fitnesses, which selects them by index (single selections return a {@link SelectionPlanIndexed.Handle}). If the weights do not have a positive, finite sum, every individual is equally likely.
+	 * @param _fitnesses The fitnesses of the individuals, in order
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	public SelectionPlanCumulative(double[] _fitnesses, double[] weights)
+	{
+		this(null, _fitnesses.clone(), weights);
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanCumulative object.
+	 * @param _selectables The individuals, or null
+	 * @param _fitnesses The fitnesses of the individuals, if there are no Selectables
+	 * @param weights The (non-negative) selection weights of the individuals
+	 */
+	private SelectionPlanCumulative(Selectable[] _selectables, double[] _fitnesses, double[] weights)
+	{
+		selectables = _selectables;
+		fitnesses = _fitnesses;
+		summedSelectionProbabilities = new double[weights.length];
+		
+		double weightsSum = 0;
+		for (double weight : weights)
+			weightsSum += weight;
+		boolean uniform = !(weightsSum > 0 && weightsSum < Double.POSITIVE_INFINITY);
+		
+		for (int i = 0; i < summedSelectionProbabilities.length; i++)
+			summedSelectionProbabilities[i] = (uniform ? 1.0 / weights.length : weights[i] / weightsSum) + (i == 0 ? 0 : summedSelectionProbabilities[i - 1]);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#select(java.util.random.RandomGenerator)
+	 */
+	public Selectable select(RandomGenerator random)
+	{
+		int index = selectIndex(random);
+		return (selectables != null ? selectables[index] : new SelectionPlanIndexed.Handle(index, fitnesses[index]));
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#selectIndex(java.util.random.RandomGenerator)
+	 */
+	public int selectIndex(RandomGenerator random)
+	{
+		double p = random.nextDouble();
+		
+		// Find the first index whose cumulative probability exceeds p (the last one, if rounding leaves p above them all)
+		int low = 0;
+		int high = summedSelectionProbabilities.length - 1;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (p < summedSelectionProbabilities[middle])
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		
+		return low;
+	}
+}
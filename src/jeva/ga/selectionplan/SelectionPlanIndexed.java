@@ -0,0 +1,149 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.selectionplan;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Objective;
+import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
+import jeva.ga.Selector;
+
+
+
+/**
+ * Selection plan over individuals given by their fitnesses, for Selectors that can only prepare plans over Selectables
+ * <p>
+ * Every fitness is wrapped in a {@link Handle} that remembers its index, and the Selector's own plan is prepared over the handles. The bundled plans that only select by index return such handles from {@link SelectionPlan#select(RandomGenerator)} too.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class SelectionPlanIndexed implements SelectionPlan
+{
+	private final SelectionPlan plan;
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanIndexed object
+	 * @param selector The Selector
+	 * @param objective The optimisation objective
+	 * @param fitnesses The fitnesses of the individuals, in order
+	 */
+	public SelectionPlanIndexed(Selector selector, Objective objective, double[] fitnesses)
+	{
+		Selectable[] handles = new Selectable[fitnesses.length];
+		for (int i = 0; i < handles.length; i++)
+			handles[i] = new Handle(i, fitnesses[i]);
+		plan = selector.prepare(objective, handles);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#select(java.util.random.RandomGenerator)
+	 */
+	public Selectable select(RandomGenerator random)
+	{
+		return plan.select(random);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#select(int, java.util.random.RandomGenerator)
+	 */
+	public Selectable[] select(int n, RandomGenerator random)
+	{
+		return plan.select(n, random);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#selectIndex(java.util.random.RandomGenerator)
+	 */
+	public int selectIndex(RandomGenerator random)
+	{
+		return ((Handle)plan.select(random)).index;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#selectIndices(int, java.util.random.RandomGenerator)
+	 */
+	public int[] selectIndices(int n, RandomGenerator random)
+	{
+		Selectable[] selected = plan.select(n, random);
+		int[] indices = new int[selected.length];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = ((Handle)selected[i]).index;
+		
+		return indices;
+	}
+	
+
+
+	/**
+	 * A handle on the fitness of an individual, and its index.
+	 */
+	public static class Handle implements Selectable
+	{
+		private final int index;
+		private final double fitness;
+		
+
+
+		/**
+		 * Constructs a new Handle.
+		 * @param _index The index of the individual.
+		 * @param _fitness The fitness of the individual.
+		 */
+		public Handle(int _index, double _fitness)
+		{
+			index = _index;
+			fitness = _fitness;
+		}
+		
+
+
+		/**
+		 * Returns the index of the individual.
+		 * @return The index of the individual.
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+		
+
+
+		/* (non-Javadoc)
+		 * @see jeva.ga.Selectable#getFitness()
+		 */
+		public double getFitness()
+		{
+			return fitness;
+		}
+	}
+}
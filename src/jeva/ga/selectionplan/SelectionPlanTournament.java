@@ -0,0 +1,177 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package jeva.ga.selectionplan;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Objective;
+import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
+
+
+
+/**
+ * Tournament selection plan
+ * <p>
+ * The fitnesses are copied once, when the plan is made. Each draw then samples k contestant indices (distinct ones with Floyd's algorithm, unless replacement is allowed) and keeps the best in a single pass of primitive comparisons, without allocating anything.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class SelectionPlanTournament implements SelectionPlan
+{
+	private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[16]);
+	
+	private final Objective objective;
+	private final Selectable[] selectables;
+	private final double[] fitnesses;
+	private final int k;
+	private final boolean replacement;
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanTournament object
+	 * @param _objective The optimisation objective
+	 * @param _selectables The individuals
+	 * @param _k The tournament size (capped to the number of individuals, unless replacement is allowed)
+	 * @param _replacement True, to allow an individual to enter the same tournament more than once; false, for distinct contestants
+	 */
+	public SelectionPlanTournament(Objective _objective, Selectable[] _selectables, int _k, boolean _replacement)
+	{
+		if (_selectables.length == 0)
+			throw new IllegalArgumentException("There are no individuals to select from");
+		if (_k < 1)
+			throw new IllegalArgumentException("The tournament size must be positive");
+		
+		objective = _objective;
+		selectables = _selectables.clone();
+		fitnesses = new double[selectables.length];
+		for (int i = 0; i < fitnesses.length; i++)
+			fitnesses[i] = selectables[i].getFitness();
+		k = (_replacement ? _k : Math.min(_k, selectables.length));
+		replacement = _replacement;
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectionPlanTournament object over individuals given by their fitnesses, which selects them by index (single selections return a {@link SelectionPlanIndexed.Handle})
+	 * @param _objective The optimisation objective
+	 * @param _fitnesses The fitnesses of the individuals, in order
+	 * @param _k The tournament size (capped to the number of individuals, unless replacement is allowed)
+	 * @param _replacement True, to allow an individual to enter the same tournament more than once; false, for distinct contestants
+	 */
+	public SelectionPlanTournament(Objective _objective, double[] _fitnesses, int _k, boolean _replacement)
+	{
+		if (_fitnesses.length == 0)
+			throw new IllegalArgumentException("There are no individuals to select from");
+		if (_k < 1)
+			throw new IllegalArgumentException("The tournament size must be positive");
+		
+		objective = _objective;
+		selectables = null;
+		fitnesses = _fitnesses.clone();
+		k = (_replacement ? _k : Math.min(_k, fitnesses.length));
+		replacement = _replacement;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#select(java.util.random.RandomGenerator)
+	 */
+	public Selectable select(RandomGenerator random)
+	{
+		int index = selectIndex(random);
+		return (selectables != null ? selectables[index] : new SelectionPlanIndexed.Handle(index, fitnesses[index]));
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.SelectionPlan#selectIndex(java.util.random.RandomGenerator)
+	 */
+	public int selectIndex(RandomGenerator random)
+	{
+		int n = fitnesses.length;
+		int best;
+		if (replacement)
+		{
+			best = random.nextInt(n);
+			for (int i = 1; i < k; i++)
+				best = better(best, random.nextInt(n));
+		}
+		else
+		{
+			// Floyd's algorithm: a uniform k-subset of [0, n) from exactly k draws
+			int[] chosen = scratch(k);
+			best = -1;
+			for (int j = n - k, nChosen = 0; j < n; j++)
+			{
+				int t = random.nextInt(j + 1);
+				for (int c = 0; c < nChosen; c++)
+					if (chosen[c] == t)
+					{
+						t = j;
+						break;
+					}
+				chosen[nChosen++] = t;
+				best = (best < 0 ? t : better(best, t));
+			}
+		}
+		
+		return best;
+	}
+	
+
+
+	/**
+	 * Returns the better of two contestants (the incumbent, on a tie)
+	 * @param incumbent The index of the current winner
+	 * @param challenger The index of the challenger
+	 * @return The index of the winner
+	 */
+	private int better(int incumbent, int challenger)
+	{
+		return (objective.compareFitness(fitnesses[challenger], fitnesses[incumbent]) < 0 ? challenger : incumbent);
+	}
+	
+
+
+	/**
+	 * Returns this thread's scratch array, grown to at least the specified size if necessary
+	 * @param size The required size
+	 * @return The scratch array
+	 */
+	private static int[] scratch(int size)
+	{
+		int[] chosen = SCRATCH.get();
+		if (chosen.length < size)
+		{
+			chosen = new int[Math.max(size, chosen.length * 2)];
+			SCRATCH.set(chosen);
+		}
+		
+		return chosen;
+	}
+}
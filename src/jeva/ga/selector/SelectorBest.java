@@ -21,9 +21,13 @@ package jeva.ga.selector;
 
 
 
+import java.util.random.RandomGenerator;
+
 import jeva.ga.Objective;
 import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
 import jeva.ga.Selector;
+import jeva.ga.selectionplan.SelectionPlanIndexed;
 
 
 
@@ -48,4 +52,45 @@ public class SelectorBest implements Selector
 		
 		return selected;
 	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#prepare(jeva.ga.Objective, double[])
+	 */
+	public SelectionPlan prepare(Objective objective, double[] fitnesses)
+	{
+		// NB: Assumes fitnesses are sorted
+		
+		return new SelectionPlan()
+		{
+			public Selectable select(RandomGenerator random)
+			{
+				return new SelectionPlanIndexed.Handle(0, fitnesses[0]);
+			}
+			
+			public Selectable[] select(int n, RandomGenerator random)
+			{
+				Selectable[] selected = new Selectable[n];
+				for (int index = 0; index < n; index++)
+					selected[index] = new SelectionPlanIndexed.Handle(index, fitnesses[index]);
+				
+				return selected;
+			}
+			
+			public int selectIndex(RandomGenerator random)
+			{
+				return 0;
+			}
+			
+			public int[] selectIndices(int n, RandomGenerator random)
+			{
+				int[] selected = new int[n];
+				for (int index = 0; index < n; index++)
+					selected[index] = index;
+				
+				return selected;
+			}
+		};
+	}
 }
@@ -14,9 +14,15 @@ package jeva.ga.selector;
 
 
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 import jeva.ga.Objective;
 import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
 import jeva.ga.Selector;
+import jeva.ga.selectionplan.SelectionPlanAlias;
+import jeva.ga.selectionplan.SelectionPlanCumulative;
 
 
 
@@ -27,64 +33,97 @@ import jeva.ga.Selector;
  */
 public class SelectorRoulette implements Selector
 {
-	private Selectable[] storedSelectables;
-	private double[] summedSelectionProbabilities;
+	private boolean alias;
+	
+
+
+	/**
+	 * Constructs a new SelectorRoulette that prepares alias-table plans
+	 */
+	public SelectorRoulette()
+	{
+		this(true);
+	}
 	
 
 
-	/*
-	 * (non-Javadoc)
-	 * 
+	/**
+	 * Constructs a new SelectorRoulette
+	 * @param _alias True, to prepare alias-table plans (O(1) per draw); false, to prepare cumulative-probability plans (O(log n) per draw)
+	 */
+	public SelectorRoulette(boolean _alias)
+	{
+		alias = _alias;
+	}
+	
+
+
+	/* (non-Javadoc)
 	 * @see jeva.ga.Selector#select(jeva.ga.Objective, jeva.ga.Selectable[], int)
 	 */
 	public Selectable[] select(Objective objective, Selectable[] selectables, int n)
 	{
-		// NB: Assumes selectables are sorted
-		
-		storedSelectables = selectables;
-		
+		return select(objective, selectables, n, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#select(jeva.ga.Objective, jeva.ga.Selectable[], int, java.util.random.RandomGenerator)
+	 */
+	public Selectable[] select(Objective objective, Selectable[] selectables, int n, RandomGenerator random)
+	{
+		return prepare(objective, selectables).select(n, random);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#prepare(jeva.ga.Objective, jeva.ga.Selectable[])
+	 */
+	public SelectionPlan prepare(Objective objective, Selectable[] selectables)
+	{
 		// Copy fitnesses so that we don't have to invoke getFitness() twice for each individual (in case it's slow)
-		double[] fitnesses = new double[storedSelectables.length];
-		double fitnessesSum = 0;
+		double[] fitnesses = new double[selectables.length];
 		for (int i = 0; i < fitnesses.length; i++)
-		{
-			// Check if indeed sorted
-			if (i > 0 && (objective.compare(storedSelectables[i - 1], storedSelectables[i]) == 1))
-			{
-				System.out.println("ERROR: Selectables not sorted: " + storedSelectables[i - 1].getFitness() + " < " + storedSelectables[i].getFitness());
-				System.exit(-1);
-			}
-			
-			fitnesses[i] = storedSelectables[i].getFitness();
-			fitnessesSum += fitnesses[i];
-		}
-		
-		// Calculate probabilities
-		summedSelectionProbabilities = new double[storedSelectables.length];
-		for (int i = 0; i < summedSelectionProbabilities.length; i++)
-			summedSelectionProbabilities[i] = fitnesses[i] / fitnessesSum + (i == 0 ? 0 : summedSelectionProbabilities[i - 1]);
-		
-		// Perform n selections
-		Selectable[] selected = new Selectable[n];
-		for (int index = 0; index < n; index++)
-			selected[index] = select();
+			fitnesses[i] = selectables[i].getFitness();
 		
-		return selected;
+		return prepare(objective, selectables, fitnesses);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#prepare(jeva.ga.Objective, double[])
+	 */
+	public SelectionPlan prepare(Objective objective, double[] fitnesses)
+	{
+		return prepare(objective, null, fitnesses);
 	}
 	
 
 
 	/**
-	 * Perform a single selection
-	 * @return The selected individual
+	 * Prepares a plan from the fitnesses of the individuals
+	 * @param objective The optimisation objective
+	 * @param selectables The individuals, or null for a plan over the fitnesses alone
+	 * @param fitnesses The fitnesses of the individuals
+	 * @return The selection plan
 	 */
-	private Selectable select()
+	private SelectionPlan prepare(Objective objective, Selectable[] selectables, double[] fitnesses)
 	{
-		double p = Math.random();
-		for (int i = 0; i < summedSelectionProbabilities.length; i++)
-			if (p < summedSelectionProbabilities[i])
-				return storedSelectables[i];
+		// NB: Assumes selectables are sorted
+		
+		// Check if indeed sorted
+		for (int i = 1; i < fitnesses.length; i++)
+			if (objective.compareFitness(fitnesses[i - 1], fitnesses[i]) == 1)
+			{
+				System.out.println("ERROR: Selectables not sorted: " + fitnesses[i - 1] + " < " + fitnesses[i]);
+				System.exit(-1);
+			}
 		
-		return storedSelectables[storedSelectables.length - 1];
+		if (selectables == null)
+			return (alias ? new SelectionPlanAlias(fitnesses, fitnesses) : new SelectionPlanCumulative(fitnesses, fitnesses));
+		return (alias ? new SelectionPlanAlias(selectables, fitnesses) : new SelectionPlanCumulative(selectables, fitnesses));
 	}
 }
@@ -14,12 +14,14 @@ package jeva.ga.selector;
 
 
 
-import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 import jeva.ga.Objective;
 import jeva.ga.Selectable;
+import jeva.ga.SelectionPlan;
 import jeva.ga.Selector;
-import jeva.util.Utilities;
+import jeva.ga.selectionplan.SelectionPlanTournament;
 
 
 
@@ -31,16 +33,30 @@ import jeva.util.Utilities;
 public class SelectorTournament implements Selector
 {
 	private int k;
+	private boolean replacement;
 	
 
 
 	/**
-	 * Constructs a new SelectorTournament
+	 * Constructs a new SelectorTournament with distinct contestants
 	 * @param _k The tournament size
 	 */
 	public SelectorTournament(int _k)
+	{
+		this(_k, false);
+	}
+	
+
+
+	/**
+	 * Constructs a new SelectorTournament
+	 * @param _k The tournament size
+	 * @param _replacement True, to allow an individual to enter the same tournament more than once; false, for distinct contestants
+	 */
+	public SelectorTournament(int _k, boolean _replacement)
 	{
 		k = _k;
+		replacement = _replacement;
 	}
 	
 
@@ -52,22 +68,48 @@ public class SelectorTournament implements Selector
 	 */
 	public Selectable[] select(Objective objective, Selectable[] selectables, int n)
 	{
-		// NB: Assumes selectables are sorted
-		
-		Selectable[] selected = new Selectable[n];
-		
-		for (int index = 0; index < n; index++)
-		{
-			Selectable[] contestants = new Selectable[k];
-			Integer[] selectedIndices = Utilities.chooseRandom(0, selectables.length, k);
-			
-			for (int i = 0; i < k; i++)
-				contestants[i] = selectables[selectedIndices[i]];
-			
-			Arrays.sort(contestants, objective);
-			selected[index] = contestants[0];
-		}
+		return select(objective, selectables, n, ThreadLocalRandom.current());
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#select(jeva.ga.Objective, jeva.ga.Selectable[], int, java.util.random.RandomGenerator)
+	 */
+	public Selectable[] select(Objective objective, Selectable[] selectables, int n, RandomGenerator random)
+	{
+		return prepare(objective, selectables).select(n, random);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#requiresSortedSelectables()
+	 */
+	public boolean requiresSortedSelectables()
+	{
+		return false;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#prepare(jeva.ga.Objective, jeva.ga.Selectable[])
+	 */
+	public SelectionPlan prepare(Objective objective, Selectable[] selectables)
+	{
+		// NB: Selectables need not be sorted
 		
-		return selected;
+		return new SelectionPlanTournament(objective, selectables, k, replacement);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Selector#prepare(jeva.ga.Objective, double[])
+	 */
+	public SelectionPlan prepare(Objective objective, double[] fitnesses)
+	{
+		return new SelectionPlanTournament(objective, fitnesses, k, replacement);
 	}
 }
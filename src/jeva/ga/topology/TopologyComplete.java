@@ -0,0 +1,47 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.topology;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Topology;
+
+
+
+/**
+ * Fully connected topology: every island sends its migrants to all the others
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class TopologyComplete implements Topology
+{
+	/* (non-Javadoc)
+	 * @see jeva.ga.Topology#getTargets(int, int, java.util.random.RandomGenerator)
+	 */
+	public int[] getTargets(int island, int nIslands, RandomGenerator random)
+	{
+		int[] targets = new int[Math.max(0, nIslands - 1)];
+		for (int i = 0; i < targets.length; i++)
+			targets[i] = (i < island ? i : i + 1);
+		return targets;
+	}
+}
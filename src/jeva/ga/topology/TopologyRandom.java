@@ -0,0 +1,86 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.topology;
+
+
+
+import java.util.random.RandomGenerator;
+
+import jeva.ga.Topology;
+
+
+
+/**
+ * Random topology: every island sends its migrants to k other islands, drawn afresh at every migration
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class TopologyRandom implements Topology
+{
+	private int k;
+	
+
+
+	/**
+	 * Constructs a new TopologyRandom that sends to one island
+	 */
+	public TopologyRandom()
+	{
+		this(1);
+	}
+	
+
+
+	/**
+	 * Constructs a new TopologyRandom
+	 * @param _k The number of receiving islands (at least 1)
+	 */
+	public TopologyRandom(int _k)
+	{
+		if (_k < 1)
+			throw new IllegalArgumentException("The number of receiving islands must be at least 1");
+		k = _k;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.Topology#getTargets(int, int, java.util.random.RandomGenerator)
+	 */
+	public int[] getTargets(int island, int nIslands, RandomGenerator random)
+	{
+		// Partial Fisher-Yates shuffle of the other islands
+		int[] others = new int[Math.max(0, nIslands - 1)];
+		for (int i = 0; i < others.length; i++)
+			others[i] = (i < island ? i : i + 1);
+		int n = Math.min(k, others.length);
+		for (int i = 0; i < n; i++)
+		{
+			int j = i + random.nextInt(others.length - i);
+			int swap = others[i];
+			others[i] = others[j];
+			others[j] = swap;
+		}
+		
+		int[] targets = new int[n];
+		System.arraycopy(others, 0, targets, 0, n);
+		return targets;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.tracesink;
+
+
+
+import java.nio.ByteBuffer;
+
+
+
+/**
+ * The layout of a trace log, shared by its writer and its reader
+ * <p>
+ * All values are little-endian. A fixed-size header at the start of the file holds the magic number, the version, the index interval, the end of the last complete record, the number of generation records, and the offset of the last index block. Records follow, each starting with its type and its length in bytes:
+ * <ul>
+ * <li>A generation record holds the generation, the population size, the genome length, whether it is a keyframe, the fitness column (NaN for unevaluated genomes), and one entry per genome: either the genome words, a reference to an identical genome of the previous record, or a reference to a genome of the previous record along with the (sparse) XOR of their words. Keyframes hold the genome words only, so they can be decoded on their own.</li>
+ * <li>An index block follows every <tt>indexInterval</tt> generation records (the first of which is always a keyframe), and holds the offset of the previous index block, the ordinal of its first record, and the offset and generation of each record.</li>
+ * </ul>
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+final class TraceFormat
+{
+	static final long MAGIC = 0x4543415254764A45L; // "JEvTRACE"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	static final int HEADER_VERSION = 8;
+	static final int HEADER_INDEX_INTERVAL = 12;
+	static final int HEADER_END = 16;
+	static final int HEADER_RECORDS = 24;
+	static final int HEADER_LAST_INDEX = 32;
+	
+	static final byte RECORD_GENERATION = 1;
+	static final byte RECORD_INDEX = 2;
+	static final int RECORD_LENGTH = 1;
+	static final int GENERATION_HEADER_BYTES = 1 + 4 + 4 + 4 + 4 + 1;
+	static final int INDEX_HEADER_BYTES = 1 + 4 + 8 + 4 + 4;
+	static final int INDEX_ENTRY_BYTES = 8 + 4;
+	
+	static final byte GENOME_LITERAL = 0;
+	static final byte GENOME_COPY = 1;
+	static final byte GENOME_XOR = 2;
+	
+
+
+	private TraceFormat()
+	{
+	}
+	
+
+
+	/**
+	 * Writes an unsigned variable-length integer, seven bits to a byte.
+	 * @param buffer The buffer.
+	 * @param value The value (non-negative).
+	 */
+	static void putVarint(ByteBuffer buffer, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+	
+
+
+	/**
+	 * Reads an unsigned variable-length integer.
+	 * @param buffer The buffer.
+	 * @return The value.
+	 */
+	static int getVarint(ByteBuffer buffer)
+	{
+		int value = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+			if (shift >= 28)
+				throw new IllegalArgumentException("Invalid variable-length integer");
+		}
+	}
+	
+
+
+	/**
+	 * Returns the number of bytes an unsigned variable-length integer is written in.
+	 * @param value The value (non-negative).
+	 * @return The number of bytes.
+	 */
+	static int varintBytes(int value)
+	{
+		return (value < (1 << 7) ? 1 : value < (1 << 14) ? 2 : value < (1 << 21) ? 3 : value < (1 << 28) ? 4 : 5);
+	}
+}
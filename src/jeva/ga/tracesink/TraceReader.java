@@ -0,0 +1,357 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.tracesink;
+
+
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import jeva.ga.Genome;
+import jeva.ga.Objective;
+import jeva.ga.Population;
+
+
+
+/**
+ * Reads back a trace written by a {@link TraceSinkMapped}
+ * <p>
+ * Opening a trace reads its index blocks only. A generation is then found through the index, and decoded from the keyframe before it; generations read in order are decoded from the one read before. Fitnesses can be read without decoding any genomes. A trace whose run was interrupted can be read up to the last generation recorded.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class TraceReader implements AutoCloseable
+{
+	private final Path file;
+	private FileChannel channel;
+	private final int indexInterval;
+	private final long end;
+	private final long[] offsets;
+	private final int[] generations;
+	private int decodedOrdinal = -1;
+	private int decodedSize = 0;
+	private int decodedLength = 0;
+	private long[] decodedWords = new long[0];
+	private long[] spareWords = new long[0];
+	
+
+
+	/**
+	 * Constructs a new TraceReader object, and reads the index of the trace in the specified file
+	 * @param _file The file
+	 * @throws IOException If the file cannot be read, or is not a valid trace
+	 */
+	public TraceReader(Path _file) throws IOException
+	{
+		file = _file;
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try
+		{
+			if (channel.size() < TraceFormat.HEADER_BYTES)
+				throw new IOException("Not a trace: " + file);
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getLong(0) != TraceFormat.MAGIC)
+				throw new IOException("Not a trace: " + file);
+			if (header.getInt(TraceFormat.HEADER_VERSION) != TraceFormat.VERSION)
+				throw new IOException("Unsupported trace version " + header.getInt(TraceFormat.HEADER_VERSION) + ": " + file);
+			indexInterval = header.getInt(TraceFormat.HEADER_INDEX_INTERVAL);
+			end = header.getLong(TraceFormat.HEADER_END);
+			int records = header.getInt(TraceFormat.HEADER_RECORDS);
+			long lastIndex = header.getLong(TraceFormat.HEADER_LAST_INDEX);
+			if (indexInterval < 1 || records < 0 || end < TraceFormat.HEADER_BYTES || end > channel.size())
+				throw new IOException("Corrupt trace header: " + file);
+			offsets = new long[records];
+			generations = new int[records];
+			
+			// Index blocks, walking back from the last one
+			int indexed = 0;
+			long tail = TraceFormat.HEADER_BYTES;
+			for (long index = lastIndex; index >= 0; )
+			{
+				ByteBuffer block = map(index, TraceFormat.INDEX_HEADER_BYTES);
+				int length = block.getInt(TraceFormat.RECORD_LENGTH);
+				if (block.get(0) != TraceFormat.RECORD_INDEX || length < TraceFormat.INDEX_HEADER_BYTES)
+					throw new IOException("Corrupt trace index at " + index + ": " + file);
+				block = map(index, length);
+				block.position(1 + 4);
+				long previous = block.getLong();
+				int first = block.getInt();
+				int count = block.getInt();
+				if (first < 0 || count < 0 || first + count > records || length != TraceFormat.INDEX_HEADER_BYTES + count * TraceFormat.INDEX_ENTRY_BYTES || previous >= index)
+					throw new IOException("Corrupt trace index at " + index + ": " + file);
+				for (int k = 0; k < count; k++)
+				{
+					offsets[first + k] = block.getLong();
+					generations[first + k] = block.getInt();
+				}
+				if (index == lastIndex)
+				{
+					indexed = first + count;
+					tail = index + length;
+				}
+				index = previous;
+			}
+			
+			// Generations recorded after the last index block
+			for (int ordinal = indexed; ordinal < records; ordinal++)
+			{
+				ByteBuffer record = map(tail, TraceFormat.GENERATION_HEADER_BYTES);
+				if (record.get(0) != TraceFormat.RECORD_GENERATION)
+					throw new IOException("Corrupt trace record at " + tail + ": " + file);
+				offsets[ordinal] = tail;
+				generations[ordinal] = record.getInt(1 + 4);
+				tail += record.getInt(TraceFormat.RECORD_LENGTH);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+	
+
+
+	/**
+	 * Returns the file holding this trace.
+	 * @return The file.
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+	
+
+
+	/**
+	 * Returns the number of generations recorded.
+	 * @return The number of generations.
+	 */
+	public int getGenerationCount()
+	{
+		return generations.length;
+	}
+	
+
+
+	/**
+	 * Returns the generations recorded, in the order they were recorded.
+	 * @return The generations.
+	 */
+	public int[] getGenerations()
+	{
+		return generations.clone();
+	}
+	
+
+
+	/**
+	 * Reads the fitnesses of a generation (best first), without decoding its genomes.
+	 * @param generation The generation (the last one recorded with this number, if the run was restored).
+	 * @return The fitnesses (NaN for genomes that were not evaluated).
+	 * @throws IOException If the trace cannot be read.
+	 */
+	public double[] readFitnesses(int generation) throws IOException
+	{
+		ByteBuffer record = mapRecord(ordinal(generation));
+		int size = record.getInt(1 + 4 + 4);
+		double[] fitnesses = new double[size];
+		record.position(TraceFormat.GENERATION_HEADER_BYTES);
+		record.asDoubleBuffer().get(fitnesses);
+		return fitnesses;
+	}
+	
+
+
+	/**
+	 * Reads a generation into a new Population.
+	 * @param generation The generation (the last one recorded with this number, if the run was restored).
+	 * @param objective The optimisation objective.
+	 * @return The population, in the order it was recorded (best first).
+	 * @throws IOException If the trace cannot be read.
+	 */
+	public Population readPopulation(int generation, Objective objective) throws IOException
+	{
+		double[] fitnesses = readFitnesses(generation);
+		decode(ordinal(generation));
+		
+		int wordCount = Genome.wordCount(decodedLength);
+		Population population = new Population(objective, decodedSize);
+		for (int i = 0; i < decodedSize; i++)
+		{
+			Genome genome = new Genome(decodedLength);
+			for (int w = 0; w < wordCount; w++)
+				genome.setWord(w, decodedWords[i * wordCount + w]);
+			if (!Double.isNaN(fitnesses[i]))
+				genome.setFitness(fitnesses[i]);
+			population.setGenome(i, genome);
+		}
+		return population;
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	public void close() throws IOException
+	{
+		if (channel != null)
+			channel.close();
+		channel = null;
+	}
+	
+
+
+	/**
+	 * Returns the ordinal of the last record of a generation.
+	 * @param generation The generation.
+	 * @return The ordinal.
+	 */
+	private int ordinal(int generation)
+	{
+		for (int ordinal = generations.length - 1; ordinal >= 0; ordinal--)
+			if (generations[ordinal] == generation)
+				return ordinal;
+		throw new IllegalArgumentException("Generation " + generation + " was not recorded");
+	}
+	
+
+
+	/**
+	 * Decodes the genomes of a record, starting from the last record decoded if it lies after the keyframe, or from the keyframe otherwise.
+	 * @param ordinal The ordinal of the record.
+	 * @throws IOException If the trace cannot be read.
+	 */
+	private void decode(int ordinal) throws IOException
+	{
+		int keyframe = ordinal - ordinal % indexInterval;
+		int from = (decodedOrdinal >= keyframe && decodedOrdinal <= ordinal ? decodedOrdinal + 1 : keyframe);
+		for (int o = from; o <= ordinal; o++)
+			apply(o);
+	}
+	
+
+
+	/**
+	 * Decodes the genomes of a record, on top of the previous one.
+	 * @param ordinal The ordinal of the record (just after the last record decoded, unless it is a keyframe).
+	 * @throws IOException If the trace cannot be read.
+	 */
+	private void apply(int ordinal) throws IOException
+	{
+		ByteBuffer record = mapRecord(ordinal);
+		record.position(1 + 4 + 4);
+		int size = record.getInt();
+		int genomeLength = record.getInt();
+		boolean keyframe = (record.get() != 0);
+		if (!keyframe && decodedOrdinal != ordinal - 1)
+			throw new IOException("Trace record " + ordinal + " is not preceded by a keyframe: " + file);
+		record.position(record.position() + size * Double.BYTES);
+		
+		int wordCount = Genome.wordCount(genomeLength);
+		if (spareWords.length < size * wordCount)
+			spareWords = new long[size * wordCount];
+		long[] words = spareWords;
+		try
+		{
+			for (int i = 0; i < size; i++)
+			{
+				int base = i * wordCount;
+				byte kind = record.get();
+				if (kind == TraceFormat.GENOME_LITERAL)
+				{
+					for (int w = 0; w < wordCount; w++)
+						words[base + w] = record.getLong();
+					continue;
+				}
+				if (keyframe || (kind != TraceFormat.GENOME_COPY && kind != TraceFormat.GENOME_XOR))
+					throw new IllegalArgumentException("Invalid genome entry " + kind);
+				
+				int j = TraceFormat.getVarint(record);
+				if (j >= decodedSize || genomeLength != decodedLength)
+					throw new IllegalArgumentException("Invalid genome reference " + j);
+				System.arraycopy(decodedWords, j * wordCount, words, base, wordCount);
+				if (kind == TraceFormat.GENOME_XOR)
+				{
+					int changed = TraceFormat.getVarint(record);
+					for (int k = 0, w = -1; k < changed; k++)
+					{
+						w += TraceFormat.getVarint(record) + 1;
+						if (w >= wordCount)
+							throw new IllegalArgumentException("Invalid word index " + w);
+						words[base + w] ^= record.getLong();
+					}
+				}
+			}
+		}
+		catch (IllegalArgumentException | BufferUnderflowException e)
+		{
+			decodedOrdinal = -1;
+			throw new IOException("Corrupt trace record " + ordinal + ": " + file, e);
+		}
+		
+		spareWords = decodedWords;
+		decodedWords = words;
+		decodedSize = size;
+		decodedLength = genomeLength;
+		decodedOrdinal = ordinal;
+	}
+	
+
+
+	/**
+	 * Maps a generation record.
+	 * @param ordinal The ordinal of the record.
+	 * @return The record.
+	 * @throws IOException If the trace cannot be read.
+	 */
+	private ByteBuffer mapRecord(int ordinal) throws IOException
+	{
+		long offset = offsets[ordinal];
+		ByteBuffer header = map(offset, TraceFormat.GENERATION_HEADER_BYTES);
+		if (header.get(0) != TraceFormat.RECORD_GENERATION)
+			throw new IOException("Corrupt trace record " + ordinal + ": " + file);
+		return map(offset, header.getInt(TraceFormat.RECORD_LENGTH));
+	}
+	
+
+
+	/**
+	 * Maps a region of the trace, read-only.
+	 * @param offset The offset of the region.
+	 * @param length The length of the region.
+	 * @return The region (little-endian).
+	 * @throws IOException If the region lies outside the trace, or cannot be mapped.
+	 */
+	private ByteBuffer map(long offset, long length) throws IOException
+	{
+		if (channel == null)
+			throw new IllegalStateException("The trace reader has been closed");
+		if (offset < TraceFormat.HEADER_BYTES || length < 0 || offset + length > end || length > Integer.MAX_VALUE)
+			throw new IOException("Corrupt trace (region " + offset + "+" + length + " outside " + end + "): " + file);
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
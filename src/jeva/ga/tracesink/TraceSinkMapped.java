@@ -0,0 +1,453 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga.tracesink;
+
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import jeva.ga.Genome;
+import jeva.ga.GenomeStore;
+import jeva.ga.Population;
+import jeva.ga.TraceSink;
+
+
+
+/**
+ * Trace sink that appends every generation to a memory-mapped binary log, which can be read back with a {@link TraceReader}
+ * <p>
+ * Each genome is stored as a reference to an identical genome of the previous generation (elites and unchanged offspring), as the sparse XOR of its words with the genome in the same place of the previous generation, or as its words, whichever is smallest. Every <tt>indexInterval</tt> generations start with a keyframe, which holds the words only, and end with an index block, so that a reader can seek to any generation by decoding at most <tt>indexInterval</tt> records.
+ * <p>
+ * The file is appended to through a window mapped over its end, and the header is updated after every generation, so the generations recorded so far remain readable even if the run is interrupted. The file is trimmed to its contents when the sink is closed.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class TraceSinkMapped implements TraceSink
+{
+	public static final int DEFAULT_INDEX_INTERVAL = 64;
+	
+	private static final int WINDOW_BYTES = 1 << 26;
+	
+	private final Path file;
+	private final int indexInterval;
+	private FileChannel channel;
+	private MappedByteBuffer header;
+	private MappedByteBuffer window = null;
+	private long windowStart = 0;
+	private long end = TraceFormat.HEADER_BYTES;
+	private int records = 0;
+	private long lastIndex = -1;
+	private long[] blockOffsets;
+	private int[] blockGenerations;
+	private int blockCount = 0;
+	private long[] previousWords = new long[0];
+	private long[] currentWords = new long[0];
+	private int previousSize = 0;
+	private int previousLength = -1;
+	private int[] previousTable = new int[0];
+	
+
+
+	/**
+	 * Constructs a new TraceSinkMapped object in the specified file, which is created or overwritten, with an index block every {@link #DEFAULT_INDEX_INTERVAL} generations
+	 * @param _file The file
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	public TraceSinkMapped(Path _file) throws IOException
+	{
+		this(_file, DEFAULT_INDEX_INTERVAL);
+	}
+	
+
+
+	/**
+	 * Constructs a new TraceSinkMapped object in the specified file, which is created or overwritten
+	 * @param _file The file
+	 * @param _indexInterval The number of generations between keyframes (and index blocks): smaller intervals make seeking faster, and the log larger
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	public TraceSinkMapped(Path _file, int _indexInterval) throws IOException
+	{
+		if (_indexInterval < 1)
+			throw new IllegalArgumentException("The index interval must be positive");
+		file = _file;
+		indexInterval = _indexInterval;
+		blockOffsets = new long[_indexInterval];
+		blockGenerations = new int[_indexInterval];
+		
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, TraceFormat.HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(0, TraceFormat.MAGIC);
+			header.putInt(TraceFormat.HEADER_VERSION, TraceFormat.VERSION);
+			header.putInt(TraceFormat.HEADER_INDEX_INTERVAL, indexInterval);
+			commit();
+		}
+		catch (IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.TraceSink#record(int, jeva.ga.Population)
+	 */
+	public void record(int generation, Population population)
+	{
+		if (channel == null)
+			throw new IllegalStateException("The trace sink has been closed");
+		
+		int size = population.getSize();
+		GenomeStore store = population.getStore();
+		int genomeLength = (store != null ? store.getGenomeLength() : (size == 0 ? 0 : population.getGenome(0).length()));
+		int wordCount = Genome.wordCount(genomeLength);
+		boolean keyframe = (blockCount == 0 || genomeLength != previousLength);
+		
+		try
+		{
+			ensureWindow(TraceFormat.GENERATION_HEADER_BYTES + size * (Double.BYTES + 1L + Math.max(5, wordCount * (long)Long.BYTES)));
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		
+		int start = window.position();
+		window.put(TraceFormat.RECORD_GENERATION);
+		window.putInt(0);
+		window.putInt(generation);
+		window.putInt(size);
+		window.putInt(genomeLength);
+		window.put((byte)(keyframe ? 1 : 0));
+		
+		// Fitness column, while gathering the words
+		int fitnesses = window.position();
+		if (currentWords.length < size * wordCount)
+			currentWords = new long[size * wordCount];
+		for (int i = 0; i < size; i++)
+		{
+			double fitness;
+			if (store != null)
+			{
+				int row = population.getRow(i);
+				for (int w = 0; w < wordCount; w++)
+					currentWords[i * wordCount + w] = store.getWord(row, w);
+				fitness = (store.isEvaluated(row) ? store.getFitness(row) : Double.NaN);
+			}
+			else
+			{
+				Genome genome = population.getGenome(i);
+				for (int w = 0; w < wordCount; w++)
+					currentWords[i * wordCount + w] = genome.getWord(w);
+				fitness = (genome.isEvaluated() ? genome.getFitness() : Double.NaN);
+			}
+			window.putDouble(fitnesses + i * Double.BYTES, fitness);
+		}
+		window.position(fitnesses + size * Double.BYTES);
+		
+		// Genomes
+		for (int i = 0; i < size; i++)
+			putGenome(i, wordCount, keyframe);
+		window.putInt(start + TraceFormat.RECORD_LENGTH, window.position() - start);
+		
+		blockOffsets[blockCount] = windowStart + start;
+		blockGenerations[blockCount] = generation;
+		blockCount++;
+		records++;
+		end = windowStart + window.position();
+		
+		try
+		{
+			if (blockCount == indexInterval)
+				putIndex();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		commit();
+		
+		// The current generation is the reference for the next one
+		long[] words = previousWords;
+		previousWords = currentWords;
+		currentWords = words;
+		previousSize = size;
+		previousLength = genomeLength;
+		indexPrevious(wordCount);
+	}
+	
+
+
+	/**
+	 * Returns the file holding this trace.
+	 * @return The file.
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+	
+
+
+	/**
+	 * Writes everything recorded so far out to the file.
+	 */
+	public void flush()
+	{
+		if (window != null)
+			window.force();
+		if (header != null)
+			header.force();
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see jeva.ga.TraceSink#close()
+	 */
+	public void close()
+	{
+		if (channel == null)
+			return;
+		try
+		{
+			if (blockCount > 0)
+				putIndex();
+			commit();
+			flush();
+			
+			// The mappings themselves are only released once collected
+			window = null;
+			header = null;
+			channel.truncate(end);
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			channel = null;
+		}
+	}
+	
+
+
+	/**
+	 * Writes the entry of a genome, choosing the smallest encoding.
+	 * @param i The index of the genome.
+	 * @param wordCount The number of words per genome.
+	 * @param keyframe True, if the genome must be stored as its words.
+	 */
+	private void putGenome(int i, int wordCount, boolean keyframe)
+	{
+		int base = i * wordCount;
+		if (!keyframe)
+		{
+			// Identical to a genome of the previous generation
+			int j = findPrevious(base, wordCount);
+			if (j >= 0)
+			{
+				window.put(TraceFormat.GENOME_COPY);
+				TraceFormat.putVarint(window, j);
+				return;
+			}
+			
+			// Sparse difference from the genome in the same place
+			if (i < previousSize)
+			{
+				int changed = 0;
+				int bytes = TraceFormat.varintBytes(i);
+				for (int w = 0, last = -1; w < wordCount; w++)
+					if (currentWords[base + w] != previousWords[base + w])
+					{
+						bytes += TraceFormat.varintBytes(w - last - 1) + Long.BYTES;
+						last = w;
+						changed++;
+					}
+				bytes += TraceFormat.varintBytes(changed);
+				if (bytes < wordCount * Long.BYTES)
+				{
+					window.put(TraceFormat.GENOME_XOR);
+					TraceFormat.putVarint(window, i);
+					TraceFormat.putVarint(window, changed);
+					for (int w = 0, last = -1; w < wordCount; w++)
+					{
+						long difference = currentWords[base + w] ^ previousWords[base + w];
+						if (difference != 0)
+						{
+							TraceFormat.putVarint(window, w - last - 1);
+							window.putLong(difference);
+							last = w;
+						}
+					}
+					return;
+				}
+			}
+		}
+		
+		window.put(TraceFormat.GENOME_LITERAL);
+		for (int w = 0; w < wordCount; w++)
+			window.putLong(currentWords[base + w]);
+	}
+	
+
+
+	/**
+	 * Looks up a genome of the previous generation with the same words as a genome of the current one.
+	 * @param base The offset of the current genome's words.
+	 * @param wordCount The number of words per genome.
+	 * @return The index of the previous genome, or -1 if there is none.
+	 */
+	private int findPrevious(int base, int wordCount)
+	{
+		if (previousTable.length == 0)
+			return -1;
+		int mask = previousTable.length - 1;
+		for (int slot = hash(currentWords, base, wordCount) & mask; previousTable[slot] != 0; slot = (slot + 1) & mask)
+		{
+			int j = previousTable[slot] - 1;
+			boolean equal = true;
+			for (int w = 0; w < wordCount && equal; w++)
+				equal = (previousWords[j * wordCount + w] == currentWords[base + w]);
+			if (equal)
+				return j;
+		}
+		return -1;
+	}
+	
+
+
+	/**
+	 * Builds the hash table of the previous generation's genomes (keeping the first of identical ones).
+	 * @param wordCount The number of words per genome.
+	 */
+	private void indexPrevious(int wordCount)
+	{
+		int capacity = Integer.highestOneBit(Math.max(1, previousSize * 2 - 1)) << 1;
+		if (previousTable.length != capacity)
+			previousTable = new int[capacity];
+		else
+			Arrays.fill(previousTable, 0);
+		
+		int mask = capacity - 1;
+		for (int j = 0; j < previousSize; j++)
+		{
+			int slot = hash(previousWords, j * wordCount, wordCount) & mask;
+			while (previousTable[slot] != 0)
+				slot = (slot + 1) & mask;
+			previousTable[slot] = j + 1;
+		}
+	}
+	
+
+
+	/**
+	 * Hashes the words of a genome.
+	 * @param words The words.
+	 * @param base The offset of the genome's words.
+	 * @param wordCount The number of words per genome.
+	 * @return The hash.
+	 */
+	private static int hash(long[] words, int base, int wordCount)
+	{
+		long h = 0x9E3779B97F4A7C15L;
+		for (int w = 0; w < wordCount; w++)
+		{
+			h = (h ^ words[base + w]) * 0xBF58476D1CE4E5B9L;
+			h ^= h >>> 31;
+		}
+		return (int)(h ^ (h >>> 32));
+	}
+	
+
+
+	/**
+	 * Writes an index block for the generation records written since the last one.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	private void putIndex() throws IOException
+	{
+		int bytes = TraceFormat.INDEX_HEADER_BYTES + blockCount * TraceFormat.INDEX_ENTRY_BYTES;
+		ensureWindow(bytes);
+		int start = window.position();
+		window.put(TraceFormat.RECORD_INDEX);
+		window.putInt(bytes);
+		window.putLong(lastIndex);
+		window.putInt(records - blockCount);
+		window.putInt(blockCount);
+		for (int k = 0; k < blockCount; k++)
+		{
+			window.putLong(blockOffsets[k]);
+			window.putInt(blockGenerations[k]);
+		}
+		
+		lastIndex = windowStart + start;
+		blockCount = 0;
+		end = windowStart + window.position();
+	}
+	
+
+
+	/**
+	 * Makes sure the window has room for the specified number of bytes, by mapping a new one over the end of the file if necessary.
+	 * @param bytes The number of bytes.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	private void ensureWindow(long bytes) throws IOException
+	{
+		if (window != null && window.remaining() >= bytes)
+			return;
+		if (bytes > Integer.MAX_VALUE)
+			throw new IOException("A generation of " + bytes + " bytes is too large to trace");
+		
+		// Mapping past the end of the file grows it
+		if (window != null)
+			window.force();
+		window = channel.map(FileChannel.MapMode.READ_WRITE, end, Math.max(WINDOW_BYTES, bytes));
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = end;
+	}
+	
+
+
+	/**
+	 * Updates the header with the records written so far.
+	 */
+	private void commit()
+	{
+		header.putLong(TraceFormat.HEADER_END, end);
+		header.putInt(TraceFormat.HEADER_RECORDS, records);
+		header.putLong(TraceFormat.HEADER_LAST_INDEX, lastIndex);
+	}
+}
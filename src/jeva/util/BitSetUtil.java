@@ -18,12 +18,15 @@
  */
 
 package jeva.util;
+import java.util.Arrays;
 import java.util.BitSet;
 
 
 
 /**
  * This utility class contains functions to encode <tt>int</tt> or <tt>double</tt> values in a <tt>BitSet</tt>.
+ * <p>
+ * Genome decoding should use {@link jeva.ga.GenomeDecoder}, which works on the genome words directly and shares the word-level Gray coding and scaling routines below.
  * 
  * @see BitSet
  */
@@ -124,11 +127,8 @@ public class BitSetUtil
 			if (bitSet.get(offset + i))
 				longValue |= mask;
 		
-		// hint: without sign!
-		long max = (int)(Math.pow(2.0, length - 1) * 2 - 1);
-		
 		// returning the scaled back double value
-		return (longValue / (max / (maxValue - minValue)) + minValue);
+		return scale(longValue, length, minValue, maxValue);
 	}
 	
 
@@ -164,15 +164,22 @@ public class BitSetUtil
 		
 		double intervalLength = maxValue - minValue;
 		// hint: without sign!
-		int max = (int)(Math.pow(2.0, length - 1) * 2 - 1);
+		double max = unsignedMax(length);
 		
 		// scaling the input interval to the output interval of 0...2^(length-1)*2 -1
-		long scaledValue = Math.round((value - minValue) * max / intervalLength);
+		double scaled = (value - minValue) * max / intervalLength;
+		long scaledValue;
+		if (scaled >= max)
+			scaledValue = -1L >>> (Long.SIZE - length);
+		else if (scaled < 0x1p63)
+			scaledValue = Math.round(scaled);
+		else
+			scaledValue = Math.round(scaled - 0x1p63) | Long.MIN_VALUE;
 		
 		// putting the scaled value to the bitset (without any sign!)
 		long mask = 1;
 		for (int i = 0; i < length; ++i, mask <<= 1)
-			if ((mask & scaledValue) > 0)
+			if ((mask & scaledValue) != 0)
 				bitSet.set(offset + i);
 		
 		return bitSet;
@@ -180,13 +187,6 @@ public class BitSetUtil
 	
 
 
-	/**
-	 * Temporary <tt>BitSet</tt> for the gray en-/decoding process. This is just for speeding up.
-	 */
-	static private BitSet tmpBitSet = new BitSet();
-	
-
-
 	/**
 	 * Converts the <tt>BitSet</tt> from the binary representation to the gray-code presentation.
 	 * 
@@ -194,25 +194,15 @@ public class BitSetUtil
 	 */
 	public static void doGrayCoding(BitSet bitSet)
 	{
-		// pseudo code
-		// ---------------------------
-		// G[n] = B[n]
-		// for i = n-1 downto 0
-		// ....G[i] = B[i+1] XOR B[i]
-		
-		synchronized (tmpBitSet)
+		// G[i] = B[i+1] XOR B[i], carried across word boundaries
+		long[] words = bitSet.toLongArray();
+		for (int w = 0; w < words.length; w++)
 		{
-			int n = bitSet.size() - 1;
-			
-			// doing the gray coding
-			tmpBitSet.set(n, bitSet.get(n));
-			for (int i = n - 1; i >= 0; --i)
-				tmpBitSet.set(i, (bitSet.get(i + 1) ^ bitSet.get(i)));
-			
-			// copying the result to the original BitSet
-			for (int i = 0; i < bitSet.length(); ++i)
-				bitSet.set(i, tmpBitSet.get(i));
+			long carry = (w + 1 < words.length ? words[w + 1] << 63 : 0);
+			words[w] = binaryToGray(words[w]) ^ carry;
 		}
+		
+		replace(bitSet, words);
 	}
 	
 
@@ -224,29 +214,182 @@ public class BitSetUtil
 	 */
 	public static void doInvGrayCoding(BitSet bitSet)
 	{
-		// pseudo code
-		// ---------------------------
-		// B[n] = G[n]
-		// for i = n-1 downto 0
-		// ....B[i] = B[i+1] XOR G[i]
-		
-		synchronized (tmpBitSet)
+		// B[i] = XOR of G[j] for all j >= i; the parity of the higher words is carried downwards
+		long[] words = bitSet.toLongArray();
+		long parity = 0;
+		for (int w = words.length - 1; w >= 0; w--)
 		{
-			int n = bitSet.size() - 1;
-			
-			// doing the encoding
-			tmpBitSet.set(n, bitSet.get(n));
-			for (int i = n - 1; i >= 0; --i)
-				tmpBitSet.set(i, (tmpBitSet.get(i + 1) ^ bitSet.get(i)));
-			
-			// copying the result to the original BitSet
-			for (int i = 0; i < bitSet.length(); ++i)
-				bitSet.set(i, tmpBitSet.get(i));
+			words[w] = grayToBinary(words[w]) ^ parity;
+			parity = -(words[w] & 1);
 		}
+		
+		replace(bitSet, words);
+	}
+	
+
+
+	/**
+	 * Converts a Gray-coded word to plain binary. The most significant set bit is taken to be the top of the code.
+	 * @param gray The Gray-coded bits
+	 * @return The binary bits
+	 */
+	public static long grayToBinary(long gray)
+	{
+		// B[i] = XOR of G[j] for all j >= i, i.e. a prefix XOR from the top
+		long binary = gray;
+		binary ^= binary >>> 1;
+		binary ^= binary >>> 2;
+		binary ^= binary >>> 4;
+		binary ^= binary >>> 8;
+		binary ^= binary >>> 16;
+		binary ^= binary >>> 32;
+		return binary;
 	}
 	
-	public static void bitSetToBytes(BitSet bitSet)
+
+
+	/**
+	 * Converts a plain binary word to Gray code.
+	 * @param binary The binary bits
+	 * @return The Gray-coded bits
+	 */
+	public static long binaryToGray(long binary)
 	{
-		
+		return binary ^ (binary >>> 1);
+	}
+	
+
+
+	/**
+	 * Scales an unsigned integer of the specified bit width into [min, max].
+	 * @param bits The unsigned integer
+	 * @param length The bit width of the integer
+	 * @param varMin The minimum value
+	 * @param varMax The maximum value
+	 * @return The scaled value
+	 */
+	public static double scale(long bits, int length, double varMin, double varMax)
+	{
+		return unsignedToDouble(bits) / scaleDivisor(length, varMin, varMax) + varMin;
+	}
+	
+
+
+	/**
+	 * Computes the divisor mapping unsigned integers of the specified bit width onto [min, max], so that all-ones maps to max.
+	 * @param length The bit width (1 to 64)
+	 * @param varMin The minimum value
+	 * @param varMax The maximum value
+	 * @return The divisor
+	 */
+	public static double scaleDivisor(int length, double varMin, double varMax)
+	{
+		return unsignedMax(length) / (varMax - varMin);
+	}
+	
+
+
+	/**
+	 * Returns the largest unsigned integer of the specified bit width, as a double.
+	 * @param length The bit width (1 to 64)
+	 * @return 2<sup>length</sup> - 1
+	 */
+	public static double unsignedMax(int length)
+	{
+		return unsignedToDouble(-1L >>> (Long.SIZE - length));
+	}
+	
+
+
+	/**
+	 * Converts a word to double, reading it as an unsigned integer.
+	 * @param bits The unsigned integer
+	 * @return The value of the integer
+	 */
+	public static double unsignedToDouble(long bits)
+	{
+		// Halve first, so that the top bit is not taken as the sign
+		return (bits >>> 1) * 2.0 + (bits & 1);
+	}
+	
+
+
+	/**
+	 * Replaces the contents of a <tt>BitSet</tt> with the specified words.
+	 * 
+	 * @param bitSet the <tt>BitSet</tt> to operate on
+	 * @param words the new contents
+	 */
+	private static void replace(BitSet bitSet, long[] words)
+	{
+		bitSet.clear();
+		bitSet.or(BitSet.valueOf(words));
+	}
+	
+
+
+	/**
+	 * Packs the bits of the <tt>BitSet</tt> into bytes, eight to a byte: bit <tt>i</tt> is bit <tt>i % 8</tt> of byte <tt>i / 8</tt>.
+	 * 
+	 * @param bitSet the <tt>BitSet</tt> to operate on
+	 * @return the bytes, as many as are needed to hold the highest set bit
+	 */
+	public static byte[] bitSetToBytes(BitSet bitSet)
+	{
+		return bitSet.toByteArray();
+	}
+	
+
+
+	/**
+	 * Packs the first <tt>length</tt> bits of the <tt>BitSet</tt> into bytes, eight to a byte: bit <tt>i</tt> is bit <tt>i % 8</tt> of byte <tt>i / 8</tt>.
+	 * 
+	 * @param bitSet the <tt>BitSet</tt> to operate on
+	 * @param length the number of bits to pack
+	 * @return the bytes, exactly <tt>(length + 7) / 8</tt> of them
+	 */
+	public static byte[] bitSetToBytes(BitSet bitSet, int length)
+	{
+		return Arrays.copyOf(bitSet.get(0, length).toByteArray(), (length + 7) >>> 3);
+	}
+	
+
+
+	/**
+	 * Unpacks bytes packed by <tt>bitSetToBytes(...)</tt> into a new <tt>BitSet</tt>.
+	 * 
+	 * @param bytes the packed bits
+	 * @return the bit set
+	 */
+	public static BitSet bytesToBitSet(byte[] bytes)
+	{
+		return BitSet.valueOf(bytes);
+	}
+	
+
+
+	/**
+	 * Packs the first <tt>length</tt> bits of the <tt>BitSet</tt> into <tt>long</tt> words, 64 to a word: bit <tt>i</tt> is bit <tt>i % 64</tt> of word <tt>i / 64</tt> (the layout of the genome words).
+	 * 
+	 * @param bitSet the <tt>BitSet</tt> to operate on
+	 * @param length the number of bits to pack
+	 * @return the words, exactly <tt>(length + 63) / 64</tt> of them
+	 */
+	public static long[] bitSetToLongs(BitSet bitSet, int length)
+	{
+		return Arrays.copyOf(bitSet.get(0, length).toLongArray(), (length + 63) >>> 6);
+	}
+	
+
+
+	/**
+	 * Unpacks <tt>long</tt> words packed by <tt>bitSetToLongs(...)</tt> into a new <tt>BitSet</tt>.
+	 * 
+	 * @param words the packed bits
+	 * @return the bit set
+	 */
+	public static BitSet longsToBitSet(long[] words)
+	{
+		return BitSet.valueOf(words);
 	}
 }
@@ -0,0 +1,119 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.util;
+
+
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+
+
+/**
+ * A seeded source of independent, reproducible random number streams.
+ * <p>
+ * Each stream is identified by a purpose, a generation and an index (typically the population slot), and is derived from the seed alone. Work can therefore be spread over any number of threads, in any order, and every individual still receives exactly the same random numbers as in a single-threaded run with the same seed.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class RandomSource implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	/** Stream purpose: initialisation of the first population. */
+	public static final int INITIALISATION = 1;
+	/** Stream purpose: breeding (selection, crossover and mutation) of a child. */
+	public static final int BREEDING = 2;
+	/** Stream purpose: experimental damage. */
+	public static final int DAMAGE = 3;
+	/** Stream purpose: choice of migrants between islands, and of the individuals they replace. */
+	public static final int MIGRATION = 4;
+	
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
+	private final long seed;
+	
+
+
+	/**
+	 * Constructs a new RandomSource with the specified seed.
+	 * @param _seed The seed
+	 */
+	public RandomSource(long _seed)
+	{
+		seed = _seed;
+	}
+	
+
+
+	/**
+	 * Constructs a new RandomSource with an arbitrary seed.
+	 */
+	public RandomSource()
+	{
+		this(new SplittableRandom().nextLong());
+	}
+	
+
+
+	/**
+	 * Returns the seed.
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+
+
+	/**
+	 * Returns the stream with the specified identity. Calling this again with the same arguments returns an identical, independent stream.
+	 * @param purpose The purpose of the stream
+	 * @param generation The generation
+	 * @param index The index (e.g. of the population slot)
+	 * @return The stream
+	 */
+	public RandomGenerator stream(int purpose, long generation, long index)
+	{
+		long h = mix64(seed + GOLDEN_GAMMA * purpose);
+		h = mix64(h + GOLDEN_GAMMA * generation);
+		h = mix64(h + GOLDEN_GAMMA * index);
+		return new SplittableRandom(h);
+	}
+	
+
+
+	/**
+	 * The SplitMix64 finaliser: a bijective scrambling of 64 bits.
+	 * @param z The input
+	 * @return The scrambled output
+	 */
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return "RandomSource[seed=" + seed + "]";
+	}
+}
@@ -16,6 +16,8 @@ package jeva.util;
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 
 
@@ -39,13 +41,29 @@ public class Utilities
 	 * @return An array containing the selected integers
 	 */
 	public static Integer[] chooseRandom(int min, int max, int n)
+	{
+		return chooseRandom(min, max, n, ThreadLocalRandom.current());
+	}
+	
+
+
+	/**
+	 * Chooses a number of unique integers from a range
+	 * 
+	 * @param min The minimum of the range
+	 * @param max The maximum of the range
+	 * @param n The number of integers to choose
+	 * @param random The random number stream to draw from
+	 * @return An array containing the selected integers
+	 */
+	public static Integer[] chooseRandom(int min, int max, int n, RandomGenerator random)
 	{
 		ArrayList<Integer> idAll = new ArrayList<Integer>();
 		ArrayList<Integer> idSubset = new ArrayList<Integer>();
 		for (int i = min; i < max; i++)
 			idAll.add(i);
 		for (int i = 0; i < n; i++)
-			idSubset.add(idAll.remove(RNG.nextInt(idAll.size())));
+			idSubset.add(idAll.remove(random.nextInt(idAll.size())));
 		
 		return idSubset.toArray(new Integer[0]);
 	}
@@ -0,0 +1,79 @@
+/*
+ * JEvA Copyright 2012 Nikolaos Chatzinikolaou nchatzi@gmail.com
+ * 
+ * This file is part of JEvA.
+ * 
+ * JEvA is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ * 
+ * JEvA is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with JEvA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jeva.ga;
+
+
+
+import java.util.BitSet;
+
+import jeva.util.BitSetUtil;
+
+
+
+/**
+ * Checks that a GenomeDecoder maps the full range of wide variables onto [min, max]. Run by the <tt>test</tt> target of the build.
+ * 
+ * @author Nikolaos Chatzinikolaou
+ */
+public class GenomeDecoderTest
+{
+	private static final double VAR_MIN = -5.12;
+	private static final double VAR_MAX = 5.12;
+	private static final int[] WIDTHS = {1, 16, 31, 32, 40, 63, 64};
+	
+
+
+	public static void main(String[] args)
+	{
+		for (int nVarBits : WIDTHS)
+		{
+			Genome ones = new Genome(nVarBits);
+			for (int i = 0; i < nVarBits; i++)
+				ones.setValue(i, true);
+			Genome zeros = new Genome(nVarBits);
+			
+			// All-ones is the top of the plain binary range
+			GenomeDecoder binary = new GenomeDecoder(1, nVarBits, VAR_MIN, VAR_MAX, false);
+			check(nVarBits + " bits, binary all-ones", binary.decode(ones, 0), VAR_MAX);
+			check(nVarBits + " bits, binary all-zeros", binary.decode(zeros, 0), VAR_MIN);
+			
+			// The Gray code of all-ones decodes to the top of the range as well
+			Genome grayOnes = new Genome(nVarBits);
+			long gray = BitSetUtil.binaryToGray(-1L >>> (Long.SIZE - nVarBits));
+			for (int i = 0; i < nVarBits; i++)
+				grayOnes.setValue(i, ((gray >>> i) & 1) != 0);
+			GenomeDecoder grayCoded = new GenomeDecoder(1, nVarBits, VAR_MIN, VAR_MAX, true);
+			check(nVarBits + " bits, Gray-coded all-ones", grayCoded.decode(grayOnes, 0), VAR_MAX);
+			
+			// The BitSet encoding round-trips through the same scaling
+			check(nVarBits + " bits, BitSet all-ones", BitSetUtil.bitSetToDouble(ones.toBitSet(), 0, nVarBits, VAR_MIN, VAR_MAX), VAR_MAX);
+			check(nVarBits + " bits, BitSet encoded max", BitSetUtil.bitSetToDouble(BitSetUtil.doubleToBitSet(new BitSet(), 0, nVarBits, VAR_MIN, VAR_MAX, VAR_MAX), 0, nVarBits, VAR_MIN, VAR_MAX), VAR_MAX);
+		}
+		
+		System.out.println("GenomeDecoderTest passed");
+	}
+	
+
+
+	/**
+	 * Fails if a decoded value differs from the expected one.
+	 * @param what A description of the check
+	 * @param actual The decoded value
+	 * @param expected The expected value
+	 */
+	private static void check(String what, double actual, double expected)
+	{
+		if (actual != expected)
+			throw new AssertionError(what + ": expected " + expected + ", got " + actual);
+	}
+}